@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The fitness evaluation event, spans a single backend fitness computation.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@Name("nl.tudelft.dcsc.scots2sr.Fitness")
+@Label("Fitness Evaluation")
+@Category("SCOTS2SR")
+@Description("A single fitness computation by the fitness backend")
+@StackTrace(false)
+public class FitnessEvent extends Event {
+
+    //Stores the process manager id
+    @Label("Manager Id")
+    int mgr_id;
+    //Stores the computed fitness value
+    @Label("Fitness")
+    double fitness;
+}
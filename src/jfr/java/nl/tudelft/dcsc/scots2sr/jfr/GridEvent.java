@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The grid update event, spans settling or removing an individual in the
+ * fitness tracker.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@Name("nl.tudelft.dcsc.scots2sr.GridUpdate")
+@Label("Grid Update")
+@Category("SCOTS2SR")
+@Description("Settling or removing an individual in the fitness tracker")
+@StackTrace(false)
+public class GridEvent extends Event {
+
+    //Stores the flag indicating whether the individual is settled or removed
+    @Label("Settled")
+    boolean is_set;
+    //Stores the process manager id
+    @Label("Manager Id")
+    int mgr_id;
+    //Stores the grid position x
+    @Label("Position X")
+    int pos_x;
+    //Stores the grid position y
+    @Label("Position Y")
+    int pos_y;
+    //Stores the individual's actual fitness
+    @Label("Actual Fitness")
+    double act_ftn;
+}
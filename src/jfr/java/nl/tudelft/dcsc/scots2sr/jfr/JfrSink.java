@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jfr;
+
+import nl.tudelft.dcsc.scots2sr.metrics.FlightSink;
+
+/**
+ * The Java Flight Recorder events sink, is instantiated by reflection once the
+ * events are enabled. The events are only committed if a recording is
+ * running and has them enabled, so that an idle sink costs an allocation and
+ * a couple of checks per event.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class JfrSink implements FlightSink {
+
+    @Override
+    public Object begin_fitness() {
+        final FitnessEvent event = new FitnessEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end_fitness(final Object event, final int mgr_id, final double fitness) {
+        final FitnessEvent ftn_event = (FitnessEvent) event;
+        ftn_event.end();
+        if (ftn_event.shouldCommit()) {
+            ftn_event.mgr_id = mgr_id;
+            ftn_event.fitness = fitness;
+            ftn_event.commit();
+        }
+    }
+
+    @Override
+    public Object begin_grid() {
+        final GridEvent event = new GridEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end_grid(final Object event, final boolean is_set,
+            final int mgr_id, final int pos_x, final int pos_y, final double act_ftn) {
+        final GridEvent grid_event = (GridEvent) event;
+        grid_event.end();
+        if (grid_event.shouldCommit()) {
+            grid_event.is_set = is_set;
+            grid_event.mgr_id = mgr_id;
+            grid_event.pos_x = pos_x;
+            grid_event.pos_y = pos_y;
+            grid_event.act_ftn = act_ftn;
+            grid_event.commit();
+        }
+    }
+
+    @Override
+    public Object begin_stage() {
+        final StageEvent event = new StageEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end_stage(final Object event, final String stage) {
+        final StageEvent stage_event = (StageEvent) event;
+        stage_event.end();
+        if (stage_event.shouldCommit()) {
+            stage_event.stage = stage;
+            stage_event.commit();
+        }
+    }
+}
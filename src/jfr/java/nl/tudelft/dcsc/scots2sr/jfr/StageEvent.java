@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The lifecycle stage event, spans a stage of stopping the regression or of
+ * saving the controller.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@Name("nl.tudelft.dcsc.scots2sr.Stage")
+@Label("Lifecycle Stage")
+@Category("SCOTS2SR")
+@Description("A stage of stopping the regression or of saving the controller")
+public class StageEvent extends Event {
+
+    //Stores the stage name
+    @Label("Stage")
+    String stage;
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jni;
+
+import java.util.concurrent.TimeUnit;
+import nl.tudelft.dcsc.scots2jni.FConfig;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SCOTS facade benchmarks: the overhead of dispatching the fitness
+ * computations through the method handles and the batcher, against a stub
+ * backend that does no work. The direct stub call is the baseline.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScotsFacadeBench {
+
+    /**
+     * The stub backend with the Scots2JNI methods
+     */
+    public static final class StubBackend {
+
+        //Stores the fitness of every individual
+        private static final Fitness FITNESS = new Fitness(0.5);
+
+        public static int load(final String file_name) {
+            return 2;
+        }
+
+        public static int get_state_space_size(final int ss_dim) {
+            return 0;
+        }
+
+        public static void configure(final FConfig cfg) {
+        }
+
+        public static Fitness compute_fitness(final String class_name) {
+            return FITNESS;
+        }
+
+        public static Fitness[] compute_fitness_batch(final String[] class_names) {
+            final Fitness[] result = new Fitness[class_names.length];
+            for (int idx = 0; idx < result.length; ++idx) {
+                result[idx] = FITNESS;
+            }
+            return result;
+        }
+
+        public static void start_unfit_export() {
+        }
+
+        public static double export_unfit_points(final String class_name) {
+            return 0.0;
+        }
+
+        public static void finish_unfit_export(final String file_name) {
+        }
+    }
+
+    //Stores the individual class name
+    private static final String CLASS_NAME = "Individual";
+    //Stores the maximum batch linger time in micro seconds
+    private static final long MAX_LINGER_US = 50;
+
+    //Stores the maximum batch size, 1 means no batching
+    @Param({"1", "16"})
+    public int m_batch_size;
+
+    @Setup(Level.Trial)
+    public void set_up() throws NoSuchMethodException, IllegalAccessException {
+        ScotsFacade.INSTANCE.bind(StubBackend.class);
+        ScotsFacade.INSTANCE.set_batching(m_batch_size, MAX_LINGER_US);
+    }
+
+    @Benchmark
+    public Fitness direct() {
+        return StubBackend.compute_fitness(CLASS_NAME);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Fitness facade_1() throws Exception {
+        return ScotsFacade.INSTANCE.compute_fitness(0, CLASS_NAME);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Fitness facade_8() throws Exception {
+        return ScotsFacade.INSTANCE.compute_fitness(0, CLASS_NAME);
+    }
+}
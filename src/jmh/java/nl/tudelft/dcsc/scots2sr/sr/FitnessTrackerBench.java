@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The fitness tracker benchmarks: settling individuals into the grid by the
+ * concurrent workers, folding the changed cells into the statistics and
+ * getting the best fit individuals.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FitnessTrackerBench {
+
+    /**
+     * The tracker with no statistics reporting
+     */
+    private static final class BenchTracker extends FitnessTracker {
+
+        BenchTracker(final int size_x, final int size_y) {
+            super(size_x, size_y);
+        }
+
+        @Override
+        public void start_observing() {
+        }
+
+        @Override
+        public void stop_observing() {
+        }
+    }
+
+    /**
+     * The individual with the given fitness and no expressions
+     */
+    private static final class BenchIndividual extends Individual {
+
+        private final int m_pos_x;
+        private final int m_pos_y;
+        private final Fitness m_ftn;
+
+        BenchIndividual(final int pos_x, final int pos_y, final double act_ftn) {
+            super(0, pos_x, pos_y, 1);
+            m_pos_x = pos_x;
+            m_pos_y = pos_y;
+            m_ftn = new ExtendedFitness(act_ftn, Math.min(1.0, act_ftn * 1.1));
+        }
+
+        @Override
+        public int get_mgr_id() {
+            return 0;
+        }
+
+        @Override
+        public int get_pos_x() {
+            return m_pos_x;
+        }
+
+        @Override
+        public int get_pos_y() {
+            return m_pos_y;
+        }
+
+        @Override
+        public Fitness get_fitness() {
+            return m_ftn;
+        }
+    }
+
+    //Stores the number of individuals per grid cell to alternate between
+    private static final int NUM_CELL_INDS = 2;
+
+    //Stores the grid size in x and y
+    @Param({"10", "50", "100"})
+    public int m_size;
+
+    //Stores the tracker
+    private BenchTracker m_tracker;
+    //Stores the individuals, NUM_CELL_INDS per grid cell
+    private Individual[] m_inds;
+
+    @Setup(Level.Trial)
+    public void set_up() {
+        final Random rnd = new Random(42);
+        m_tracker = new BenchTracker(m_size, m_size);
+        m_inds = new Individual[m_size * m_size * NUM_CELL_INDS];
+        for (int pos_x = 0; pos_x < m_size; ++pos_x) {
+            for (int pos_y = 0; pos_y < m_size; ++pos_y) {
+                final int cell = pos_x * m_size + pos_y;
+                for (int idx = 0; idx < NUM_CELL_INDS; ++idx) {
+                    m_inds[cell * NUM_CELL_INDS + idx]
+                            = new BenchIndividual(pos_x, pos_y, rnd.nextDouble());
+                }
+                m_tracker.set(m_inds[cell * NUM_CELL_INDS]);
+            }
+        }
+        m_tracker.re_compute_fitness();
+    }
+
+    /**
+     * Settles a random individual into its cell, removes one in a few cases
+     */
+    private void settle() {
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        final Individual ind = m_inds[rnd.nextInt(m_inds.length)];
+        if (rnd.nextInt(8) == 0) {
+            m_tracker.remove(ind);
+        } else {
+            m_tracker.set(ind);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void set_remove_1() {
+        settle();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void set_remove_8() {
+        settle();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void set_remove_32() {
+        settle();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void set_remove_64() {
+        settle();
+    }
+
+    /**
+     * Changes one grid row worth of cells and folds them into the statistics
+     *
+     * @return the re-computation result
+     */
+    @Benchmark
+    public boolean re_compute_fitness() {
+        for (int idx = 0; idx < m_size; ++idx) {
+            settle();
+        }
+        return m_tracker.re_compute_fitness();
+    }
+
+    @Benchmark
+    public List<Individual> get_best_fit_ind() {
+        return m_tracker.get_best_fit_ind();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.ui;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javafx.embed.swing.JFXPanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The grid view benchmarks: scheduling the cell updates by the concurrent
+ * workers. The animation is not started, so only the writer side is
+ * measured. Creating the view needs the JavaFX toolkit, i.e. a display.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GridViewBench {
+
+    //Stores the grid size in x and y
+    @Param({"10", "100"})
+    public int m_size;
+
+    //Stores the grid view
+    private GridView m_view;
+
+    @Setup(Level.Trial)
+    public void set_up() {
+        //Starts the JavaFX toolkit
+        new JFXPanel();
+        m_view = new GridView(m_size, m_size);
+    }
+
+    /**
+     * Schedules the update of a random cell with a random fitness
+     */
+    private void update() {
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        m_view.schedule_update(rnd.nextInt(m_size), rnd.nextInt(m_size), rnd.nextDouble());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void schedule_update_1() {
+        update();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void schedule_update_8() {
+        update();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void schedule_update_32() {
+        update();
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * The asynchronous file log handler. The published records are put into a
+ * bounded queue and are formatted and written into the file, in batches, by a
+ * dedicated writer thread. Once the queue is full the publishing thread either
+ * blocks or the record is dropped, the number of dropped records is logged.
+ * The records are not formatted on the publishing thread, so their parameters
+ * must not be changed after logging. To avoid the stack walk on the publishing
+ * thread a copy of the record is queued, with the source class set to the
+ * logger name and without the source method, the published record itself is
+ * not changed. If the writer thread dies, the records are dropped. The
+ * formatter and the encoding are read for every written batch, so that their
+ * changes apply from the next batch on.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class AsyncFileHandler extends Handler {
+
+    //Stores the maximum number of records written in one go
+    private static final int MAX_BATCH_SIZE = 512;
+    //Stores the writer thread join time out in milliseconds
+    private static final long JOIN_TIME_OUT_MS = 10000;
+    //Stores the time out of waiting for the space in the queue, after which
+    //the writer thread is checked to be alive, in milliseconds
+    private static final long OFFER_TIME_OUT_MS = 100;
+    //Stores the record marking the end of the queue
+    private static final LogRecord END_RECORD = new LogRecord(Level.OFF, "");
+
+    //Stores the records queue
+    private final BlockingQueue<LogRecord> m_queue;
+    //Stores the flag indicating whether the publishing blocks on a full queue
+    private final boolean m_is_block;
+    //Stores the log file channel
+    private final FileChannel m_channel;
+    //Stores the number of dropped records, since the last write
+    private final AtomicLong m_num_dropped;
+    //Stores the writer thread
+    private final Thread m_writer;
+    //Stores the flag indicating whether the handler is closed
+    private volatile boolean m_is_closed;
+
+    /**
+     * The basic constructor, the log file is overwritten
+     *
+     * @param file_name the log file name
+     * @param queue_size the maximum number of records in the queue
+     * @param is_block true if the publishing shall block on a full queue,
+     * false if the record is to be dropped
+     * @throws IOException if the log file could not be opened
+     */
+    public AsyncFileHandler(final String file_name, final int queue_size,
+            final boolean is_block) throws IOException {
+        m_queue = new ArrayBlockingQueue<>(queue_size);
+        m_is_block = is_block;
+        m_channel = FileChannel.open(Paths.get(file_name),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        m_num_dropped = new AtomicLong(0);
+        m_is_closed = false;
+        setFormatter(new SimpleFormatter());
+        m_writer = new Thread(this::write_records, "gp-log-writer");
+        m_writer.setDaemon(true);
+        m_writer.start();
+    }
+
+    @Override
+    public void publish(final LogRecord record) {
+        if (!m_is_closed && isLoggable(record)) {
+            if (!offer(copy_of(record), m_is_block)) {
+                m_num_dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Puts the record into the queue, the blocking put gives up once the
+     * writer thread is not alive, so that the publishers do not hang
+     *
+     * @param record the record to put
+     * @param is_block true if to wait for the space in the queue
+     * @return true if the record is put, false if it is dropped
+     */
+    private boolean offer(final LogRecord record, final boolean is_block) {
+        if (is_block && m_writer.isAlive()) {
+            try {
+                while (!m_queue.offer(record, OFFER_TIME_OUT_MS, TimeUnit.MILLISECONDS)) {
+                    if (!m_writer.isAlive()) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        } else {
+            return m_queue.offer(record);
+        }
+    }
+
+    /**
+     * Allows to copy the record for the writer thread, the source class is set
+     * to the logger name so that the caller is never inferred
+     *
+     * @param record the record to copy
+     * @return the copy
+     */
+    private static LogRecord copy_of(final LogRecord record) {
+        final LogRecord copy = new LogRecord(record.getLevel(), record.getMessage());
+        copy.setLoggerName(record.getLoggerName());
+        copy.setSourceClassName(record.getLoggerName());
+        copy.setSourceMethodName(null);
+        copy.setMillis(record.getMillis());
+        copy.setSequenceNumber(record.getSequenceNumber());
+        copy.setThreadID(record.getThreadID());
+        copy.setParameters(record.getParameters());
+        copy.setThrown(record.getThrown());
+        copy.setResourceBundle(record.getResourceBundle());
+        copy.setResourceBundleName(record.getResourceBundleName());
+        return copy;
+    }
+
+    @Override
+    public void flush() {
+        //The records are written by the writer thread as soon as possible
+    }
+
+    @Override
+    public synchronized void close() throws SecurityException {
+        if (!m_is_closed) {
+            m_is_closed = true;
+            if (offer(END_RECORD, true)) {
+                try {
+                    m_writer.join(JOIN_TIME_OUT_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                m_channel.close();
+            } catch (IOException ex) {
+                reportError("Failed closing the log file", ex, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * The writer thread body, writes the queued records until the end record
+     */
+    private void write_records() {
+        final List<LogRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        final StringBuilder text = new StringBuilder();
+        boolean is_end = false;
+        text.append(getFormatter().getHead(this));
+        while (!is_end) {
+            try {
+                batch.add(m_queue.take());
+                m_queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            } catch (InterruptedException ex) {
+                //Continue until the end record is received
+            }
+            //Get the formatter per batch, as the encoding in write
+            final Formatter fmt = getFormatter();
+            final long num_dropped = m_num_dropped.getAndSet(0);
+            if (num_dropped > 0) {
+                text.append("WARNING: ").append(num_dropped)
+                        .append(" log records were dropped")
+                        .append(System.lineSeparator());
+            }
+            for (LogRecord record : batch) {
+                if (record == END_RECORD) {
+                    is_end = true;
+                } else {
+                    try {
+                        text.append(fmt.format(record));
+                    } catch (RuntimeException ex) {
+                        reportError("Failed formatting the log record", ex,
+                                ErrorManager.FORMAT_FAILURE);
+                    }
+                }
+            }
+            if (is_end) {
+                text.append(fmt.getTail(this));
+            }
+            write(text);
+            text.setLength(0);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the text into the log file, in the current encoding
+     *
+     * @param text the text to write
+     */
+    private void write(final CharSequence text) {
+        if (text.length() > 0) {
+            final String encoding = getEncoding();
+            final Charset charset = (encoding == null)
+                    ? Charset.defaultCharset() : Charset.forName(encoding);
+            final ByteBuffer buffer = charset.encode(text.toString());
+            try {
+                while (buffer.hasRemaining()) {
+                    m_channel.write(buffer);
+                }
+            } catch (IOException ex) {
+                reportError("Failed writing the log file", ex, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+}
@@ -21,16 +21,12 @@
  */
 package nl.tudelft.dcsc.scots2sr;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
@@ -39,12 +35,12 @@ import java.util.ResourceBundle;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.FileHandler;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 import java.util.stream.IntStream;
 
 import javafx.concurrent.Task;
@@ -72,7 +68,9 @@ import javafx.scene.layout.GridPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 
-import nl.tudelft.dcsc.scots2jni.FConfig;
+import nl.tudelft.dcsc.scots2sr.metrics.FlightEvents;
+import nl.tudelft.dcsc.scots2sr.metrics.Metrics;
+import nl.tudelft.dcsc.scots2sr.metrics.MetricsServer;
 import nl.tudelft.dcsc.scots2sr.ui.ConsoleLog;
 import nl.tudelft.dcsc.scots2sr.ui.ProgressUpdater;
 import nl.tudelft.dcsc.scots2sr.utils.Pair;
@@ -86,7 +84,14 @@ import nl.tudelft.dcsc.sr2jlib.fitness.FitnessManager;
 import nl.tudelft.dcsc.sr2jlib.grammar.GrammarConfig;
 import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
 import nl.tudelft.dcsc.scots2sr.jni.ScotsFacade;
+import nl.tudelft.dcsc.scots2sr.backend.BackendConfig;
+import nl.tudelft.dcsc.scots2sr.backend.ExplicitBackend;
+import nl.tudelft.dcsc.scots2sr.backend.FitnessBackend;
 import nl.tudelft.dcsc.scots2sr.ui.PMVisualizer;
+import nl.tudelft.dcsc.scots2sr.sr.Checkpointer;
+import nl.tudelft.dcsc.scots2sr.sr.IslandModel;
+import nl.tudelft.dcsc.scots2sr.sr.PopulationSnapshot;
+import nl.tudelft.dcsc.scots2sr.sr.SymbolicController;
 
 /**
  * This is the main UI controller implementation
@@ -96,7 +101,7 @@ import nl.tudelft.dcsc.scots2sr.ui.PMVisualizer;
 public class FXMLController implements Initializable {
 
     //Stores the symbolic controller file name extension
-    private static final String SYM_FILE_NAME_EXT = "sym";
+    private static final String SYM_FILE_NAME_EXT = SymbolicController.SYM_FILE_NAME_EXT;
     //Stores the symbolic controller file name template
     private static final String SYM_FILE_TEMPL = "*." + SYM_FILE_NAME_EXT;
     //The termination time out in seconds
@@ -108,6 +113,10 @@ public class FXMLController implements Initializable {
     //Defines the number of UI threads to be used 
     private static final int NUM_UI_WORK_THREADS = 3;
 
+
+    //Stores the fitness backend in use
+    private volatile FitnessBackend m_backend = ScotsFacade.INSTANCE;
+
     @FXML
     private Button m_load_btn;
     @FXML
@@ -223,8 +232,15 @@ public class FXMLController implements Initializable {
     //The executor to handle parallel tasks
     private final ExecutorService m_executor = Executors.newFixedThreadPool(NUM_UI_WORK_THREADS);
 
-    //Stores the process manager
-    private ProcessManager m_manager = null;
+    //Stores the process managers, one per island
+    private IslandModel m_manager = null;
+
+    //Stores the population snapshot checkpointer, or null if none
+    private volatile Checkpointer m_checkpointer = null;
+    //Stores the breeding start time as given by System.nanoTime(), 0 if not breeding
+    private final AtomicLong m_breed_start_ns = new AtomicLong();
+    //Stores the metrics endpoint, or null if none
+    private MetricsServer m_metrics = null;
 
     public FXMLController() {
         m_num_dofs = 0;
@@ -242,6 +258,12 @@ public class FXMLController implements Initializable {
         //Remove the process manager
         m_manager = null;
 
+        //Stop the metrics endpoint
+        if (m_metrics != null) {
+            m_metrics.stop();
+            m_metrics = null;
+        }
+
         //Store properties,
         m_prop_mgr.save_properties();
 
@@ -297,7 +319,15 @@ public class FXMLController implements Initializable {
         final String full_file_name = file_name + ".gp.log";
         m_log.info("Started controller logging into: " + full_file_name);
         try {
-            FileHandler fh = new FileHandler(full_file_name);
+            final int queue_size = (int) get_num_property(
+                    PropertyManager.LOG_QUEUE_SIZE_PROP, PropertyManager.DEF_LOG_QUEUE_SIZE);
+            String policy = m_prop_mgr.get_property(PropertyManager.LOG_POLICY_PROP);
+            if (policy == null) {
+                policy = PropertyManager.BLOCK_LOG_POLICY;
+                m_prop_mgr.set_property(PropertyManager.LOG_POLICY_PROP, policy);
+            }
+            final boolean is_block = !PropertyManager.DROP_LOG_POLICY.equalsIgnoreCase(policy.trim());
+            AsyncFileHandler fh = new AsyncFileHandler(full_file_name, queue_size, is_block);
             Logger global_logger = Logger.getLogger("");
             LogManager.getLogManager().reset();
             Handler[] handlers = global_logger.getHandlers();
@@ -305,8 +335,6 @@ public class FXMLController implements Initializable {
                 handler.close();
                 global_logger.removeHandler(handler);
             }
-            SimpleFormatter fmt = new SimpleFormatter();
-            fh.setFormatter(fmt);
             global_logger.addHandler(fh);
         } catch (IOException ex) {
             m_log.err("Could not open log file: " + full_file_name);
@@ -328,23 +356,6 @@ public class FXMLController implements Initializable {
         });
     }
 
-    /**
-     * Allows to compute the individual size (as an eucledian norm of text size
-     * vector)
-     *
-     * @param ind_str the list of individual's functions per dof represented as
-     * text
-     * @return the individual size
-     */
-    private double compute_ind_size(List<String> ind_str) {
-        double sum = 0.0;
-        for (String str : ind_str) {
-            final int size = str.length();
-            sum += size * size;
-        }
-        return Math.sqrt(sum);
-    }
-
     /**
      * Allows to get the smallest individual text from the list of individuals.
      *
@@ -353,9 +364,7 @@ public class FXMLController implements Initializable {
      * @throws IllegalStateException in case the list of individuals is empty
      */
     private Pair<Individual, List<String>> get_best_fit_ind() throws IllegalStateException {
-        Individual min_ind = null;
-        List<String> min_ind_str = null;
-        double min_ind_str_size = Double.MAX_VALUE;
+        final Pair<Individual, List<String>> min_ind;
         update_main_progress(-1.0);
 
         m_log.info("Started selecting the best fit individual");
@@ -385,10 +394,14 @@ public class FXMLController implements Initializable {
             //Optimize the individuals in a parallel way
             if (m_is_opt_on_save_cbx.isSelected()) {
                 m_log.info("Started optimizing individuals' size");
+                final Object event = FlightEvents.begin_stage();
+                final long start_ns = System.nanoTime();
                 inds.stream().parallel().forEach((ind) -> {
                     ind.optimize();
                     updater.update();
                 });
+                Metrics.INSTANCE.record_since(Metrics.OPTIMIZE, start_ns);
+                FlightEvents.end_stage(event, FlightEvents.SAVE_OPTIMIZE);
                 m_log.info("Finished optimizing individuals' size");
             }
 
@@ -397,24 +410,14 @@ public class FXMLController implements Initializable {
 
             //Compute the individual's minimum sequentially
             m_log.info("Started choosing the smallest individual.");
-            for (int ind_idx = 0; ind_idx < inds.size(); ++ind_idx) {
-                //Get the individual
-                final Individual ind = inds.get(ind_idx);
-                //Get minimum individual size
-                final List<String> ind_str = ind.get_expr_text();
-                final double ind_str_size = compute_ind_size(ind_str);
-                //Choose the shortest representation
-                if ((min_ind_str == null) || (min_ind_str_size > ind_str_size)) {
-                    min_ind_str = ind_str;
-                    min_ind = ind;
-                    min_ind_str_size = ind_str_size;
-                }
-            }
+            final Object event = FlightEvents.begin_stage();
+            min_ind = SymbolicController.get_smallest(inds);
+            FlightEvents.end_stage(event, FlightEvents.SAVE_CHOOSE);
             m_log.info("Finished choosing the smallest individual.");
         }
 
         m_log.info("Finished selecting the best fit individual.");
-        return new Pair<>(min_ind, min_ind_str);
+        return min_ind;
     }
 
     /**
@@ -459,23 +462,7 @@ public class FXMLController implements Initializable {
             final String ctrl_file_name, final List<String> ind_str,
             final Fitness ftn) throws IOException {
         m_log.info("Started saving symbolic controller: " + ctrl_file_name);
-        //Save the symbolic controllers into a text file
-        Path file_path = Paths.get(ctrl_file_name);
-        try (final BufferedWriter writer = Files.newBufferedWriter(file_path)) {
-            //Dump the total fitness
-            NumberFormat formatter = new DecimalFormat("#00.00");
-            final double val = ftn.get_fitness() * 100;
-            writer.write("Controller's fitness: " + formatter.format(val) + "%\n");
-
-            //Dump the control functions per dof
-            for (int idx = 0; idx < ind_str.size(); ++idx) {
-                final String dof_funct = ind_str.get(idx);
-                LOGGER.log(Level.FINE, "The shortest one is {0}", dof_funct);
-                writer.write("Dof #" + idx + ": " + dof_funct + "\n");
-                LOGGER.log(Level.FINE, "The individual is stored");
-                writer.flush();
-            }
-        }
+        SymbolicController.store(ctrl_file_name, ind_str, ftn);
         m_log.info("Finished saving symbolic controller: " + ctrl_file_name);
     }
 
@@ -500,12 +487,24 @@ public class FXMLController implements Initializable {
 
                     //Store the unsafe points as a BDD.
                     m_log.info("Started storing controller's unfit points into: " + bad_file_name);
-                    final ScotsFacade facade = (ScotsFacade) FitnessManager.inst();
-                    final Fitness fitness = facade.store_unfit_points(bad_file_name, ind_data.m_first);
+                    Object event = FlightEvents.begin_stage();
+                    final long start_ns = System.nanoTime();
+                    final Fitness fitness = m_backend.store_unfit_points(
+                            bad_file_name, ind_data.m_first, (done_cnt, total_cnt) -> {
+                                update_main_progress((total_cnt > 0)
+                                        ? ((double) done_cnt) / ((double) total_cnt) : -1.0);
+                            });
+                    Metrics.INSTANCE.record_since(Metrics.STORE_UNFIT, start_ns);
+                    FlightEvents.end_stage(event, FlightEvents.SAVE_UNFIT);
+                    update_main_progress(-1.0);
                     m_log.info("Finished storing controller's unfit points into: " + bad_file_name);
+                    log_cache_stats();
 
                     //Store the symbolic controllers into files
+                    event = FlightEvents.begin_stage();
                     store_symbolic_controllers(ctrl_file_name, ind_data.m_second, fitness);
+                    FlightEvents.end_stage(event, FlightEvents.SAVE_SYMBOLIC);
+                    Metrics.INSTANCE.log_summary("save");
 
                     //Show the end info and enable the buttons
                     Platform.runLater(new Runnable() {
@@ -548,7 +547,10 @@ public class FXMLController implements Initializable {
                     m_log.info("Started loading controller: " + full_file_name);
                     final String file_name = full_file_name.replaceFirst("[.][^.]+$", "");
                     start_logging(file_name);
-                    m_num_dofs = ScotsFacade.INSTANCE.load(file_name);
+                    Metrics.INSTANCE.reset();
+                    final long start_ns = System.nanoTime();
+                    m_num_dofs = m_backend.load(file_name);
+                    Metrics.INSTANCE.record_since(Metrics.LOAD, start_ns);
                     m_log.info("Finished loading controller: " + full_file_name);
                     Platform.runLater(new Runnable() {
                         @Override
@@ -695,11 +697,15 @@ public class FXMLController implements Initializable {
 
                 //Request the manager to stop
                 m_log.info("Started stopping the process manager.");
+                Object event = FlightEvents.begin_stage();
                 m_manager.stop(is_wait ? TERM_TIME_OUT_SEC : 1, this);
+                FlightEvents.end_stage(event, FlightEvents.STOP_REQUEST);
                 m_log.info("Finished stopping the process manager.");
+                log_cache_stats();
 
                 //Loop while stopping
                 LOGGER.info("Start waiting for the process manager to stop!");
+                event = FlightEvents.begin_stage();
                 synchronized (this) {
                     while (m_manager.is_stopping()) {
                         try {
@@ -711,7 +717,10 @@ public class FXMLController implements Initializable {
                         }
                     }
                 }
+                FlightEvents.end_stage(event, FlightEvents.STOP_WAIT);
                 LOGGER.info("Finished waiting for the process manager to stop!");
+                stop_checkpointing();
+                finish_breeding();
 
                 Platform.runLater(() -> {
                     //Enable the controls
@@ -731,6 +740,8 @@ public class FXMLController implements Initializable {
             });
         } else {
             LOGGER.info("The process manager is not active, no needed to stop!");
+            stop_checkpointing();
+            finish_breeding();
             //Enable the controls
             enable_ctrls_run(false, true);
         }
@@ -756,6 +767,136 @@ public class FXMLController implements Initializable {
         stop_regression(true);
     }
 
+    /**
+     * Allows to get a numeric property value, if it is not set or invalid
+     * then the default value is set and returned.
+     *
+     * @param key the property name
+     * @param def_val the default value
+     * @return the property value
+     */
+    private long get_num_property(final String key, final long def_val) {
+        final String value = m_prop_mgr.get_property(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException ex) {
+                m_log.warn("Invalid '" + key + "' value: " + value
+                        + ", using: " + def_val);
+            }
+        }
+        m_prop_mgr.set_property(key, Long.toString(def_val));
+        return def_val;
+    }
+
+    /**
+     * Allows to get the boolean property value, if the value is not set then
+     * the default value is set and returned.
+     *
+     * @param key the property name
+     * @param def_val the default value
+     * @return the property value
+     */
+    private boolean get_bool_property(final String key, final boolean def_val) {
+        final String value = m_prop_mgr.get_property(key);
+        if (value != null) {
+            return Boolean.parseBoolean(value.trim());
+        } else {
+            m_prop_mgr.set_property(key, def_val);
+            return def_val;
+        }
+    }
+
+    /**
+     * Starts the metrics endpoint, if its port is set
+     */
+    private void start_metrics() {
+        final int port = (int) get_num_property(
+                PropertyManager.METRICS_PORT_PROP, PropertyManager.DEF_METRICS_PORT);
+        String host = m_prop_mgr.get_property(PropertyManager.METRICS_HOST_PROP);
+        if (host == null) {
+            host = PropertyManager.DEF_METRICS_HOST;
+            m_prop_mgr.set_property(PropertyManager.METRICS_HOST_PROP, host);
+        }
+        if (port > 0) {
+            try {
+                m_metrics = new MetricsServer(host.trim(), port);
+                m_metrics.start();
+                m_log.info("Serving metrics on http://" + host.trim() + ":"
+                        + port + MetricsServer.PATH);
+            } catch (IOException ex) {
+                m_log.err("Could not start the metrics endpoint on "
+                        + host + ":" + port + ", error: " + ex.getMessage());
+                LOGGER.log(Level.WARNING, "Could not start the metrics endpoint", ex);
+            }
+        }
+    }
+
+    /**
+     * Stops the population snapshot checkpointer, if any, and stores the last
+     * population snapshot
+     */
+    private void stop_checkpointing() {
+        final Checkpointer checkpointer = m_checkpointer;
+        m_checkpointer = null;
+        if (checkpointer != null) {
+            final Object event = FlightEvents.begin_stage();
+            checkpointer.stop();
+            FlightEvents.end_stage(event, FlightEvents.STOP_CHECKPOINT);
+            m_log.info("Stored the population snapshot.");
+        }
+    }
+
+    /**
+     * Records the breeding phase duration and logs the metrics summary, if
+     * breeding has been started and is not yet finished
+     */
+    private void finish_breeding() {
+        final long start_ns = m_breed_start_ns.getAndSet(0L);
+        if (start_ns != 0L) {
+            Metrics.INSTANCE.record_since(Metrics.BREEDING, start_ns);
+            Metrics.INSTANCE.log_summary("stop");
+        }
+    }
+
+    /**
+     * Configures the fitness cache, must be done before configuring the
+     * backend so that the cache is bound to the new configuration
+     */
+    private void set_up_caching() {
+        final int cache_size = (int) get_num_property(
+                PropertyManager.CACHE_SIZE_PROP, PropertyManager.DEF_CACHE_SIZE);
+        m_backend.set_caching(cache_size);
+    }
+
+    /**
+     * Allows to log the fitness cache statistics, if caching is enabled
+     */
+    private void log_cache_stats() {
+        final String stats = m_backend.get_cache_stats();
+        if (stats != null) {
+            m_log.info("Fitness cache " + stats);
+            LOGGER.log(Level.INFO, "Fitness cache {0}", stats);
+        }
+    }
+
+    /**
+     * Configures coalescing of the fitness requests into batches
+     */
+    private void set_up_batching() {
+        final int batch_size = (int) get_num_property(
+                PropertyManager.BATCH_SIZE_PROP, PropertyManager.DEF_BATCH_SIZE);
+        final long batch_linger = get_num_property(
+                PropertyManager.BATCH_LINGER_PROP, PropertyManager.DEF_BATCH_LINGER_US);
+        if (m_backend.set_batching(batch_size, batch_linger)) {
+            m_log.info("Fitness batching is on, max size: " + batch_size
+                    + ", max linger: " + batch_linger + " us");
+        } else if (batch_size > 1) {
+            m_log.warn("Fitness batching is off, the fitness back-end "
+                    + "has no batch evaluation");
+        }
+    }
+
     /**
      * Configures system parameters
      *
@@ -775,7 +916,7 @@ public class FXMLController implements Initializable {
             try {
                 //Get the parameter values
                 final int num_ss_dofs = Integer.parseInt(value.toString());
-                final int fitness_type = ((FitnessType) m_fit_cmb.getValue()).get_uid();
+                final FitnessType fitness_type = (FitnessType) m_fit_cmb.getValue();
                 final double attr_size = Double.parseDouble(m_attract_txt.getText());
                 final double ftn_scale = Double.parseDouble(m_ftn_scale_txt.getText());
                 final boolean is_scale = m_is_scale_cbx.isSelected();
@@ -788,15 +929,19 @@ public class FXMLController implements Initializable {
                 final long min_bisect_size = Long.parseLong(m_min_bis_size_txt.getText());
                 final double sample_bisect_ratio = m_rss_bis_ratio_sld.getValue();
 
-                //Talk to Scots via interface
-                m_log.info("Started configuring the SCOTS2DLL backend.");
-                final FConfig f_cfg = new FConfig(num_ss_dofs, fitness_type,
+                //Talk to the fitness backend
+                m_log.info("Started configuring the fitness backend.");
+                set_up_caching();
+                final BackendConfig f_cfg = new BackendConfig(num_ss_dofs, fitness_type,
                         attr_size, ftn_scale, is_scale, is_extend, is_complex,
                         is_monte_carlo, is_rec_strat_sample,
                         sample_size, re_sample_attempts,
                         min_bisect_size, sample_bisect_ratio);
-                ScotsFacade.INSTANCE.configure(f_cfg);
-                m_log.info("Finished configuring the SCOTS2DLL backend.");
+                final long cfg_start_ns = System.nanoTime();
+                m_backend.configure(f_cfg);
+                Metrics.INSTANCE.record_since(Metrics.CONFIGURE, cfg_start_ns);
+                set_up_batching();
+                m_log.info("Finished configuring the fitness backend.");
 
                 //Set the grammar
                 m_log.info("Started creating the new grammar.");
@@ -808,7 +953,9 @@ public class FXMLController implements Initializable {
                         m_is_prop_pn_cbx.isSelected(),
                         Integer.parseInt(m_max_gd_txt.getText()),
                         m_tm_vs_tnm_sld.getValue());
+                final long gr_start_ns = System.nanoTime();
                 grammar = Grammar.create_grammar(g_cfg);
+                Metrics.INSTANCE.record_since(Metrics.CREATE_GRAMMAR, gr_start_ns);
                 m_log.info("Finished creating the new grammar.");
             } finally {
                 m_prog_ind.setVisible(false);
@@ -848,17 +995,29 @@ public class FXMLController implements Initializable {
         final boolean is_avoid_equal = m_is_avoid_equal_cbx.isSelected();
         final int min_ch_cnt = Integer.parseInt(m_min_ch_cnt_txt.getText());
         final int max_ch_cnt = Integer.parseInt(m_max_ch_cnt_txt.getText());
+        final String file_name = m_ctrl_name_txt.getText().replaceFirst("[.][^.]+$", "");
+        final long checkpoint_period = get_num_property(
+                PropertyManager.CHECKPOINT_PERIOD_PROP, PropertyManager.DEF_CHECKPOINT_PERIOD_SEC);
+        final int num_islands = (int) Math.max(1, get_num_property(
+                PropertyManager.NUM_ISLANDS_PROP, PropertyManager.DEF_NUM_ISLANDS));
+        final long migration_period = get_num_property(
+                PropertyManager.MIGRATION_PERIOD_PROP, PropertyManager.DEF_MIGRATION_PERIOD_SEC);
+        final int num_migrants = (int) get_num_property(
+                PropertyManager.NUM_MIGRANTS_PROP, PropertyManager.DEF_NUM_MIGRANTS);
 
         //Prepare grammars
         m_log.info("Started preparing grammar for symbolic regression.");
         Grammar.clear_grammars();
-        final int mgr_id = 0;
-        IntStream.range(0, (m_num_dofs - num_ss_dofs)).forEachOrdered(dof_idx -> {
-            //Register the grammar for the given manager, the dof index 
-            //is always 0 as there is on input signal dimension per manager
-            Grammar.register_grammar(mgr_id, dof_idx, grammar);
+        IntStream.range(0, num_islands).forEachOrdered(mgr_id -> {
+            IntStream.range(0, (m_num_dofs - num_ss_dofs)).forEachOrdered(dof_idx -> {
+                //Register the grammar for the given manager, the dof index 
+                //is always 0 as there is on input signal dimension per manager
+                Grammar.register_grammar(mgr_id, dof_idx, grammar);
+            });
         });
+        final long start_ns = System.nanoTime();
         Grammar.prepare_grammars();
+        Metrics.INSTANCE.record_since(Metrics.PREPARE_GRAMMARS, start_ns);
         m_log.info("Finished preparing grammar for symbolic regression.");
 
         //Constructe the interface elements
@@ -870,7 +1029,7 @@ public class FXMLController implements Initializable {
 
                 //Instantiaet the visualizer
                 final PMVisualizer visualizer = new PMVisualizer(
-                        is_extend, size_x, size_y, m_prog_ind,
+                        is_extend, size_x, size_y, num_islands, m_prog_ind,
                         m_act_grid_pane, m_comp_grid_pane,
                         m_ex_ftn_pane, m_req_ftn_pane) {
                     @Override
@@ -887,24 +1046,39 @@ public class FXMLController implements Initializable {
                     }
                 };
 
-                m_log.info("Instantiating Process Manager for " + num_is_dofs + " dofs.");
-
-                //Instantiate the process manager config
-                final ProcessManagerConfig config = new ProcessManagerConfig(
-                        0, init_pop_mult, num_workers, max_mutations,
-                        num_is_dofs, size_x, size_y, ch_sp_x, ch_sp_y, sel_type,
-                        is_child_limit, is_avoid_equal, min_ch_cnt, max_ch_cnt,
-                        visualizer, (mgr) -> {
-                            //Stop the process manager
-                            stop_regression(true);
+                m_log.info("Instantiating " + num_islands + " Process Manager(s) for "
+                        + num_is_dofs + " dofs.");
+
+                //Instantiate the process managers, one per island, stop
+                //once all of them are done
+                final AtomicInteger num_running = new AtomicInteger(num_islands);
+                m_manager = new IslandModel(visualizer, num_islands,
+                        (mgr_id, observer) -> {
+                            //Instantiate the process manager config
+                            final ProcessManagerConfig config = new ProcessManagerConfig(
+                                    mgr_id, init_pop_mult, num_workers, max_mutations,
+                                    num_is_dofs, size_x, size_y, ch_sp_x, ch_sp_y, sel_type,
+                                    is_child_limit, is_avoid_equal, min_ch_cnt, max_ch_cnt,
+                                    observer, (mgr) -> {
+                                        //Stop the process managers
+                                        if (num_running.decrementAndGet() == 0) {
+                                            stop_regression(true);
+                                        }
+                                    });
+                            return new ProcessManager(config);
                         });
 
-                //Instantiate the process manager
-                m_manager = new ProcessManager(config);
-
-                //Start the process manager
-                m_manager.start();
+                //Start the process managers
+                m_breed_start_ns.set(System.nanoTime());
+                m_manager.start(migration_period, num_migrants);
                 m_log.info("The symbolic regression is started.");
+
+                //Start storing the population snapshots
+                if (checkpoint_period > 0) {
+                    m_checkpointer = new Checkpointer(visualizer, num_islands * size_x, size_y,
+                            num_is_dofs, PopulationSnapshot.get_file_name(file_name));
+                    m_checkpointer.start(checkpoint_period);
+                }
             }
         });
     }
@@ -1101,7 +1275,7 @@ public class FXMLController implements Initializable {
         if (!act_ss.isEmpty() && (value != null)) {
             try {
                 final int ss_dim = Integer.parseInt(value.toString());
-                final int ss_size = ScotsFacade.INSTANCE.get_state_space_size(ss_dim);
+                final int ss_size = m_backend.get_state_space_size(ss_dim);
                 final int act_val = Integer.parseInt(act_ss);
                 final double percent = ((double) act_val) / ((double) ss_size) * 100.0;
                 NumberFormat formatter = new DecimalFormat("#00.0000000");
@@ -1177,9 +1351,37 @@ public class FXMLController implements Initializable {
         //Load properties, do this after all default initializations
         load_properties();
 
+        start_metrics();
+
         m_log.info("Finished setting up UI components.");
     }
 
+    /**
+     * Allows to choose the fitness backend based on the properties
+     *
+     * @return true if the native backend is used, otherwise false
+     */
+    private boolean set_up_backend() {
+        String backend = m_prop_mgr.get_property(PropertyManager.BACKEND_PROP);
+        if (backend == null) {
+            backend = PropertyManager.NATIVE_BACKEND;
+            m_prop_mgr.set_property(PropertyManager.BACKEND_PROP, backend);
+        }
+        if (PropertyManager.EXPLICIT_BACKEND.equalsIgnoreCase(backend.trim())) {
+            m_log.info("Using the pure Java explicit controller fitness backend");
+            m_backend = ExplicitBackend.INSTANCE;
+            FitnessManager.set_inst(ExplicitBackend.INSTANCE);
+            return false;
+        } else {
+            if (!PropertyManager.NATIVE_BACKEND.equalsIgnoreCase(backend.trim())) {
+                m_log.warn("Unknown '" + PropertyManager.BACKEND_PROP
+                        + "' value: " + backend + ", using: " + PropertyManager.NATIVE_BACKEND);
+            }
+            m_backend = ScotsFacade.INSTANCE;
+            return true;
+        }
+    }
+
     /**
      * Allows to perform the initial checks.
      */
@@ -1199,6 +1401,11 @@ public class FXMLController implements Initializable {
 
             @Override
             public void run() {
+                //Check if the pure Java backend is to be used
+                if (!set_up_backend()) {
+                    return;
+                }
+
                 //Check if the native library is defined
                 String lib_file_name = m_prop_mgr.get_property(PropertyManager.LIB_FILE_NAME_PROP);
                 if (lib_file_name == null) {
@@ -0,0 +1,678 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import nl.tudelft.dcsc.scots2sr.backend.BackendConfig;
+import nl.tudelft.dcsc.scots2sr.backend.ExplicitBackend;
+import nl.tudelft.dcsc.scots2sr.backend.FitnessBackend;
+import nl.tudelft.dcsc.scots2sr.dist.NodeClient;
+import nl.tudelft.dcsc.scots2sr.jni.ScotsFacade;
+import nl.tudelft.dcsc.scots2sr.metrics.FlightEvents;
+import nl.tudelft.dcsc.scots2sr.metrics.Metrics;
+import nl.tudelft.dcsc.scots2sr.metrics.MetricsServer;
+import nl.tudelft.dcsc.scots2sr.sr.Checkpointer;
+import nl.tudelft.dcsc.scots2sr.sr.IslandModel;
+import nl.tudelft.dcsc.scots2sr.sr.HeadlessTracker;
+import nl.tudelft.dcsc.scots2sr.sr.PopulationSnapshot;
+import nl.tudelft.dcsc.scots2sr.sr.SymbolicController;
+import nl.tudelft.dcsc.scots2sr.utils.Pair;
+import nl.tudelft.dcsc.sr2jlib.ProcessManager;
+import nl.tudelft.dcsc.sr2jlib.ProcessManagerConfig;
+import nl.tudelft.dcsc.sr2jlib.SelectionType;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessManager;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessType;
+import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
+import nl.tudelft.dcsc.sr2jlib.grammar.GrammarConfig;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The headless symbolic regression runner, does not use JavaFX. Reads the
+ * parameters from a properties file with the same keys as the UI's
+ * config.properties, loads the controller, runs the symbolic regression until
+ * it is done, the 100% fit individual is found (if requested) or the time
+ * limit is reached, and exports the symbolic controller and its unfit points.
+ *
+ * Usage: HeadlessRunner &lt;config.properties&gt; &lt;controller.scs&gt;
+ * &lt;num_ss_dofs&gt; [&lt;time_limit_sec&gt;]
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class HeadlessRunner {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(HeadlessRunner.class.getName());
+
+    //The termination time out in seconds
+    private static final long TERM_TIME_OUT_SEC = 60;
+    //The fitness statistics logging period in seconds
+    private static final long LOG_PERIOD_SEC = 10;
+
+    //The fitness types in the order of the UI fitness combo box
+    private static final FitnessType[] FITNESS_TYPES = new FitnessType[]{
+        FitnessType.EXACT, FitnessType.ATANG, FitnessType.INVER};
+
+    //The UI control property names, see FXMLController.load_properties
+    private static final String MAX_POP_SIZE_PROP = "m_max_pop_size_txt";
+    private static final String MAX_MUT_PROP = "m_max_mut_txt";
+    private static final String MAX_TREE_SIZE_PROP = "m_max_tree_size_txt";
+    private static final String WORKERS_DOF_PROP = "m_workers_dof_txt";
+    private static final String FTN_SCALE_PROP = "m_ftn_scale_txt";
+    private static final String CH_SP_X_PROP = "m_ch_sp_x_txt";
+    private static final String CH_SP_Y_PROP = "m_ch_sp_y_txt";
+    private static final String CH_VS_REP_PROP = "m_ch_vs_rep_sld";
+    private static final String TM_VS_TNM_PROP = "m_tm_vs_tnm_sld";
+    private static final String INIT_POP_PROP = "m_init_pop_sld";
+    private static final String GRAMMAR_PROP = "m_grammar_txt";
+    private static final String MIN_NGF_PROP = "m_min_ngf_txt";
+    private static final String MAX_NGF_PROP = "m_max_ngf_txt";
+    private static final String ATTRACT_PROP = "m_attract_txt";
+    private static final String TOUR_PROP = "m_tour_cmb";
+    private static final String FIT_PROP = "m_fit_cmb";
+    private static final String IS_STOP_PROP = "m_is_stop_cbx";
+    private static final String IS_ITER_PROP = "m_is_iter_cbx";
+    private static final String IS_PROP_PN_PROP = "m_is_prop_pn_cbx";
+    private static final String IS_SCALE_PROP = "m_is_scale_cbx";
+    private static final String IS_EXTEND_PROP = "m_is_extend_cbx";
+    private static final String IS_COMPL_PROP = "m_is_compl_cbx";
+    private static final String IS_CHILD_LIM_PROP = "m_is_child_lim_cbx";
+    private static final String IS_AVOID_EQUAL_PROP = "m_is_avoid_equal_cbx";
+    private static final String IS_OPT_ON_SAVE_PROP = "m_is_opt_on_save_cbx";
+    private static final String MIN_CH_CNT_PROP = "m_min_ch_cnt_txt";
+    private static final String MAX_CH_CNT_PROP = "m_max_ch_cnt_txt";
+    private static final String MAX_GD_PROP = "m_max_gd_txt";
+    private static final String MC_FITNESS_PROP = "m_mc_fitness_cbx";
+    private static final String RSS_FTN_PROP = "m_rss_ftn_cbx";
+    private static final String ACT_SAM_SIZE_PROP = "m_act_sam_size_txt";
+    private static final String RE_SAMPLE_ATTEMPTS_PROP = "m_re_sample_attempts_txt";
+    private static final String MIN_BIS_SIZE_PROP = "m_min_bis_size_txt";
+    private static final String RSS_BIS_RATIO_PROP = "m_rss_bis_ratio_sld";
+
+    //Stores the defaults of the optional properties, as in the interface
+    private static final boolean DEF_IS_EXTEND = true;
+    private static final long DEF_RE_SAMPLE_ATTEMPTS = 3;
+
+    //Stores the run summary keys
+    static final String SUMMARY_ELAPSED_MS = "elapsed_ms";
+    static final String SUMMARY_BEST_FTN = "best_fitness";
+    static final String SUMMARY_EXPORT_FTN = "export_fitness";
+    static final String SUMMARY_TARGET_MS_PREF = "target_ms.";
+
+    //Stores the properties
+    private final Properties m_props;
+    //Stores the fitness backend
+    private FitnessBackend m_backend;
+    //Stores the process managers, one per island
+    private IslandModel m_manager;
+    //Stores the coordinator connection of a distributed run, or null
+    private NodeClient m_client;
+    //Stores the fitness tracker
+    private HeadlessTracker m_tracker;
+    //Stores the breeding start time as given by System.nanoTime()
+    private long m_breed_start_ns;
+
+    /**
+     * The basic constructor
+     *
+     * @param props the run properties
+     */
+    public HeadlessRunner(final Properties props) {
+        m_props = props;
+        m_backend = null;
+        m_manager = null;
+        m_client = null;
+        m_tracker = null;
+        m_breed_start_ns = 0L;
+    }
+
+    /**
+     * Allows to get the required property value
+     *
+     * @param key the property name
+     * @return the trimmed property value
+     * @throws IllegalArgumentException if the property is not set
+     */
+    private String get_str(final String key) throws IllegalArgumentException {
+        final String value = m_props.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("The property '" + key + "' is not set!");
+        }
+        return value.trim();
+    }
+
+    /**
+     * Allows to get the required int property value
+     *
+     * @param key the property name
+     * @return the property value
+     */
+    private int get_int(final String key) {
+        return Integer.parseInt(get_str(key));
+    }
+
+    /**
+     * Allows to get the required long property value
+     *
+     * @param key the property name
+     * @return the property value
+     */
+    private long get_long(final String key) {
+        return Long.parseLong(get_str(key));
+    }
+
+    /**
+     * Allows to get the required double property value
+     *
+     * @param key the property name
+     * @return the property value
+     */
+    private double get_double(final String key) {
+        return Double.parseDouble(get_str(key));
+    }
+
+    /**
+     * Allows to get the required boolean property value
+     *
+     * @param key the property name
+     * @return the property value
+     */
+    private boolean get_bool(final String key) {
+        return Boolean.parseBoolean(get_str(key));
+    }
+
+    /**
+     * Allows to get an optional boolean property value
+     *
+     * @param key the property name
+     * @param def_val the default value
+     * @return the property value or the default one if not set
+     */
+    private boolean get_bool(final String key, final boolean def_val) {
+        final String value = m_props.getProperty(key);
+        return (value == null) ? def_val : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Allows to get an optional numeric property value
+     *
+     * @param key the property name
+     * @param def_val the default value
+     * @return the property value or the default one if not set
+     */
+    private long get_num(final String key, final long def_val) {
+        final String value = m_props.getProperty(key);
+        return (value == null) ? def_val : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Allows to get the timed actual fitness targets
+     *
+     * @return the comma separated fitness targets, empty if none
+     */
+    private double[] get_fitness_targets() {
+        final String[] values = m_props.getProperty(
+                PropertyManager.FITNESS_TARGETS_PROP, "").split(",");
+        return Arrays.stream(values).map(String::trim).filter((value) -> {
+            return !value.isEmpty();
+        }).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    /**
+     * Allows to get the number of islands
+     *
+     * @return the number of islands, at least one
+     */
+    private int get_num_islands() {
+        return (int) Math.max(1, get_num(PropertyManager.NUM_ISLANDS_PROP,
+                PropertyManager.DEF_NUM_ISLANDS));
+    }
+
+    /**
+     * Starts the metrics endpoint, if its port is set. The endpoint is served
+     * until the process exits.
+     */
+    private void start_metrics() {
+        final int port = (int) get_num(PropertyManager.METRICS_PORT_PROP,
+                PropertyManager.DEF_METRICS_PORT);
+        if (port > 0) {
+            final String host = m_props.getProperty(PropertyManager.METRICS_HOST_PROP,
+                    PropertyManager.DEF_METRICS_HOST).trim();
+            try {
+                new MetricsServer(host, port).start();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Could not start the metrics endpoint on "
+                        + host + ":" + port, ex);
+            }
+        }
+    }
+
+    /**
+     * Chooses and sets up the fitness backend
+     *
+     * @throws IllegalStateException if the native library could not be loaded
+     */
+    private void set_up_backend() throws IllegalStateException {
+        final String backend = m_props.getProperty(
+                PropertyManager.BACKEND_PROP, PropertyManager.NATIVE_BACKEND).trim();
+        if (PropertyManager.EXPLICIT_BACKEND.equalsIgnoreCase(backend)) {
+            LOGGER.info("Using the pure Java explicit controller fitness backend");
+            m_backend = ExplicitBackend.INSTANCE;
+            FitnessManager.set_inst(ExplicitBackend.INSTANCE);
+        } else {
+            final String lib_file_name = get_str(PropertyManager.LIB_FILE_NAME_PROP);
+            LOGGER.log(Level.INFO, "Loading the SCOTS2DLL dynamic library from: {0}",
+                    lib_file_name);
+            if (ScotsFacade.INSTANCE.load_library(lib_file_name)) {
+                throw new IllegalStateException("Faled loading the JNI dynamic library: "
+                        + lib_file_name);
+            }
+            m_backend = ScotsFacade.INSTANCE;
+        }
+    }
+
+    /**
+     * Loads and configures the controller and creates the grammar
+     *
+     * @param file_name the controller file name without extension
+     * @param num_ss_dofs the number of state-space dimensions
+     * @return the number of input-space dimensions
+     */
+    private int configure(final String file_name, final int num_ss_dofs)
+            throws FileNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        LOGGER.log(Level.INFO, "Started loading controller: {0}", file_name);
+        long start_ns = System.nanoTime();
+        final int num_dofs = m_backend.load(file_name);
+        Metrics.INSTANCE.record_since(Metrics.LOAD, start_ns);
+        LOGGER.log(Level.INFO, "Finished loading controller, dimensions: {0}", num_dofs);
+        if ((num_ss_dofs <= 0) || (num_ss_dofs >= num_dofs)) {
+            throw new IllegalArgumentException("Invalid number of state-space "
+                    + "dimensions: " + num_ss_dofs + ", must be in [1,"
+                    + (num_dofs - 1) + "]");
+        }
+
+        //Configure the backend
+        m_backend.set_caching((int) get_num(PropertyManager.CACHE_SIZE_PROP,
+                PropertyManager.DEF_CACHE_SIZE));
+        final FitnessType ftn_type = FITNESS_TYPES[get_int(FIT_PROP)];
+        final BackendConfig cfg = new BackendConfig(num_ss_dofs, ftn_type,
+                get_double(ATTRACT_PROP), get_double(FTN_SCALE_PROP),
+                get_bool(IS_SCALE_PROP), get_bool(IS_EXTEND_PROP, DEF_IS_EXTEND),
+                get_bool(IS_COMPL_PROP), get_bool(MC_FITNESS_PROP),
+                get_bool(RSS_FTN_PROP), get_long(ACT_SAM_SIZE_PROP),
+                (int) get_num(RE_SAMPLE_ATTEMPTS_PROP, DEF_RE_SAMPLE_ATTEMPTS),
+                get_long(MIN_BIS_SIZE_PROP),
+                get_double(RSS_BIS_RATIO_PROP));
+        LOGGER.log(Level.INFO, "Configuring the fitness backend: {0}", cfg);
+        start_ns = System.nanoTime();
+        m_backend.configure(cfg);
+        Metrics.INSTANCE.record_since(Metrics.CONFIGURE, start_ns);
+        final int batch_size = (int) get_num(PropertyManager.BATCH_SIZE_PROP,
+                PropertyManager.DEF_BATCH_SIZE);
+        final long batch_linger = get_num(PropertyManager.BATCH_LINGER_PROP,
+                PropertyManager.DEF_BATCH_LINGER_US);
+        if (m_backend.set_batching(batch_size, batch_linger)) {
+            LOGGER.log(Level.INFO, "Fitness batching is on, max size: {0}, "
+                    + "max linger: {1} us", new Object[]{batch_size, batch_linger});
+        } else {
+            LOGGER.log(Level.INFO, "Fitness batching is off");
+        }
+
+        //Create and register the grammars, one per input dof
+        final GrammarConfig g_cfg = new GrammarConfig(m_props.getProperty(GRAMMAR_PROP, ""),
+                get_int(MAX_TREE_SIZE_PROP), get_double(CH_VS_REP_PROP),
+                num_ss_dofs, get_double(MIN_NGF_PROP), get_double(MAX_NGF_PROP),
+                get_bool(IS_PROP_PN_PROP), get_int(MAX_GD_PROP),
+                get_double(TM_VS_TNM_PROP));
+        start_ns = System.nanoTime();
+        final Grammar grammar = Grammar.create_grammar(g_cfg);
+        Metrics.INSTANCE.record_since(Metrics.CREATE_GRAMMAR, start_ns);
+        final int num_is_dofs = num_dofs - num_ss_dofs;
+        Grammar.clear_grammars();
+        IntStream.range(0, get_num_islands()).forEachOrdered(mgr_id -> {
+            IntStream.range(0, num_is_dofs).forEachOrdered(dof_idx -> {
+                Grammar.register_grammar(mgr_id, dof_idx, grammar);
+            });
+        });
+        start_ns = System.nanoTime();
+        Grammar.prepare_grammars();
+        Metrics.INSTANCE.record_since(Metrics.PREPARE_GRAMMARS, start_ns);
+        return num_is_dofs;
+    }
+
+    /**
+     * Runs the symbolic regression until it is done, the 100% fit individual
+     * is found, if requested, or the time limit is reached. The population may
+     * be periodically stored into the snapshot file, for inspection.
+     *
+     * @param file_name the output file name without extension
+     * @param num_is_dofs the number of input-space dimensions
+     * @param time_limit_sec the time limit in seconds, &le; 0 for none
+     */
+    private void run(final String file_name, final int num_is_dofs,
+            final long time_limit_sec) {
+        final String sizes[] = get_str(MAX_POP_SIZE_PROP).split("\\*");
+        final int size_x = Integer.parseInt(sizes[0].trim());
+        final int size_y = Integer.parseInt(sizes[1].trim());
+        final long max_mutations = get_bool(IS_ITER_PROP)
+                ? Long.MAX_VALUE : get_long(MAX_MUT_PROP);
+        final boolean is_stop_found = get_bool(IS_STOP_PROP);
+        final SelectionType sel_type = get_selection_type(get_int(TOUR_PROP));
+
+        //Count down once all the managers are done or the fit individual is found
+        final CountDownLatch done = new CountDownLatch(1);
+        final int num_islands = get_num_islands();
+        final AtomicInteger num_running = new AtomicInteger(num_islands);
+        final long migration_period = get_num(PropertyManager.MIGRATION_PERIOD_PROP,
+                PropertyManager.DEF_MIGRATION_PERIOD_SEC);
+        final int num_migrants = (int) get_num(PropertyManager.NUM_MIGRANTS_PROP,
+                PropertyManager.DEF_NUM_MIGRANTS);
+        final String address = m_props.getProperty(PropertyManager.COORDINATOR_PROP, "").trim();
+        final HeadlessTracker tracker = new HeadlessTracker(size_x, size_y, num_islands,
+                LOG_PERIOD_SEC, is_stop_found ? (ind) -> {
+                    LOGGER.info("The 100% fit individual is found, stopping as requested!");
+                    done.countDown();
+                } : null);
+        tracker.set_targets(get_fitness_targets());
+        m_tracker = tracker;
+        m_manager = new IslandModel(tracker, num_islands, (mgr_id, observer) -> {
+            final ProcessManagerConfig config = new ProcessManagerConfig(
+                    mgr_id, get_double(INIT_POP_PROP), get_int(WORKERS_DOF_PROP),
+                    max_mutations, num_is_dofs, size_x, size_y,
+                    get_int(CH_SP_X_PROP), get_int(CH_SP_Y_PROP), sel_type,
+                    get_bool(IS_CHILD_LIM_PROP), get_bool(IS_AVOID_EQUAL_PROP),
+                    get_int(MIN_CH_CNT_PROP), get_int(MAX_CH_CNT_PROP),
+                    observer, (mgr) -> {
+                        if (num_running.decrementAndGet() == 0) {
+                            done.countDown();
+                        }
+                    });
+            return new ProcessManager(config);
+        });
+        final String pop_file_name = PopulationSnapshot.get_file_name(file_name);
+        m_breed_start_ns = System.nanoTime();
+        m_manager.start(migration_period, num_migrants);
+        LOGGER.info("The symbolic regression is started.");
+        if (!address.isEmpty()) {
+            try {
+                m_client = new NodeClient(address);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Could not connect to the coordinator "
+                        + address + ", running standalone", ex);
+            }
+        }
+        final long checkpoint_period = get_num(PropertyManager.CHECKPOINT_PERIOD_PROP,
+                PropertyManager.DEF_CHECKPOINT_PERIOD_SEC);
+        final Checkpointer checkpointer = (checkpoint_period > 0)
+                ? new Checkpointer(tracker, num_islands * size_x, size_y, num_is_dofs,
+                        pop_file_name) : null;
+        if (checkpointer != null) {
+            checkpointer.start(checkpoint_period);
+        }
+        try {
+            if (time_limit_sec > 0) {
+                if (!done.await(time_limit_sec, TimeUnit.SECONDS)) {
+                    LOGGER.info("The time limit is reached, stopping.");
+                }
+            } else {
+                done.await();
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.warning("Interrupted while waiting for the regression, stopping.");
+            Thread.currentThread().interrupt();
+        }
+        stop();
+        if (checkpointer != null) {
+            final Object event = FlightEvents.begin_stage();
+            checkpointer.stop();
+            FlightEvents.end_stage(event, FlightEvents.STOP_CHECKPOINT);
+        }
+    }
+
+    /**
+     * Allows to get the selection type by its index
+     *
+     * @param idx the selection type index
+     * @return the selection type
+     */
+    private static SelectionType get_selection_type(final int idx) {
+        for (SelectionType type : SelectionType.values()) {
+            if (type.get_idx() == idx) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Invalid selection type index: " + idx);
+    }
+
+    /**
+     * Stops the process manager and waits until it is stopped
+     */
+    private void stop() {
+        if (m_manager.is_active() && !m_manager.is_stopping()) {
+            LOGGER.info("Started stopping the process manager.");
+            final Object req_event = FlightEvents.begin_stage();
+            m_manager.stop(TERM_TIME_OUT_SEC, this);
+            FlightEvents.end_stage(req_event, FlightEvents.STOP_REQUEST);
+        }
+        final Object event = FlightEvents.begin_stage();
+        synchronized (this) {
+            while (m_manager.is_stopping()) {
+                try {
+                    this.wait(100);
+                } catch (InterruptedException ex) {
+                    LOGGER.warning("Interrupted while waiting for the "
+                            + "Process manager to finish");
+                }
+            }
+        }
+        FlightEvents.end_stage(event, FlightEvents.STOP_WAIT);
+        LOGGER.info("Finished stopping the process manager.");
+        Metrics.INSTANCE.record_since(Metrics.BREEDING, m_breed_start_ns);
+        final String stats = m_backend.get_cache_stats();
+        if (stats != null) {
+            LOGGER.log(Level.INFO, "Fitness cache {0}", stats);
+        }
+        Metrics.INSTANCE.log_summary("stop");
+    }
+
+    /**
+     * Allows to check whether this run is to export the controller. In a
+     * distributed run, the best fit individuals are reported to the
+     * coordinator which chooses the node with the fittest one to export.
+     *
+     * @return true if the controller is to be exported by this run
+     */
+    private boolean is_export() {
+        if (m_client != null) {
+            try {
+                final boolean is_export = m_client.finish(m_manager.get_best_fit_ind());
+                LOGGER.log(Level.INFO, is_export ? "The coordinator chose this node to export"
+                        : "The coordinator chose another node to export");
+                return is_export;
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "The coordinator has failed, exporting locally", ex);
+                return true;
+            }
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Exports the best fit symbolic controller and its unfit points
+     *
+     * @param file_name the output file name without extension
+     * @return the fitness of the exported controller
+     */
+    private Fitness export(final String file_name) throws IOException,
+            IllegalAccessException, InvocationTargetException {
+        final List<Individual> inds = m_manager.get_best_fit_ind();
+        if (inds.isEmpty()) {
+            throw new IllegalStateException("The best individuals list is emty!");
+        }
+        LOGGER.log(Level.INFO, "The number of candidate individuals is: {0}", inds.size());
+        if (get_bool(IS_OPT_ON_SAVE_PROP)) {
+            final Object event = FlightEvents.begin_stage();
+            final long start_ns = System.nanoTime();
+            inds.stream().parallel().forEach((ind) -> {
+                ind.optimize();
+            });
+            Metrics.INSTANCE.record_since(Metrics.OPTIMIZE, start_ns);
+            FlightEvents.end_stage(event, FlightEvents.SAVE_OPTIMIZE);
+        }
+        Object event = FlightEvents.begin_stage();
+        final Pair<Individual, List<String>> ind_data = SymbolicController.get_smallest(inds);
+        FlightEvents.end_stage(event, FlightEvents.SAVE_CHOOSE);
+
+        LOGGER.log(Level.INFO, "Started storing controller's unfit points into: {0}", file_name);
+        event = FlightEvents.begin_stage();
+        final long start_ns = System.nanoTime();
+        final Fitness fitness = m_backend.store_unfit_points(file_name, ind_data.m_first);
+        Metrics.INSTANCE.record_since(Metrics.STORE_UNFIT, start_ns);
+        FlightEvents.end_stage(event, FlightEvents.SAVE_UNFIT);
+        final String sym_file_name = file_name + "." + SymbolicController.SYM_FILE_NAME_EXT;
+        LOGGER.log(Level.INFO, "Started saving symbolic controller: {0}", sym_file_name);
+        event = FlightEvents.begin_stage();
+        SymbolicController.store(sym_file_name, ind_data.m_second, fitness);
+        FlightEvents.end_stage(event, FlightEvents.SAVE_SYMBOLIC);
+        LOGGER.log(Level.INFO, "The controller''s fitness is: {0}", fitness.get_fitness());
+        Metrics.INSTANCE.log_summary("save");
+        return fitness;
+    }
+
+    /**
+     * Stores the run summary: the elapsed time, the best actual fitness, the
+     * exported controller's fitness and the times the fitness targets were
+     * reached.
+     *
+     * @param file_name the summary file name
+     * @param elapsed_ms the elapsed run time in milliseconds
+     * @param export_ftn the exported controller's fitness, or null if none
+     * @throws IOException if the summary could not be stored
+     */
+    private void store_summary(final String file_name, final long elapsed_ms,
+            final Fitness export_ftn) throws IOException {
+        final Properties summary = new Properties();
+        summary.setProperty(SUMMARY_ELAPSED_MS, Long.toString(elapsed_ms));
+        if (m_tracker != null) {
+            summary.setProperty(SUMMARY_BEST_FTN, Double.toString(m_tracker.get_best_ftn()));
+            final long[] target_ms = m_tracker.get_target_ms();
+            for (int idx = 0; idx < target_ms.length; ++idx) {
+                summary.setProperty(SUMMARY_TARGET_MS_PREF + idx, Long.toString(target_ms[idx]));
+            }
+        }
+        if (export_ftn != null) {
+            summary.setProperty(SUMMARY_EXPORT_FTN, Double.toString(export_ftn.get_fitness()));
+        }
+        try (FileWriter writer = new FileWriter(file_name)) {
+            summary.store(writer, "The headless run summary");
+        }
+    }
+
+    /**
+     * Adds the log file handler to the global logger
+     *
+     * @param props the properties
+     * @param file_name the controller file name without extension
+     */
+    private static void start_logging(final Properties props, final String file_name) {
+        final String full_file_name = file_name + ".gp.log";
+        try {
+            final String queue_size = props.getProperty(PropertyManager.LOG_QUEUE_SIZE_PROP);
+            final String policy = props.getProperty(PropertyManager.LOG_POLICY_PROP,
+                    PropertyManager.BLOCK_LOG_POLICY);
+            final AsyncFileHandler fh = new AsyncFileHandler(full_file_name,
+                    (queue_size == null) ? (int) PropertyManager.DEF_LOG_QUEUE_SIZE
+                            : Integer.parseInt(queue_size.trim()),
+                    !PropertyManager.DROP_LOG_POLICY.equalsIgnoreCase(policy.trim()));
+            Logger.getLogger("").addHandler(fh);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Could not open log file: " + full_file_name, ex);
+        }
+    }
+
+    /**
+     * The headless runner entry point
+     *
+     * @param args the command line arguments: the properties file, the
+     * controller file, the number of state-space dimensions and optionally the
+     * time limit in seconds
+     */
+    public static void main(String[] args) {
+        if ((args.length < 3) || (args.length > 4)) {
+            System.err.println("Usage: " + HeadlessRunner.class.getName()
+                    + " <config.properties> <controller.scs> <num_ss_dofs> [<time_limit_sec>]");
+            System.exit(2);
+        }
+        int status = 0;
+        try {
+            final Properties props = new Properties();
+            try (FileReader reader = new FileReader(args[0])) {
+                props.load(reader);
+            }
+            final String file_name = args[1].replaceFirst("[.][^.]+$", "");
+            final int num_ss_dofs = Integer.parseInt(args[2].trim());
+            final long time_limit_sec = (args.length > 3) ? Long.parseLong(args[3].trim()) : 0;
+            final String out_name = props.getProperty(PropertyManager.OUTPUT_NAME_PROP, "").trim();
+            final String out_file_name = out_name.isEmpty() ? file_name : out_name;
+            start_logging(props, out_file_name);
+
+            final long start_ns = System.nanoTime();
+            final HeadlessRunner runner = new HeadlessRunner(props);
+            runner.start_metrics();
+            runner.set_up_backend();
+            final int num_is_dofs = runner.configure(file_name, num_ss_dofs);
+            runner.run(out_file_name, num_is_dofs, time_limit_sec);
+            Fitness export_ftn = null;
+            if (runner.is_export()) {
+                export_ftn = runner.export(out_file_name);
+            }
+            final String summary_file = props.getProperty(PropertyManager.RUN_SUMMARY_PROP, "").trim();
+            if (!summary_file.isEmpty()) {
+                runner.store_summary(summary_file, TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - start_ns), export_ftn);
+            }
+        } catch (IOException | IllegalAccessException | InvocationTargetException
+                | IllegalArgumentException | IllegalStateException ex) {
+            final Throwable thr = ex.getCause();
+            final Throwable act_th = (thr == null ? ex : thr);
+            LOGGER.log(Level.SEVERE, "The headless run has failed!", act_th);
+            status = 1;
+        }
+        //The workers may still be there, so exit explicitly
+        System.exit(status);
+    }
+}
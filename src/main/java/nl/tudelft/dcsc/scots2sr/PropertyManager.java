@@ -50,6 +50,68 @@ public class PropertyManager {
 
     //Stores the library file property name
     static final String LIB_FILE_NAME_PROP = "Native Library Name";
+    //Stores the fitness backend property name
+    static final String BACKEND_PROP = "Fitness Backend";
+
+    //Stores the maximum fitness batch size property name
+    static final String BATCH_SIZE_PROP = "Fitness Batch Size";
+    //Stores the maximum fitness batch linger time property name
+    static final String BATCH_LINGER_PROP = "Fitness Batch Linger us";
+    //Stores the maximum fitness cache size property name
+    static final String CACHE_SIZE_PROP = "Fitness Cache Size";
+    //Stores the maximum log records queue size property name
+    static final String LOG_QUEUE_SIZE_PROP = "Log Queue Size";
+    //Stores the full log records queue policy property name
+    static final String LOG_POLICY_PROP = "Log Queue Policy";
+    //Stores the population snapshot period property name
+    static final String CHECKPOINT_PERIOD_PROP = "Checkpoint Period sec";
+    //Stores the number of islands property name
+    static final String NUM_ISLANDS_PROP = "Number Of Islands";
+    //Stores the migration period property name
+    static final String MIGRATION_PERIOD_PROP = "Migration Period sec";
+    //Stores the number of migrants per island property name
+    static final String NUM_MIGRANTS_PROP = "Number Of Migrants";
+    //Stores the distributed run coordinator address property name
+    static final String COORDINATOR_PROP = "Coordinator Address";
+    //Stores the headless run output file name property name
+    static final String OUTPUT_NAME_PROP = "Output File Name";
+    //Stores the headless run summary file property name
+    static final String RUN_SUMMARY_PROP = "Run Summary File";
+    //Stores the timed actual fitness targets property name
+    static final String FITNESS_TARGETS_PROP = "Fitness Targets";
+    //Stores the metrics endpoint port property name
+    static final String METRICS_PORT_PROP = "Metrics Port";
+    //Stores the metrics endpoint host property name
+    static final String METRICS_HOST_PROP = "Metrics Host";
+
+    //Defines the default maximum fitness batch size, 1 means no batching
+    static final int DEF_BATCH_SIZE = 1;
+    //Defines the default maximum fitness batch linger time in micro seconds
+    static final long DEF_BATCH_LINGER_US = 200;
+    //Defines the default maximum fitness cache size, 0 means no caching
+    static final long DEF_CACHE_SIZE = 10000;
+    //Defines the native SCOTS2DLL fitness backend name
+    static final String NATIVE_BACKEND = "native";
+    //Defines the pure Java explicit controller fitness backend name
+    static final String EXPLICIT_BACKEND = "explicit";
+    //Defines the default maximum log records queue size
+    static final long DEF_LOG_QUEUE_SIZE = 8192;
+    //Defines the full log records queue policy blocking the logging thread
+    static final String BLOCK_LOG_POLICY = "block";
+    //Defines the full log records queue policy dropping the log record
+    static final String DROP_LOG_POLICY = "drop";
+    //Defines the default population snapshot period in seconds, 0 means none
+    static final long DEF_CHECKPOINT_PERIOD_SEC = 0;
+    //Defines the default number of islands, 1 means a single grid
+    static final long DEF_NUM_ISLANDS = 1;
+    //Defines the default migration period in seconds, 0 means no migration
+    static final long DEF_MIGRATION_PERIOD_SEC = 60;
+    //Defines the default number of migrants per island
+    static final long DEF_NUM_MIGRANTS = 4;
+    //Defines the default metrics endpoint port, 0 means no endpoint
+    static final long DEF_METRICS_PORT = 0;
+    //Defines the default metrics endpoint host, only local scrapes
+    static final String DEF_METRICS_HOST = "127.0.0.1";
 
     //Stores the properties file
     private final File m_props_file;
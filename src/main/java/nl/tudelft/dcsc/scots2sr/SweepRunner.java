@@ -0,0 +1,559 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The parameter sweep runner. Takes a parameter space over the properties
+ * persisted by the PropertyManager, samples it as a Cartesian product or as a
+ * Latin hypercube, runs the HeadlessRunner on every configuration in a
+ * separate JVM under the global CPU budget, and records the time to reach
+ * the fitness targets and the final fitness of every configuration into a
+ * CSV file.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class SweepRunner {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(SweepRunner.class.getName());
+
+    //Stores the sweep mode property name and values
+    static final String MODE_PROP = "sweep.mode";
+    static final String GRID_MODE = "grid";
+    static final String LHS_MODE = "lhs";
+    //Stores the number of Latin hypercube samples property name
+    static final String SAMPLES_PROP = "sweep.samples";
+    //Stores the number of levels per value range in the grid mode property name
+    static final String LEVELS_PROP = "sweep.levels";
+    //Stores the CPU budget property name
+    static final String CPU_BUDGET_PROP = "sweep.cpu_budget";
+    //Stores the fitness targets property name
+    static final String TARGETS_PROP = "sweep.targets";
+    //Stores the time limit per run property name
+    static final String TIME_LIMIT_PROP = "sweep.time_limit_sec";
+    //Stores the random seed property name
+    static final String SEED_PROP = "sweep.seed";
+    //Stores the extra JVM arguments of the runs property name
+    static final String JVM_ARGS_PROP = "sweep.jvm_args";
+    //Stores the swept parameter property name prefix
+    static final String PARAM_PREF = "sweep.param.";
+
+    //Defines the default number of Latin hypercube samples
+    static final int DEF_SAMPLES = 16;
+    //Defines the default number of levels per value range
+    static final int DEF_LEVELS = 3;
+    //Defines the default fitness targets
+    static final String DEF_TARGETS = "0.5,0.9,0.99";
+    //Defines the default time limit per run in seconds
+    static final long DEF_TIME_LIMIT_SEC = 600;
+
+    //Stores the separator of the listed values
+    private static final String VALUE_SEP = ";";
+    //Stores the separator of the value range bounds
+    private static final String RANGE_SEP = "..";
+    //Stores the prefix of the values to be read from a file, e.g. grammars
+    private static final String FILE_PREF = "@";
+    //Stores the run properties used to estimate the run CPU cost
+    private static final String WORKERS_DOF_PROP = "m_workers_dof_txt";
+
+    /**
+     * The swept parameter, either a list of values or a numeric range
+     */
+    private static final class Param {
+
+        //Stores the property name
+        final String m_key;
+        //Stores the listed values, or null for a range
+        final List<String> m_values;
+        //Stores the range bounds
+        final double m_min;
+        final double m_max;
+        //Stores the flag indicating an integer range
+        final boolean m_is_int;
+
+        Param(final String key, final String spec) {
+            m_key = key;
+            final int idx = spec.indexOf(RANGE_SEP);
+            if (!spec.contains(VALUE_SEP) && (idx > 0)) {
+                final String min = spec.substring(0, idx).trim();
+                final String max = spec.substring(idx + RANGE_SEP.length()).trim();
+                m_values = null;
+                m_min = Double.parseDouble(min);
+                m_max = Double.parseDouble(max);
+                m_is_int = is_int(min) && is_int(max);
+            } else {
+                m_values = new ArrayList<>();
+                for (String value : spec.split(VALUE_SEP)) {
+                    if (!value.trim().isEmpty()) {
+                        m_values.add(value.trim());
+                    }
+                }
+                if (m_values.isEmpty()) {
+                    throw new IllegalArgumentException("No values for: " + key);
+                }
+                m_min = 0.0;
+                m_max = 0.0;
+                m_is_int = false;
+            }
+        }
+
+        private static boolean is_int(final String value) {
+            return value.matches("[+-]?\\d+");
+        }
+
+        /**
+         * Allows to get the value at the relative position
+         *
+         * @param pos the relative position in [0, 1)
+         * @return the parameter value
+         */
+        String get(final double pos) {
+            if (m_values != null) {
+                return m_values.get(Math.min(m_values.size() - 1,
+                        (int) (pos * m_values.size())));
+            } else {
+                final double value = m_min + pos * (m_max - m_min);
+                return m_is_int ? Long.toString(Math.round(value)) : Double.toString(value);
+            }
+        }
+
+        /**
+         * Allows to get the grid levels of the parameter
+         *
+         * @param num_levels the number of levels per range
+         * @return the parameter values
+         */
+        List<String> get_levels(final int num_levels) {
+            if (m_values != null) {
+                return m_values;
+            } else {
+                final List<String> levels = new ArrayList<>();
+                for (int idx = 0; idx < num_levels; ++idx) {
+                    final double value = m_min + ((num_levels > 1)
+                            ? idx * (m_max - m_min) / (num_levels - 1) : 0.0);
+                    final String level = m_is_int ? Long.toString(Math.round(value))
+                            : Double.toString(value);
+                    if (!levels.contains(level)) {
+                        levels.add(level);
+                    }
+                }
+                return levels;
+            }
+        }
+    }
+
+    //Stores the sweep properties
+    private final Properties m_sweep;
+    //Stores the base run properties
+    private final Properties m_base;
+    //Stores the swept parameters
+    private final List<Param> m_params;
+    //Stores the fitness targets
+    private final String[] m_targets;
+
+    /**
+     * The basic constructor
+     *
+     * @param sweep the sweep properties
+     * @param base the base run properties
+     */
+    public SweepRunner(final Properties sweep, final Properties base) {
+        m_sweep = sweep;
+        m_base = base;
+        m_params = new ArrayList<>();
+        sweep.stringPropertyNames().stream().filter((name) -> {
+            return name.startsWith(PARAM_PREF);
+        }).sorted().forEachOrdered((name) -> {
+            m_params.add(new Param(name.substring(PARAM_PREF.length()),
+                    sweep.getProperty(name).trim()));
+        });
+        if (m_params.isEmpty()) {
+            throw new IllegalArgumentException("No swept parameters, expected "
+                    + PARAM_PREF + "<property> entries");
+        }
+        m_targets = Arrays.stream(sweep.getProperty(TARGETS_PROP, DEF_TARGETS).split(","))
+                .map(String::trim).filter((value) -> {
+                    return !value.isEmpty();
+                }).toArray(String[]::new);
+    }
+
+    /**
+     * Allows to get an optional numeric sweep property value
+     *
+     * @param key the property name
+     * @param def_val the default value
+     * @return the property value or the default one if not set
+     */
+    private long get_num(final String key, final long def_val) {
+        final String value = m_sweep.getProperty(key);
+        return (value == null) ? def_val : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Samples the parameter space
+     *
+     * @return the configurations, the swept parameter values in the order of
+     * the parameters
+     */
+    List<String[]> sample() {
+        final String mode = m_sweep.getProperty(MODE_PROP, GRID_MODE).trim();
+        final List<String[]> configs = new ArrayList<>();
+        if (GRID_MODE.equalsIgnoreCase(mode)) {
+            final int num_levels = (int) Math.max(1, get_num(LEVELS_PROP, DEF_LEVELS));
+            final List<List<String>> levels = new ArrayList<>();
+            for (Param param : m_params) {
+                levels.add(param.get_levels(num_levels));
+            }
+            final int[] idxs = new int[m_params.size()];
+            boolean is_next = true;
+            while (is_next) {
+                final String[] config = new String[idxs.length];
+                for (int idx = 0; idx < idxs.length; ++idx) {
+                    config[idx] = levels.get(idx).get(idxs[idx]);
+                }
+                configs.add(config);
+                //Advance the mixed radix counter
+                is_next = false;
+                for (int idx = idxs.length - 1; (idx >= 0) && !is_next; --idx) {
+                    if (++idxs[idx] < levels.get(idx).size()) {
+                        is_next = true;
+                    } else {
+                        idxs[idx] = 0;
+                    }
+                }
+            }
+        } else if (LHS_MODE.equalsIgnoreCase(mode)) {
+            final int num_samples = (int) Math.max(1, get_num(SAMPLES_PROP, DEF_SAMPLES));
+            final String seed = m_sweep.getProperty(SEED_PROP);
+            final Random rnd = (seed == null) ? new Random()
+                    : new Random(Long.parseLong(seed.trim()));
+            for (int idx = 0; idx < num_samples; ++idx) {
+                configs.add(new String[m_params.size()]);
+            }
+            //Every parameter takes every of the equal strata exactly once
+            for (int p_idx = 0; p_idx < m_params.size(); ++p_idx) {
+                final int[] strata = new int[num_samples];
+                for (int idx = 0; idx < num_samples; ++idx) {
+                    strata[idx] = idx;
+                }
+                for (int idx = num_samples - 1; idx > 0; --idx) {
+                    final int other = rnd.nextInt(idx + 1);
+                    final int tmp = strata[idx];
+                    strata[idx] = strata[other];
+                    strata[other] = tmp;
+                }
+                for (int idx = 0; idx < num_samples; ++idx) {
+                    final double pos = (strata[idx] + rnd.nextDouble()) / num_samples;
+                    configs.get(idx)[p_idx] = m_params.get(p_idx).get(pos);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown sweep mode: " + mode);
+        }
+        return configs;
+    }
+
+    /**
+     * Creates the run properties of the configuration
+     *
+     * @param config the swept parameter values
+     * @param out_name the run output file name without extension
+     * @return the run properties
+     * @throws IOException if a value file could not be read
+     */
+    private Properties get_run_props(final String[] config, final String out_name)
+            throws IOException {
+        final Properties props = new Properties();
+        props.putAll(m_base);
+        for (int idx = 0; idx < config.length; ++idx) {
+            String value = config[idx];
+            if (value.startsWith(FILE_PREF)) {
+                value = new String(Files.readAllBytes(Paths.get(
+                        value.substring(FILE_PREF.length()).trim())),
+                        StandardCharsets.UTF_8);
+            }
+            props.setProperty(m_params.get(idx).m_key, value);
+        }
+        props.setProperty(PropertyManager.OUTPUT_NAME_PROP, out_name);
+        props.setProperty(PropertyManager.RUN_SUMMARY_PROP, out_name + ".run");
+        props.setProperty(PropertyManager.FITNESS_TARGETS_PROP, String.join(",", m_targets));
+        //The sweep runs are independent
+        props.remove(PropertyManager.COORDINATOR_PROP);
+        return props;
+    }
+
+    /**
+     * Allows to estimate the number of CPUs used by the run, as the number of
+     * workers per dimension times the number of islands
+     *
+     * @param props the run properties
+     * @param budget the CPU budget
+     * @return the run cost in [1, budget]
+     */
+    private static int get_cost(final Properties props, final int budget) {
+        long cost = 1;
+        try {
+            cost = Long.parseLong(props.getProperty(WORKERS_DOF_PROP, "1").trim())
+                    * Long.parseLong(props.getProperty(PropertyManager.NUM_ISLANDS_PROP,
+                            Long.toString(PropertyManager.DEF_NUM_ISLANDS)).trim());
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Could not estimate the run cost, assuming 1", ex);
+        }
+        return (int) Math.max(1, Math.min(budget, cost));
+    }
+
+    /**
+     * Quotes the CSV value if needed
+     *
+     * @param value the value
+     * @return the CSV value
+     */
+    private static String to_csv(final String value) {
+        if (value.contains(",") || value.contains("\"")
+                || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Runs the configuration in a separate JVM and waits for it to finish
+     *
+     * @param props the run properties
+     * @param out_name the run output file name without extension
+     * @param ctrl_file_name the controller file name
+     * @param num_ss_dofs the number of state-space dimensions
+     * @return the run exit code
+     * @throws IOException if the run could not be started
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private int run_config(final Properties props, final String out_name,
+            final String ctrl_file_name, final int num_ss_dofs)
+            throws IOException, InterruptedException {
+        final String props_file_name = out_name + ".properties";
+        try (FileWriter writer = new FileWriter(props_file_name)) {
+            props.store(writer, "The sweep run configuration");
+        }
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        for (String arg : m_sweep.getProperty(JVM_ARGS_PROP, "").trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                cmd.add(arg);
+            }
+        }
+        final String lib_path = System.getProperty("java.library.path");
+        if (lib_path != null) {
+            cmd.add("-Djava.library.path=" + lib_path);
+        }
+        cmd.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                HeadlessRunner.class.getName(), props_file_name, ctrl_file_name,
+                Integer.toString(num_ss_dofs), Long.toString(
+                get_num(TIME_LIMIT_PROP, DEF_TIME_LIMIT_SEC))));
+        final Process proc = new ProcessBuilder(cmd).redirectErrorStream(true)
+                .redirectOutput(new File(out_name + ".out")).start();
+        return proc.waitFor();
+    }
+
+    /**
+     * Runs the sweep
+     *
+     * @param ctrl_file_name the controller file name
+     * @param num_ss_dofs the number of state-space dimensions
+     * @param csv_file_name the results file name
+     * @throws IOException if the results file could not be written
+     */
+    public void run(final String ctrl_file_name, final int num_ss_dofs,
+            final String csv_file_name) throws IOException {
+        final List<String[]> configs = sample();
+        final int budget = (int) Math.max(1, get_num(CPU_BUDGET_PROP,
+                Runtime.getRuntime().availableProcessors()));
+        LOGGER.log(Level.INFO, "Sweeping {0} configurations with the CPU budget of {1}",
+                new Object[]{configs.size(), budget});
+        final String base_name = ctrl_file_name.replaceFirst("[.][^.]+$", "");
+        final Semaphore cpus = new Semaphore(budget, true);
+        final ExecutorService executor = Executors.newFixedThreadPool(budget);
+        try (PrintWriter csv = new PrintWriter(new FileWriter(csv_file_name))) {
+            final List<String> header = new ArrayList<>(Arrays.asList("run", "exit_code",
+                    "elapsed_sec", HeadlessRunner.SUMMARY_BEST_FTN,
+                    HeadlessRunner.SUMMARY_EXPORT_FTN));
+            for (String target : m_targets) {
+                header.add("time_to_" + target + "_sec");
+            }
+            for (Param param : m_params) {
+                header.add(to_csv(param.m_key));
+            }
+            csv.println(String.join(",", header));
+            csv.flush();
+            for (int run_idx = 0; run_idx < configs.size(); ++run_idx) {
+                final int idx = run_idx;
+                final String[] config = configs.get(run_idx);
+                final String out_name = base_name + ".sweep" + run_idx;
+                final Properties props = get_run_props(config, out_name);
+                final int cost = get_cost(props, budget);
+                executor.execute(() -> {
+                    int exit_code = -1;
+                    try {
+                        cpus.acquire(cost);
+                        try {
+                            LOGGER.log(Level.INFO, "Started run {0}: {1}",
+                                    new Object[]{idx, Arrays.toString(config)});
+                            exit_code = run_config(props, out_name, ctrl_file_name, num_ss_dofs);
+                        } finally {
+                            cpus.release(cost);
+                        }
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.SEVERE, "Could not start run " + idx, ex);
+                    } catch (InterruptedException ex) {
+                        LOGGER.log(Level.WARNING, "Interrupted run {0}", idx);
+                        Thread.currentThread().interrupt();
+                    }
+                    final String row = get_row(idx, exit_code, out_name + ".run", config);
+                    synchronized (csv) {
+                        csv.println(row);
+                        csv.flush();
+                    }
+                    LOGGER.log(Level.INFO, "Finished run {0}, exit code: {1}",
+                            new Object[]{idx, exit_code});
+                });
+            }
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    LOGGER.log(Level.FINE, "Waiting for the sweep runs to finish");
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.warning("Interrupted while waiting for the sweep runs");
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates the results row of the run from its summary
+     *
+     * @param run_idx the run index
+     * @param exit_code the run exit code
+     * @param summary_file_name the run summary file name
+     * @param config the swept parameter values
+     * @return the CSV row
+     */
+    private String get_row(final int run_idx, final int exit_code,
+            final String summary_file_name, final String[] config) {
+        final Properties summary = new Properties();
+        try (FileReader reader = new FileReader(summary_file_name)) {
+            summary.load(reader);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "No summary for run {0}: {1}",
+                    new Object[]{run_idx, ex.getMessage()});
+        }
+        final Map<String, String> row = new LinkedHashMap<>();
+        row.put("run", Integer.toString(run_idx));
+        row.put("exit_code", Integer.toString(exit_code));
+        row.put("elapsed_sec", to_sec(summary.getProperty(HeadlessRunner.SUMMARY_ELAPSED_MS)));
+        row.put(HeadlessRunner.SUMMARY_BEST_FTN,
+                summary.getProperty(HeadlessRunner.SUMMARY_BEST_FTN, ""));
+        row.put(HeadlessRunner.SUMMARY_EXPORT_FTN,
+                summary.getProperty(HeadlessRunner.SUMMARY_EXPORT_FTN, ""));
+        for (int idx = 0; idx < m_targets.length; ++idx) {
+            row.put("target" + idx, to_sec(summary.getProperty(
+                    HeadlessRunner.SUMMARY_TARGET_MS_PREF + idx)));
+        }
+        final List<String> values = new ArrayList<>(row.values());
+        for (String value : config) {
+            values.add(to_csv(value));
+        }
+        return String.join(",", values);
+    }
+
+    /**
+     * Converts the milliseconds value to seconds
+     *
+     * @param value_ms the milliseconds value, negative or null if none
+     * @return the seconds value, empty if none
+     */
+    private static String to_sec(final String value_ms) {
+        if ((value_ms == null) || value_ms.trim().startsWith("-")) {
+            return "";
+        } else {
+            return Double.toString(Long.parseLong(value_ms.trim()) / 1000.0);
+        }
+    }
+
+    /**
+     * The sweep runner entry point
+     *
+     * @param args the command line arguments: the sweep properties file, the
+     * base properties file, the controller file and the number of
+     * state-space dimensions
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: " + SweepRunner.class.getName()
+                    + " <sweep.properties> <config.properties> <controller.scs> <num_ss_dofs>");
+            System.exit(2);
+        }
+        int status = 0;
+        try {
+            final Properties sweep = new Properties();
+            try (FileReader reader = new FileReader(args[0])) {
+                sweep.load(reader);
+            }
+            final Properties base = new Properties();
+            try (FileReader reader = new FileReader(args[1])) {
+                base.load(reader);
+            }
+            final String csv_file_name = args[2].replaceFirst("[.][^.]+$", "") + ".sweep.csv";
+            new SweepRunner(sweep, base).run(args[2], Integer.parseInt(args[3].trim()),
+                    csv_file_name);
+            LOGGER.log(Level.INFO, "The sweep results are in: {0}", csv_file_name);
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.SEVERE, "The sweep has failed!", ex);
+            status = 1;
+        }
+        System.exit(status);
+    }
+}
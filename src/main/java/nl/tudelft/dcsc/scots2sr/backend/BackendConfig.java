@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessType;
+
+/**
+ * Stores the fitness computation configuration of a fitness backend. Is
+ * immutable.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class BackendConfig {
+
+    //Stores the number of state-space dimensions
+    public final int m_num_ss_dofs;
+    //Stores the fitness type
+    public final FitnessType m_ftn_type;
+    //Stores the attractor size
+    public final double m_attr_size;
+    //Stores the fitness function scaling factor
+    public final double m_ftn_scale;
+    //Stores the flag indicating whether the individuals are to be scaled
+    public final boolean m_is_scale;
+    //Stores the flag indicating whether the extended fitness is computed
+    public final boolean m_is_extend;
+    //Stores the flag indicating whether the complex fitness is computed
+    public final boolean m_is_complex;
+    //Stores the flag indicating whether the Monte Carlo fitness is used
+    public final boolean m_is_monte_carlo;
+    //Stores the flag indicating whether the recursive stratified sampling is used
+    public final boolean m_is_rec_strat_sample;
+    //Stores the Monte Carlo sample size
+    public final long m_sample_size;
+    //Stores the number of re-sample attempts for 100% fit samples
+    public final int m_re_sample_attempts;
+    //Stores the minimum bisection size for the stratified sampling
+    public final long m_min_bisect_size;
+    //Stores the sample bisection ratio for the stratified sampling
+    public final double m_sample_bisect_ratio;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_ss_dofs the number of state-space dimensions
+     * @param ftn_type the fitness type
+     * @param attr_size the attractor size
+     * @param ftn_scale the fitness function scaling factor
+     * @param is_scale true if the individuals are to be scaled
+     * @param is_extend true if the extended fitness is to be computed
+     * @param is_complex true if the complex fitness is to be computed
+     * @param is_monte_carlo true if the Monte Carlo fitness is to be used
+     * @param is_rec_strat_sample true if the recursive stratified sampling is
+     * to be used
+     * @param sample_size the Monte Carlo sample size
+     * @param re_sample_attempts the number of re-sample attempts
+     * @param min_bisect_size the minimum bisection size
+     * @param sample_bisect_ratio the sample bisection ratio
+     */
+    public BackendConfig(final int num_ss_dofs, final FitnessType ftn_type,
+            final double attr_size, final double ftn_scale,
+            final boolean is_scale, final boolean is_extend,
+            final boolean is_complex, final boolean is_monte_carlo,
+            final boolean is_rec_strat_sample, final long sample_size,
+            final int re_sample_attempts, final long min_bisect_size,
+            final double sample_bisect_ratio) {
+        m_num_ss_dofs = num_ss_dofs;
+        m_ftn_type = ftn_type;
+        m_attr_size = attr_size;
+        m_ftn_scale = ftn_scale;
+        m_is_scale = is_scale;
+        m_is_extend = is_extend;
+        m_is_complex = is_complex;
+        m_is_monte_carlo = is_monte_carlo;
+        m_is_rec_strat_sample = is_rec_strat_sample;
+        m_sample_size = sample_size;
+        m_re_sample_attempts = re_sample_attempts;
+        m_min_bisect_size = min_bisect_size;
+        m_sample_bisect_ratio = sample_bisect_ratio;
+    }
+
+    /**
+     * Allows to get the configuration fingerprint, equal configurations have
+     * equal fingerprints.
+     *
+     * @return the configuration fingerprint
+     */
+    public String get_fingerprint() {
+        return toString();
+    }
+
+    @Override
+    public String toString() {
+        return "[ss_dofs: " + m_num_ss_dofs + ", type: " + m_ftn_type.get_uid()
+                + ", attr: " + m_attr_size + ", scale: " + m_ftn_scale
+                + ", is_scale: " + m_is_scale + ", is_ext: " + m_is_extend
+                + ", is_compl: " + m_is_complex + ", is_mc: " + m_is_monte_carlo
+                + ", is_rss: " + m_is_rec_strat_sample
+                + ", sample: " + m_sample_size
+                + ", re_sample: " + m_re_sample_attempts
+                + ", min_bisect: " + m_min_bisect_size
+                + ", bisect_ratio: " + m_sample_bisect_ratio + "]";
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Realizes the binary cache of the explicit controller. The cache file is
+ * stored next to the controller file and is memory mapped on loading, so
+ * that the controller text is only parsed once. The cache is only valid for
+ * the controller file of the same size and modification time.
+ *
+ * The cache file layout, in the native byte order: the magic number, the
+ * format version, the byte order mark, the controller file size and
+ * modification time, the state and input space dimensions, the eta, lower
+ * left and upper right vectors of both grids, the domain size, the number
+ * of bit set words per state, the sorted domain states and then the allowed
+ * input bit sets. The sections are aligned at 8 bytes.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class ControllerCache {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(ControllerCache.class.getName());
+
+    //Stores the cache file extension, added to the controller file name
+    static final String CACHE_FILE_EXT = ".bin";
+
+    //Stores the cache file magic number
+    private static final int MAGIC = 0x53435343;
+    //Stores the cache file format version
+    private static final int VERSION = 2;
+    //Stores the byte order mark
+    private static final int BOM = 0x01020304;
+    //Stores the section alignment
+    private static final int ALIGN = Long.BYTES;
+
+    /**
+     * The private constructor, this is a utility class
+     */
+    private ControllerCache() {
+    }
+
+    /**
+     * Allows to get the cache file path for the controller file
+     *
+     * @param src the controller file path
+     * @return the cache file path
+     */
+    static Path get_cache_path(final Path src) {
+        return Paths.get(src.toString() + CACHE_FILE_EXT);
+    }
+
+    /**
+     * Aligns the value at the section boundary
+     *
+     * @param value the value
+     * @return the aligned value
+     */
+    private static long align(final long value) {
+        return (value + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    /**
+     * Allows to get the header size for the given grid dimensions
+     *
+     * @param ss_dim the state space dimensions
+     * @param is_dim the input space dimensions
+     * @return the header size in bytes, aligned
+     */
+    private static long get_header_size(final int ss_dim, final int is_dim) {
+        return align(5 * Integer.BYTES + 2 * Long.BYTES
+                + 3 * (ss_dim + is_dim) * Double.BYTES
+                + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Attempts to load the cached controller
+     *
+     * @param src the controller file path
+     * @return the controller or null if there is no valid cache
+     */
+    static ExplicitController load(final Path src) {
+        final Path path = get_cache_path(src);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (final FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long file_size = ch.size();
+            final int pre_size = 3 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+            if (file_size < pre_size) {
+                return null;
+            }
+            final ByteBuffer pre = ByteBuffer.allocate(pre_size).order(ByteOrder.nativeOrder());
+            read_fully(ch, pre, 0);
+            pre.flip();
+            if ((pre.getInt() != MAGIC) || (pre.getInt() != VERSION)
+                    || (pre.getInt() != BOM)
+                    || (pre.getLong() != Files.size(src))
+                    || (pre.getLong() != Files.getLastModifiedTime(src).toMillis())) {
+                LOGGER.log(Level.INFO, "The controller cache {0} is stale", path);
+                return null;
+            }
+            final int ss_dim = pre.getInt();
+            final int is_dim = pre.getInt();
+            final long hdr_size = get_header_size(ss_dim, is_dim);
+            if ((ss_dim <= 0) || (is_dim <= 0) || (file_size < hdr_size)) {
+                return null;
+            }
+
+            //Read the rest of the header
+            final ByteBuffer hdr = ByteBuffer.allocate((int) (hdr_size - pre_size))
+                    .order(ByteOrder.nativeOrder());
+            read_fully(ch, hdr, pre_size);
+            hdr.flip();
+            final ExplicitController.Grid ss_grid = new ExplicitController.Grid(
+                    get_doubles(hdr, ss_dim), get_doubles(hdr, ss_dim), get_doubles(hdr, ss_dim));
+            final ExplicitController.Grid is_grid = new ExplicitController.Grid(
+                    get_doubles(hdr, is_dim), get_doubles(hdr, is_dim), get_doubles(hdr, is_dim));
+            final int dom_size = hdr.getInt();
+            final int num_words = hdr.getInt();
+            if ((dom_size < 0) || (num_words != ExplicitController.get_num_words(is_grid))) {
+                return null;
+            }
+
+            //Map the data sections
+            final long states_size = ((long) dom_size) * Integer.BYTES;
+            final long inputs_pos = hdr_size + align(states_size);
+            final long inputs_size = ((long) dom_size) * num_words * Long.BYTES;
+            if ((file_size != inputs_pos + inputs_size)
+                    || (inputs_size > Integer.MAX_VALUE)) {
+                return null;
+            }
+            final IntBuffer states = map(ch, hdr_size, states_size).asIntBuffer();
+            final LongBuffer inputs = map(ch, inputs_pos, inputs_size).asLongBuffer();
+            return new ExplicitController(ss_grid, is_grid, states, inputs);
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.WARNING, "Unable to read the controller cache "
+                    + path, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Allows to store the controller cache, the cache is first written into
+     * a temporary file that is then moved in place.
+     *
+     * @param src the controller file path
+     * @param ctrl the loaded controller
+     */
+    static void store(final Path src, final ExplicitController ctrl) {
+        final Path path = get_cache_path(src);
+        final Path tmp = Paths.get(path.toString() + ".tmp");
+        final ExplicitController.Grid ss_grid = ctrl.get_ss_grid();
+        final ExplicitController.Grid is_grid = ctrl.get_is_grid();
+        final int ss_dim = ss_grid.get_dim();
+        final int is_dim = is_grid.get_dim();
+        final int dom_size = ctrl.get_domain_size();
+        final long hdr_size = get_header_size(ss_dim, is_dim);
+        final long states_size = ((long) dom_size) * Integer.BYTES;
+        if (states_size > Integer.MAX_VALUE) {
+            LOGGER.log(Level.WARNING, "The controller is too large to be cached");
+            return;
+        }
+        try {
+            try (final FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer hdr = ByteBuffer.allocate((int) hdr_size)
+                        .order(ByteOrder.nativeOrder());
+                hdr.putInt(MAGIC).putInt(VERSION).putInt(BOM);
+                hdr.putLong(Files.size(src));
+                hdr.putLong(Files.getLastModifiedTime(src).toMillis());
+                hdr.putInt(ss_dim).putInt(is_dim);
+                put_grid(hdr, ss_grid);
+                put_grid(hdr, is_grid);
+                hdr.putInt(dom_size).putInt(ExplicitController.get_num_words(is_grid));
+                hdr.position(0);
+                write_fully(ch, hdr, 0);
+
+                final ByteBuffer states = ByteBuffer.allocate((int) states_size)
+                        .order(ByteOrder.nativeOrder());
+                final IntBuffer src_states = ctrl.get_states().duplicate();
+                src_states.clear();
+                states.asIntBuffer().put(src_states);
+                write_fully(ch, states, hdr_size);
+
+                final LongBuffer inputs = ctrl.get_inputs().duplicate();
+                final ByteBuffer chunk = ByteBuffer.allocate(1 << 20)
+                        .order(ByteOrder.nativeOrder());
+                long pos = hdr_size + align(states_size);
+                inputs.clear();
+                while (inputs.hasRemaining()) {
+                    final LongBuffer part = inputs.slice();
+                    final int num = Math.min(part.remaining(), chunk.capacity() / Long.BYTES);
+                    part.limit(num);
+                    chunk.clear();
+                    chunk.asLongBuffer().put(part);
+                    chunk.limit(num * Long.BYTES);
+                    write_fully(ch, chunk, pos);
+                    pos += num * Long.BYTES;
+                    inputs.position(inputs.position() + num);
+                }
+                ch.force(false);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.log(Level.INFO, "Stored the controller cache: {0}", path);
+        } catch (IOException | UnsupportedOperationException ex) {
+            LOGGER.log(Level.WARNING, "Unable to store the controller cache "
+                    + path, ex);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException iex) {
+                LOGGER.log(Level.FINE, "Unable to delete " + tmp, iex);
+            }
+        }
+    }
+
+    /**
+     * Puts the grid vectors into the buffer
+     *
+     * @param buf the buffer
+     * @param grid the grid
+     */
+    private static void put_grid(final ByteBuffer buf, final ExplicitController.Grid grid) {
+        for (double val : grid.m_eta) {
+            buf.putDouble(val);
+        }
+        for (double val : grid.m_ll) {
+            buf.putDouble(val);
+        }
+        for (double val : grid.m_ur) {
+            buf.putDouble(val);
+        }
+    }
+
+    /**
+     * Gets a vector of doubles from the buffer
+     *
+     * @param buf the buffer
+     * @param size the vector size
+     * @return the vector
+     */
+    private static double[] get_doubles(final ByteBuffer buf, final int size) {
+        final double[] vec = new double[size];
+        for (int idx = 0; idx < size; ++idx) {
+            vec[idx] = buf.getDouble();
+        }
+        return vec;
+    }
+
+    /**
+     * Maps the file region into memory, read only
+     *
+     * @param ch the file channel
+     * @param pos the region position
+     * @param size the region size
+     * @return the mapped buffer, in native byte order
+     * @throws IOException if mapping fails
+     */
+    private static ByteBuffer map(final FileChannel ch, final long pos,
+            final long size) throws IOException {
+        final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        return buf.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Reads the buffer fully from the given channel position
+     *
+     * @param ch the file channel
+     * @param buf the buffer
+     * @param pos the channel position
+     * @throws IOException if the file is too short or reading fails
+     */
+    private static void read_fully(final FileChannel ch, final ByteBuffer buf,
+            final long pos) throws IOException {
+        long curr = pos;
+        while (buf.hasRemaining()) {
+            final int num = ch.read(buf, curr);
+            if (num < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            curr += num;
+        }
+    }
+
+    /**
+     * Writes the buffer fully at the given channel position
+     *
+     * @param ch the file channel
+     * @param buf the buffer
+     * @param pos the channel position
+     * @throws IOException if writing fails
+     */
+    private static void write_fully(final FileChannel ch, final ByteBuffer buf,
+            final long pos) throws IOException {
+        long curr = pos;
+        while (buf.hasRemaining()) {
+            curr += ch.write(buf, curr);
+        }
+    }
+}
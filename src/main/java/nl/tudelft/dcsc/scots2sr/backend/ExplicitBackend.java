@@ -0,0 +1,743 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.scots2sr.sr.ExtendedFitness;
+import nl.tudelft.dcsc.scots2sr.sr.ScaledFitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessComputerClass;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessType;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+import nl.tudelft.dcsc.sr2jlib.instance.Loader;
+
+/**
+ * The pure Java fitness backend working on the explicit controller, is an
+ * alternative to the native SCOTS2DLL backend accessed through
+ * {@link nl.tudelft.dcsc.scots2sr.jni.ScotsFacade}. Is a singleton.
+ *
+ * An individual is evaluated on the (sampled) controller's domain states: the
+ * abstract state vector is passed to the individual's class and the produced
+ * input vector is mapped onto the input grid with round(abs(.)). The actual
+ * fitness is the fraction of states for which the produced input is allowed.
+ * The extended fitness gives a point score of 1.0 to the fit states and to the
+ * states whose input is within the attractor distance from the nearest
+ * allowed input. Other states get 0.0 for the EXACT fitness type, and
+ * 1-2*atan(s*r)/pi for ATANG and 1/(1+s*r) for INVER, where s is the fitness
+ * scaling factor and r is the distance beyond the attractor relative to the
+ * input grid size. For the complex fitness the point score is the mean of the
+ * per-dof scores, otherwise the Euclidean distance is used. If scaling is on,
+ * the per-dof scale and shift are fitted with least squares to the nearest
+ * allowed inputs before scoring.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ExplicitBackend extends FitnessBackend {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(ExplicitBackend.class.getName());
+
+    //Stores the controller file extension
+    public static final String CTRL_FILE_EXT = ".scs";
+
+    //Stores the name of the individual's class static method evaluating
+    //the control functions of all dofs on the abstract state vector
+    private static final String EVAL_METHOD_NAME = "evaluate";
+    private static final MethodType EVAL_METHOD_TYPE
+            = MethodType.methodType(double[].class, double[].class);
+
+    //Stores the per thread scratch vectors of the fitness computation
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    //Stores the class loader for the individual classes
+    private final Loader m_loader;
+    //Stores the loaded controller, or null
+    private volatile ExplicitController m_ctrl;
+    //Stores the configuration, or null
+    private volatile BackendConfig m_cfg;
+    //Stores the flag indicating that a class without the evaluation method
+    //has been reported
+    private final AtomicBoolean m_is_eval_reported;
+
+    /**
+     * The per thread scratch vectors of the fitness computation, are reused
+     * between the computations so that the domain state loop does not
+     * allocate
+     */
+    private static final class Scratch {
+
+        //Stores the state vector
+        double[] m_x = new double[0];
+        //Stores the nearest allowed input vector
+        double[] m_near = new double[0];
+        //Stores the candidate allowed input vector
+        double[] m_cand = new double[0];
+
+        /**
+         * Allows to get the thread's scratch vectors of the given sizes
+         *
+         * @param ss_dim the number of state space dimensions
+         * @param is_dim the number of input space dimensions
+         * @return the scratch vectors
+         */
+        static Scratch get(final int ss_dim, final int is_dim) {
+            final Scratch scratch = SCRATCH.get();
+            if (scratch.m_x.length != ss_dim) {
+                scratch.m_x = new double[ss_dim];
+            }
+            if (scratch.m_near.length != is_dim) {
+                scratch.m_near = new double[is_dim];
+                scratch.m_cand = new double[is_dim];
+            }
+            return scratch;
+        }
+    }
+
+    /**
+     * The constructor for the singleton and the synthetic backends
+     */
+    ExplicitBackend() {
+        m_loader = new Loader();
+        m_ctrl = null;
+        m_cfg = null;
+        m_is_eval_reported = new AtomicBoolean(false);
+    }
+
+    //Stores the singleton class instance
+    public static final ExplicitBackend INSTANCE = new ExplicitBackend();
+
+    /**
+     * Allows to get the loaded controller
+     *
+     * @return the loaded controller
+     * @throws IllegalStateException if there is no controller loaded
+     */
+    ExplicitController get_ctrl() throws IllegalStateException {
+        final ExplicitController ctrl = m_ctrl;
+        if (ctrl == null) {
+            throw new IllegalStateException("The controller is not loaded!");
+        }
+        return ctrl;
+    }
+
+    /**
+     * Allows to set the loaded controller
+     *
+     * @param ctrl the controller
+     * @return the number of controller dimensions
+     */
+    protected int set_ctrl(final ExplicitController ctrl) {
+        m_ctrl = ctrl;
+        m_cfg = null;
+        controller_loaded();
+        LOGGER.log(Level.INFO, "Loaded explicit controller, state space size: "
+                + "{0}, domain size: {1}", new Object[]{ctrl.get_ss_size(),
+                    ctrl.get_domain_size()});
+        return ctrl.get_ss_dim() + ctrl.get_is_dim();
+    }
+
+    @Override
+    public int load(final String file_name) throws FileNotFoundException,
+            IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        final String full_file_name = file_name + CTRL_FILE_EXT;
+        final Path path = Paths.get(full_file_name);
+        try {
+            if (!Files.isRegularFile(path)) {
+                throw new FileNotFoundException(full_file_name);
+            }
+            //Try the binary cache first, it avoids re-parsing the controller
+            ExplicitController ctrl = ControllerCache.load(path);
+            if (ctrl == null) {
+                ctrl = ExplicitController.load(full_file_name);
+                ControllerCache.store(path, ctrl);
+            } else {
+                LOGGER.log(Level.INFO, "Mapped the controller cache of: {0}",
+                        full_file_name);
+            }
+            return set_ctrl(ctrl);
+        } catch (FileNotFoundException | NoSuchFileException ex) {
+            throw new FileNotFoundException(full_file_name);
+        } catch (IOException | NumberFormatException ex) {
+            throw new IllegalStateException("Unable to read the controller "
+                    + full_file_name + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public int get_state_space_size(final int ss_dim) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException {
+        final ExplicitController ctrl = get_ctrl();
+        check_ss_dim(ctrl, ss_dim);
+        return ctrl.get_ss_size();
+    }
+
+    /**
+     * Checks that the state-space dimensionality matches the controller
+     *
+     * @param ctrl the controller
+     * @param ss_dim the requested state-space dimensionality
+     * @throws IllegalArgumentException if the dimensionality does not match
+     */
+    private static void check_ss_dim(final ExplicitController ctrl, final int ss_dim)
+            throws IllegalArgumentException {
+        if (ss_dim != ctrl.get_ss_dim()) {
+            throw new IllegalArgumentException("The explicit controller has "
+                    + ctrl.get_ss_dim() + " state-space dimensions, not " + ss_dim);
+        }
+    }
+
+    @Override
+    public void configure(final BackendConfig cfg) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException {
+        check_ss_dim(get_ctrl(), cfg.m_num_ss_dofs);
+        m_cfg = cfg;
+        configured(cfg);
+    }
+
+    /**
+     * Allows to get the evaluation method handle of the individual's class.
+     * The class must be public and declare the public static evaluation
+     * method, the first class without it is reported in the log as then no
+     * individual can be evaluated.
+     *
+     * @param class_name the individual's class name
+     * @return the evaluation method handle
+     * @throws ClassNotFoundException if the class is not found
+     * @throws IllegalStateException if the class has no accessible
+     * evaluation method
+     */
+    MethodHandle get_evaluator(final String class_name)
+            throws ClassNotFoundException, IllegalStateException {
+        final Class<?> cls = m_loader.loadClass(class_name);
+        try {
+            return MethodHandles.publicLookup().findStatic(
+                    cls, EVAL_METHOD_NAME, EVAL_METHOD_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            final String msg = "The individual class " + class_name
+                    + " has no public static double[] " + EVAL_METHOD_NAME
+                    + "(double[]) method, the explicit back-end can not "
+                    + "evaluate it";
+            if (m_is_eval_reported.compareAndSet(false, true)) {
+                LOGGER.log(Level.SEVERE, msg, ex);
+            }
+            throw new IllegalStateException(msg, ex);
+        }
+    }
+
+    /**
+     * Evaluates the individual on the given domain state
+     *
+     * @param eval the individual's evaluation method handle
+     * @param x the abstract state vector
+     * @param num_dofs the expected number of input dofs
+     * @return the input vector
+     * @throws InvocationTargetException if the evaluation fails
+     */
+    static double[] evaluate(final MethodHandle eval,
+            final double[] x, final int num_dofs) throws InvocationTargetException {
+        final double[] u;
+        try {
+            u = (double[]) eval.invokeExact(x);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+        if ((u == null) || (u.length != num_dofs)) {
+            throw new IllegalStateException("The individual must produce "
+                    + num_dofs + " input values");
+        }
+        return u;
+    }
+
+    @Override
+    protected boolean is_batch_supported() {
+        return true;
+    }
+
+    @Override
+    protected Fitness compute_single(final int mgr_id, final String class_name)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        return compute_fitness_batch(mgr_id, new String[]{class_name})[0];
+    }
+
+    /**
+     * Allows to compute the fitness of many individual classes in a single
+     * sweep over the (sampled) domain states: every state vector is computed
+     * once and all the individuals are evaluated on it. With Monte Carlo
+     * sampling the individuals of the batch share the sample, the seemingly
+     * 100% fit ones are re-sampled and finally confirmed on the entire domain
+     * together.
+     *
+     * @param mgr_id the process manager id
+     * @param class_names the individual class names
+     * @return the array of fitness objects in the same order as class names
+     * @throws ClassNotFoundException if an individual class is not found
+     * @throws IllegalAccessException if an individual class is not accessible
+     * @throws InvocationTargetException if an evaluation fails
+     */
+    @Override
+    public Fitness[] compute_fitness_batch(
+            final int mgr_id, final String[] class_names)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final ExplicitController ctrl = get_ctrl();
+        final BackendConfig cfg = m_cfg;
+        if (cfg == null) {
+            throw new IllegalStateException("The fitness backend is not configured!");
+        }
+        final MethodHandle[] evals = new MethodHandle[class_names.length];
+        for (int idx = 0; idx < evals.length; ++idx) {
+            evals[idx] = get_evaluator(class_names[idx]);
+        }
+        final int dom_size = ctrl.get_domain_size();
+        final Fitness[] ftns = new Fitness[evals.length];
+
+        //Check if the Monte Carlo sampling is to be done
+        int[] pending = null;
+        if (cfg.m_is_monte_carlo && (cfg.m_sample_size < dom_size)) {
+            final Random rnd = ThreadLocalRandom.current();
+            pending = new int[evals.length];
+            for (int idx = 0; idx < pending.length; ++idx) {
+                pending[idx] = idx;
+            }
+            //Re-sample the individuals that seem to be 100% fit
+            for (int att = 0; (att <= cfg.m_re_sample_attempts)
+                    && (pending.length > 0); ++att) {
+                final int[] sample = get_sample(cfg, dom_size, rnd);
+                final ExtendedFitness[] sampled = compute_fitness(
+                        ctrl, cfg, select(evals, pending), sample, sample.length);
+                int num_one = 0;
+                for (int idx = 0; idx < pending.length; ++idx) {
+                    if (sampled[idx].is_one()) {
+                        pending[num_one++] = pending[idx];
+                    } else {
+                        ftns[pending[idx]] = sampled[idx];
+                    }
+                }
+                pending = Arrays.copyOf(pending, num_one);
+            }
+            //Confirm the 100% fitness on the entire domain
+            for (int ind_idx : pending) {
+                LOGGER.log(Level.FINE, "The sampled fitness of {0} is 100%, "
+                        + "checking the entire domain", class_names[ind_idx]);
+            }
+        }
+        final MethodHandle[] rest = (pending == null) ? evals : select(evals, pending);
+        if (rest.length > 0) {
+            final ExtendedFitness[] full = compute_fitness(ctrl, cfg, rest, null, dom_size);
+            for (int idx = 0; idx < full.length; ++idx) {
+                ftns[(pending == null) ? idx : pending[idx]] = full[idx];
+            }
+        }
+        return ftns;
+    }
+
+    /**
+     * Selects the evaluation method handles with the given indexes
+     *
+     * @param evals the evaluation method handles
+     * @param indexes the indexes to select
+     * @return the selected method handles
+     */
+    private static MethodHandle[] select(final MethodHandle[] evals, final int[] indexes) {
+        final MethodHandle[] result = new MethodHandle[indexes.length];
+        for (int idx = 0; idx < indexes.length; ++idx) {
+            result[idx] = evals[indexes[idx]];
+        }
+        return result;
+    }
+
+    /**
+     * Allows to get the sample of domain state indexes
+     *
+     * @param cfg the configuration
+     * @param dom_size the domain size
+     * @param rnd the random generator
+     * @return the array of domain state indexes
+     */
+    private static int[] get_sample(final BackendConfig cfg,
+            final int dom_size, final Random rnd) {
+        final int[] sample = new int[(int) cfg.m_sample_size];
+        if (cfg.m_is_rec_strat_sample) {
+            sample_strat(cfg, rnd, 0, dom_size, sample, 0, sample.length);
+        } else {
+            for (int idx = 0; idx < sample.length; ++idx) {
+                sample[idx] = rnd.nextInt(dom_size);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Realizes the recursive stratified sampling. The bisection ratio of the
+     * samples is distributed between the two halves of the domain range
+     * proportionally to their sizes, the rest is sampled uniformly over the
+     * entire range. The bisection stops once the range gets smaller than the
+     * minimum bisection size.
+     *
+     * @param cfg the configuration
+     * @param rnd the random generator
+     * @param begin the domain range begin, inclusive
+     * @param end the domain range end, exclusive
+     * @param sample the sample array
+     * @param offset the offset in the sample array
+     * @param count the number of samples to take
+     */
+    private static void sample_strat(final BackendConfig cfg, final Random rnd,
+            final int begin, final int end, final int[] sample,
+            final int offset, final int count) {
+        final int size = end - begin;
+        if ((size <= cfg.m_min_bisect_size) || (count <= 1)) {
+            for (int idx = offset; idx < offset + count; ++idx) {
+                sample[idx] = begin + rnd.nextInt(size);
+            }
+        } else {
+            final int mid = begin + size / 2;
+            final int num_bisect = (int) Math.round(count * cfg.m_sample_bisect_ratio);
+            final int num_left = (int) (((long) num_bisect) * (mid - begin) / size);
+            final int num_right = num_bisect - num_left;
+            final int num_here = count - num_bisect;
+            sample_strat(cfg, rnd, begin, mid, sample, offset, num_left);
+            sample_strat(cfg, rnd, mid, end, sample, offset + num_left, num_right);
+            for (int idx = offset + num_bisect; idx < offset + num_bisect + num_here; ++idx) {
+                sample[idx] = begin + rnd.nextInt(size);
+            }
+        }
+    }
+
+    /**
+     * Computes the fitness of the individuals on the given domain states. The
+     * state vector of a domain state is computed once for all the
+     * individuals.
+     *
+     * @param ctrl the controller
+     * @param cfg the configuration
+     * @param evals the individuals' evaluation method handles
+     * @param sample the domain state indexes or null for the entire domain
+     * @param size the number of domain states to consider
+     * @return the fitness, per individual
+     * @throws InvocationTargetException if the evaluation fails
+     */
+    private static ExtendedFitness[] compute_fitness(
+            final ExplicitController ctrl, final BackendConfig cfg,
+            final MethodHandle[] evals, final int[] sample, final int size)
+            throws InvocationTargetException {
+        final int num_inds = evals.length;
+        final int num_dofs = ctrl.get_is_dim();
+        final Scratch scratch = Scratch.get(ctrl.get_ss_dim(), num_dofs);
+        final double[] x = scratch.m_x;
+        final FitnessType type = cfg.m_ftn_type;
+        final double[] num_fit = new double[num_inds];
+        final double[] ext_sum = new double[num_inds];
+        final double[][] scales;
+        final double[][] shifts;
+
+        if (cfg.m_is_scale) {
+            //Evaluate the individuals on all the states, fit the scaling and
+            //shifting factors to the nearest allowed inputs, and score
+            final double[][][] outs = new double[num_inds][size][];
+            for (int idx = 0; idx < size; ++idx) {
+                final int dom_idx = (sample == null) ? idx : sample[idx];
+                ctrl.get_state_vector(dom_idx, x);
+                for (int ind_idx = 0; ind_idx < num_inds; ++ind_idx) {
+                    outs[ind_idx][idx] = evaluate(evals[ind_idx], x, num_dofs);
+                }
+            }
+            scales = new double[num_inds][num_dofs];
+            shifts = new double[num_inds][num_dofs];
+            for (int ind_idx = 0; ind_idx < num_inds; ++ind_idx) {
+                fit_scaling(ctrl, sample, outs[ind_idx],
+                        scales[ind_idx], shifts[ind_idx], scratch);
+                for (int idx = 0; idx < size; ++idx) {
+                    final int dom_idx = (sample == null) ? idx : sample[idx];
+                    final double[] u = outs[ind_idx][idx];
+                    for (int dof = 0; dof < num_dofs; ++dof) {
+                        u[dof] = u[dof] * scales[ind_idx][dof] + shifts[ind_idx][dof];
+                    }
+                    ext_sum[ind_idx] += score(ctrl, cfg, type, dom_idx, u,
+                            scratch, num_fit, ind_idx);
+                }
+            }
+        } else {
+            //Evaluate and score the individuals state by state
+            scales = null;
+            shifts = null;
+            for (int idx = 0; idx < size; ++idx) {
+                final int dom_idx = (sample == null) ? idx : sample[idx];
+                ctrl.get_state_vector(dom_idx, x);
+                for (int ind_idx = 0; ind_idx < num_inds; ++ind_idx) {
+                    final double[] u = evaluate(evals[ind_idx], x, num_dofs);
+                    ext_sum[ind_idx] += score(ctrl, cfg, type, dom_idx, u,
+                            scratch, num_fit, ind_idx);
+                }
+            }
+        }
+
+        final ExtendedFitness[] ftns = new ExtendedFitness[num_inds];
+        for (int ind_idx = 0; ind_idx < num_inds; ++ind_idx) {
+            final double act_ftn = (size > 0) ? num_fit[ind_idx] / size : 0.0;
+            final double ext_ftn = cfg.m_is_extend
+                    ? ((size > 0) ? ext_sum[ind_idx] / size : 0.0) : act_ftn;
+            ftns[ind_idx] = cfg.m_is_scale
+                    ? new ScaledFitness(act_ftn, ext_ftn, scales[ind_idx], shifts[ind_idx])
+                    : new ExtendedFitness(act_ftn, ext_ftn);
+        }
+        return ftns;
+    }
+
+    /**
+     * Scores the produced input vector of an individual in a domain state
+     *
+     * @param ctrl the controller
+     * @param cfg the configuration
+     * @param type the fitness type
+     * @param dom_idx the domain state index
+     * @param u the produced input vector
+     * @param scratch the scratch vectors
+     * @param num_fit the numbers of fit states per individual, the
+     * individual's one is incremented if the input is allowed
+     * @param ind_idx the individual's index
+     * @return the extended fitness point score in [0,1], or 0.0 if the
+     * extended fitness is off and the input is not allowed
+     */
+    private static double score(final ExplicitController ctrl,
+            final BackendConfig cfg, final FitnessType type,
+            final int dom_idx, final double[] u, final Scratch scratch,
+            final double[] num_fit, final int ind_idx) {
+        if (ctrl.is_allowed(dom_idx, ctrl.get_input(u))) {
+            num_fit[ind_idx] += 1.0;
+            return 1.0;
+        } else {
+            return cfg.m_is_extend
+                    ? get_score(ctrl, cfg, type, dom_idx, u, scratch) : 0.0;
+        }
+    }
+
+    /**
+     * Computes the extended fitness score of an unfit domain state
+     *
+     * @param ctrl the controller
+     * @param cfg the configuration
+     * @param type the fitness type
+     * @param dom_idx the domain state index
+     * @param u the produced input vector
+     * @param scratch the scratch vectors
+     * @return the point score in [0,1]
+     */
+    private static double get_score(final ExplicitController ctrl,
+            final BackendConfig cfg, final FitnessType type,
+            final int dom_idx, final double[] u, final Scratch scratch) {
+        final double[] near = scratch.m_near;
+        final double dist = ctrl.get_nearest(dom_idx, u, near, scratch.m_cand);
+        if (Double.isNaN(dist)) {
+            return 0.0;
+        }
+        final ExplicitController.Grid is_grid = ctrl.get_is_grid();
+        if (cfg.m_is_complex) {
+            double score = 0.0;
+            for (int dof = 0; dof < u.length; ++dof) {
+                final double dof_dist = Math.abs(Math.abs(u[dof]) - near[dof]);
+                score += get_score(cfg, type, dof_dist,
+                        Math.max(1, is_grid.m_sizes[dof] - 1));
+            }
+            return score / u.length;
+        } else {
+            double diam = 0.0;
+            for (int dof = 0; dof < u.length; ++dof) {
+                final double len = Math.max(1, is_grid.m_sizes[dof] - 1);
+                diam += len * len;
+            }
+            return get_score(cfg, type, dist, Math.sqrt(diam));
+        }
+    }
+
+    /**
+     * Computes the point score based on the distance
+     *
+     * @param cfg the configuration
+     * @param type the fitness type
+     * @param dist the distance to the nearest allowed input
+     * @param diam the input grid size to relate the distance to
+     * @return the score in [0,1]
+     */
+    private static double get_score(final BackendConfig cfg,
+            final FitnessType type, final double dist, final double diam) {
+        if (Double.isNaN(dist) || Double.isInfinite(dist)) {
+            return 0.0;
+        }
+        if (dist <= cfg.m_attr_size) {
+            return 1.0;
+        }
+        final double rel = (dist - cfg.m_attr_size) / diam;
+        if (type == FitnessType.ATANG) {
+            return 1.0 - 2.0 * Math.atan(cfg.m_ftn_scale * rel) / Math.PI;
+        } else if (type == FitnessType.INVER) {
+            return 1.0 / (1.0 + cfg.m_ftn_scale * rel);
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Fits the per-dof scale and shift with least squares so that the scaled
+     * outputs approach the nearest allowed inputs.
+     *
+     * @param ctrl the controller
+     * @param sample the domain state indexes or null for the entire domain
+     * @param outs the produced input vectors
+     * @param scales the array to store the scales into
+     * @param shifts the array to store the shifts into
+     * @param scratch the scratch vectors
+     */
+    private static void fit_scaling(final ExplicitController ctrl,
+            final int[] sample, final double[][] outs,
+            final double[] scales, final double[] shifts, final Scratch scratch) {
+        final int num_dofs = scales.length;
+        final double[] near = scratch.m_near;
+        final double[] sum_f = new double[num_dofs];
+        final double[] sum_t = new double[num_dofs];
+        final double[] sum_ff = new double[num_dofs];
+        final double[] sum_ft = new double[num_dofs];
+        int num_pts = 0;
+        for (int idx = 0; idx < outs.length; ++idx) {
+            final int dom_idx = (sample == null) ? idx : sample[idx];
+            final double[] u = outs[idx];
+            final double dist = ctrl.get_nearest(dom_idx, u, near, scratch.m_cand);
+            if (Double.isNaN(dist) || Double.isInfinite(dist)) {
+                continue;
+            }
+            for (int dof = 0; dof < num_dofs; ++dof) {
+                final double val = u[dof];
+                final double tgt = near[dof];
+                sum_f[dof] += val;
+                sum_t[dof] += tgt;
+                sum_ff[dof] += val * val;
+                sum_ft[dof] += val * tgt;
+            }
+            ++num_pts;
+        }
+        for (int dof = 0; dof < num_dofs; ++dof) {
+            if (num_pts > 0) {
+                final double mean_f = sum_f[dof] / num_pts;
+                final double mean_t = sum_t[dof] / num_pts;
+                final double var_f = sum_ff[dof] / num_pts - mean_f * mean_f;
+                final double cov_ft = sum_ft[dof] / num_pts - mean_f * mean_t;
+                scales[dof] = (var_f > 0.0) ? cov_ft / var_f : 1.0;
+                shifts[dof] = mean_t - scales[dof] * mean_f;
+            } else {
+                scales[dof] = 1.0;
+                shifts[dof] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public Fitness store_unfit_points(
+            final String file_name, final Individual ind,
+            final ExportProgress progress)
+            throws IllegalAccessException, InvocationTargetException {
+        //Evaluate the individual on the entire domain, missuse the fintess
+        //compute class instance for compiling the individual's class
+        return new FitnessComputerClass() {
+            @Override
+            public Fitness compute_fitness(int mgr_id, String class_name)
+                    throws IllegalStateException, IllegalArgumentException,
+                    ClassNotFoundException, IllegalAccessException,
+                    InvocationTargetException {
+                return store_unfit_points(file_name, class_name, progress);
+            }
+        }.compute_fitness(ind.get_mgr_id(), ind.get_expr_array());
+    }
+
+    /**
+     * Stores the unfit points of the compiled individual's class, the domain
+     * is evaluated in chunks and the unfit states are stored sorted
+     *
+     * @param file_name the file name, without the extension
+     * @param class_name the individual's class name
+     * @param progress the export progress call back, or null
+     * @return the fitness of the individual on the entire controller's domain
+     * @throws ClassNotFoundException if the individual class is not found
+     * @throws IllegalAccessException if the individual is not accessible
+     * @throws InvocationTargetException if the evaluation or storing fails
+     */
+    Fitness store_unfit_points(final String file_name, final String class_name,
+            final ExportProgress progress) throws ClassNotFoundException,
+            IllegalAccessException, InvocationTargetException {
+        final ExplicitController ctrl = get_ctrl();
+        final MethodHandle eval = get_evaluator(class_name);
+        final int dom_size = ctrl.get_domain_size();
+        final int num_dofs = ctrl.get_is_dim();
+
+        //Evaluate the domain chunks in parallel, keep unfit states per chunk
+        final int[][] chunk_unfit = new int[get_num_chunks(dom_size)][];
+        export_chunks(dom_size, progress, (chunk_idx, begin, end) -> {
+            final double[] x = new double[ctrl.get_ss_dim()];
+            final int[] states = new int[(int) (end - begin)];
+            int num_states = 0;
+            for (int dom_idx = (int) begin; dom_idx < end; ++dom_idx) {
+                ctrl.get_state_vector(dom_idx, x);
+                final double[] u = evaluate(eval, x, num_dofs);
+                if (!ctrl.is_allowed(dom_idx, ctrl.get_input(u))) {
+                    states[num_states++] = ctrl.get_state(dom_idx);
+                }
+            }
+            chunk_unfit[chunk_idx] = Arrays.copyOf(states, num_states);
+        });
+
+        //Merge the chunks in order, the states stay sorted
+        int num_unfit = 0;
+        for (int[] states : chunk_unfit) {
+            num_unfit += states.length;
+        }
+        final int[] unfit = new int[num_unfit];
+        int pos = 0;
+        for (int[] states : chunk_unfit) {
+            System.arraycopy(states, 0, unfit, pos, states.length);
+            pos += states.length;
+        }
+        try {
+            ctrl.store_states(file_name + UNFIT_FILE_SUFFIX
+                    + CTRL_FILE_EXT, unfit, num_unfit);
+        } catch (IOException ex) {
+            throw new InvocationTargetException(ex);
+        }
+        return new Fitness((dom_size > 0)
+                ? ((double) (dom_size - num_unfit)) / dom_size : 0.0);
+    }
+}
@@ -0,0 +1,668 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Stores the explicit form of a SCOTSv2.0 static controller: the state and
+ * input space grids, the sorted array of the controller's domain state indexes
+ * and, per domain state, the bit set of the allowed input indexes. The arrays
+ * are stored off-heap. The grid indexes are flattened the way SCOTSv2.0 does
+ * it, the first dimension changes the fastest. Is immutable and thread safe.
+ *
+ * The controller is loaded from the SCOTSv2.0 text format of the static
+ * controller, i.e. the file written by {@code scots::write_to_file} without
+ * using BDDs. The {@code #TEXT:STATE_SPACE} and {@code #TEXT:INPUT_SPACE}
+ * sections must contain the {@code ETA}, {@code LOWER_LEFT} and
+ * {@code UPPER_RIGHT} vectors of the uniform grids. The winning domain is
+ * given by the sparse {@code #MATRIX:DATA} with one row per domain state, in
+ * increasing order: the state index followed by the allowed input indexes.
+ * The states with no allowed inputs are not in the controller's domain.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ExplicitController {
+
+    //Stores the version tag
+    private static final String VERSION_TAG = "#SCOTS:v2.0";
+    //Stores the text tag prefix, the text names the next section
+    private static final String TEXT_TAG = "#TEXT:";
+    //Stores the state space section tag
+    private static final String SS_TEXT_TAG = TEXT_TAG + "STATE_SPACE";
+    //Stores the input space section tag
+    private static final String IS_TEXT_TAG = TEXT_TAG + "INPUT_SPACE";
+    //Stores the uniform grid type tag
+    private static final String GRID_TYPE_TAG = "#TYPE:UNIFORMGRID";
+    //Stores the grid dimensionality member tag, the value is on the next line
+    private static final String DIM_MEMBER_TAG = "#MEMBER:DIM";
+    //Stores the vector tag prefix
+    private static final String VECTOR_TAG = "#VECTOR:";
+    //Stores the matrix tag prefix
+    private static final String MATRIX_TAG = "#MATRIX:";
+    //Stores the data begin tag prefix
+    private static final String BEGIN_TAG = "#BEGIN:";
+    //Stores the data end tag
+    private static final String END_TAG = "#END";
+    //Stores the grid vector names
+    private static final String ETA_NAME = "ETA";
+    private static final String LL_NAME = "LOWER_LEFT";
+    private static final String UR_NAME = "UPPER_RIGHT";
+    //Stores the number of bits in a bit set word
+    private static final int WORD_BITS = Long.SIZE;
+
+    /**
+     * Represents a uniform grid, as defined by SCOTSv2.0
+     */
+    static final class Grid {
+
+        //Stores the grid cell size per dimension
+        final double[] m_eta;
+        //Stores the lower left grid point per dimension
+        final double[] m_ll;
+        //Stores the upper right grid point per dimension
+        final double[] m_ur;
+        //Stores the number of grid points per dimension
+        final int[] m_sizes;
+        //Stores the flat index multipliers per dimension
+        final long[] m_mults;
+        //Stores the total number of grid points
+        final long m_size;
+
+        /**
+         * The basic constructor
+         *
+         * @param eta the grid cell size per dimension
+         * @param ll the lower left grid point per dimension
+         * @param ur the upper right grid point per dimension
+         */
+        Grid(final double[] eta, final double[] ll, final double[] ur) {
+            if ((eta.length != ll.length) || (eta.length != ur.length)
+                    || (eta.length == 0)) {
+                throw new IllegalArgumentException("Inconsistent grid dimensions: "
+                        + Arrays.toString(eta) + ", " + Arrays.toString(ll)
+                        + ", " + Arrays.toString(ur));
+            }
+            m_eta = eta;
+            m_ll = ll;
+            m_ur = ur;
+            m_sizes = new int[eta.length];
+            m_mults = new long[eta.length];
+            long size = 1;
+            for (int idx = 0; idx < eta.length; ++idx) {
+                m_sizes[idx] = (int) Math.round((ur[idx] - ll[idx]) / eta[idx]) + 1;
+                m_mults[idx] = size;
+                size *= m_sizes[idx];
+            }
+            m_size = size;
+        }
+
+        /**
+         * Allows to get the number of grid dimensions
+         *
+         * @return the number of dimensions
+         */
+        int get_dim() {
+            return m_sizes.length;
+        }
+
+        /**
+         * Converts the flat grid index into the per dimension indexes
+         *
+         * @param flat the flat grid index
+         * @param vec the vector to put the per dimension indexes into
+         */
+        void to_vector(final long flat, final double[] vec) {
+            for (int idx = 0; idx < m_sizes.length; ++idx) {
+                vec[idx] = (flat / m_mults[idx]) % m_sizes[idx];
+            }
+        }
+    }
+
+    //Stores the state space grid
+    private final Grid m_ss_grid;
+    //Stores the input space grid
+    private final Grid m_is_grid;
+    //Stores the number of bit set words per domain state
+    private final int m_num_words;
+    //Stores the sorted domain states, off-heap
+    private final IntBuffer m_states;
+    //Stores the allowed input bit sets per domain state, off-heap
+    private final LongBuffer m_inputs;
+
+    /**
+     * The basic constructor
+     *
+     * @param ss_grid the state space grid
+     * @param is_grid the input space grid
+     * @param states the sorted domain states
+     * @param inputs the allowed input bit sets per domain state
+     */
+    ExplicitController(final Grid ss_grid, final Grid is_grid,
+            final IntBuffer states, final LongBuffer inputs) {
+        if (ss_grid.m_size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The state space size "
+                    + ss_grid.m_size + " is too large");
+        }
+        m_ss_grid = ss_grid;
+        m_is_grid = is_grid;
+        m_num_words = get_num_words(is_grid);
+        if (inputs.capacity() < get_num_longs(states.capacity(), m_num_words)) {
+            throw new IllegalArgumentException("The allowed inputs of "
+                    + states.capacity() + " states need " + m_num_words
+                    + " words each, got: " + inputs.capacity());
+        }
+        m_states = states;
+        m_inputs = inputs;
+    }
+
+    /**
+     * Allows to get the number of bit set words needed to store the allowed
+     * inputs of one state
+     *
+     * @param is_grid the input space grid
+     * @return the number of words
+     */
+    static int get_num_words(final Grid is_grid) {
+        return (int) ((is_grid.m_size + WORD_BITS - 1) / WORD_BITS);
+    }
+
+    /**
+     * Allows to get the number of bit set words needed to store the allowed
+     * inputs of the given number of states, the product is computed in long
+     * and is checked to fit into an off-heap long buffer.
+     *
+     * @param num_states the number of states
+     * @param num_words the number of words per state
+     * @return the number of words
+     * @throws IllegalArgumentException if there are too many words
+     */
+    static int get_num_longs(final long num_states, final int num_words)
+            throws IllegalArgumentException {
+        final long num_longs = num_states * num_words;
+        if ((num_states < 0) || (num_longs > Integer.MAX_VALUE / Long.BYTES)) {
+            throw new IllegalArgumentException("The allowed inputs of "
+                    + num_states + " states, " + num_words
+                    + " words each, do not fit into a buffer");
+        }
+        return (int) num_longs;
+    }
+
+    /**
+     * Allows to allocate an off-heap int buffer
+     *
+     * @param size the number of elements
+     * @return the buffer
+     */
+    static IntBuffer alloc_ints(final int size) {
+        return ByteBuffer.allocateDirect(size * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Allows to allocate an off-heap long buffer
+     *
+     * @param size the number of elements
+     * @return the buffer
+     */
+    static LongBuffer alloc_longs(final int size) {
+        return ByteBuffer.allocateDirect(size * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Allows to get the state space grid
+     *
+     * @return the state space grid
+     */
+    Grid get_ss_grid() {
+        return m_ss_grid;
+    }
+
+    /**
+     * Allows to get the input space grid
+     *
+     * @return the input space grid
+     */
+    Grid get_is_grid() {
+        return m_is_grid;
+    }
+
+    /**
+     * Allows to get the off-heap domain states
+     *
+     * @return the domain states buffer
+     */
+    IntBuffer get_states() {
+        return m_states;
+    }
+
+    /**
+     * Allows to get the off-heap allowed input bit sets
+     *
+     * @return the bit sets buffer
+     */
+    LongBuffer get_inputs() {
+        return m_inputs;
+    }
+
+    /**
+     * Allows to get the number of state-space dimensions
+     *
+     * @return the number of state-space dimensions
+     */
+    public int get_ss_dim() {
+        return m_ss_grid.get_dim();
+    }
+
+    /**
+     * Allows to get the number of input-space dimensions
+     *
+     * @return the number of input-space dimensions
+     */
+    public int get_is_dim() {
+        return m_is_grid.get_dim();
+    }
+
+    /**
+     * Allows to get the state space size, i.e. the number of state grid points
+     *
+     * @return the state space size
+     */
+    public int get_ss_size() {
+        return (int) m_ss_grid.m_size;
+    }
+
+    /**
+     * Allows to get the domain size, i.e. the number of states with allowed
+     * inputs
+     *
+     * @return the domain size
+     */
+    public int get_domain_size() {
+        return m_states.capacity();
+    }
+
+    /**
+     * Allows to get the domain state
+     *
+     * @param dom_idx the domain state index
+     * @return the flat state grid index
+     */
+    public int get_state(final int dom_idx) {
+        return m_states.get(dom_idx);
+    }
+
+    /**
+     * Converts the domain state into the abstract state vector, i.e. the grid
+     * indexes per state-space dimension
+     *
+     * @param dom_idx the domain state index
+     * @param x the vector to store the state into
+     */
+    public void get_state_vector(final int dom_idx, final double[] x) {
+        m_ss_grid.to_vector(m_states.get(dom_idx), x);
+    }
+
+    /**
+     * Allows to get the flat input grid index of the input vector by applying
+     * round(abs(.)) to its values
+     *
+     * @param u the input vector
+     * @return the flat input index or -1 if the input is outside of the grid
+     */
+    public long get_input(final double[] u) {
+        long flat = 0;
+        for (int idx = 0; idx < u.length; ++idx) {
+            if (Double.isNaN(u[idx]) || Double.isInfinite(u[idx])) {
+                return -1;
+            }
+            final long val = Math.round(Math.abs(u[idx]));
+            if (val >= m_is_grid.m_sizes[idx]) {
+                return -1;
+            }
+            flat += val * m_is_grid.m_mults[idx];
+        }
+        return flat;
+    }
+
+    /**
+     * Checks if the input is allowed in the domain state
+     *
+     * @param dom_idx the domain state index
+     * @param input the flat input index, or -1 if none
+     * @return true if the input is allowed
+     */
+    public boolean is_allowed(final int dom_idx, final long input) {
+        if (input >= 0) {
+            final long word = m_inputs.get((int) (((long) dom_idx) * m_num_words
+                    + input / WORD_BITS));
+            return (word & (1L << (input % WORD_BITS))) != 0;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the allowed input of the domain state nearest to the given input
+     * vector, in terms of the Euclidean distance.
+     *
+     * @param dom_idx the domain state index
+     * @param u the input vector
+     * @param nearest the vector to store the nearest allowed input into
+     * @param cand the scratch vector of the size of u, for the candidates
+     * @return the distance to the nearest allowed input
+     */
+    public double get_nearest(final int dom_idx, final double[] u,
+            final double[] nearest, final double[] cand) {
+        double min_dist = Double.POSITIVE_INFINITY;
+        final int base = (int) (((long) dom_idx) * m_num_words);
+        for (int w_idx = 0; w_idx < m_num_words; ++w_idx) {
+            long word = m_inputs.get(base + w_idx);
+            while (word != 0) {
+                final int bit = Long.numberOfTrailingZeros(word);
+                word &= (word - 1);
+                m_is_grid.to_vector(((long) w_idx) * WORD_BITS + bit, cand);
+                double dist = 0.0;
+                for (int idx = 0; idx < u.length; ++idx) {
+                    final double diff = Math.abs(u[idx]) - cand[idx];
+                    dist += diff * diff;
+                }
+                if (dist < min_dist) {
+                    min_dist = dist;
+                    System.arraycopy(cand, 0, nearest, 0, cand.length);
+                }
+            }
+        }
+        return Math.sqrt(min_dist);
+    }
+
+    /**
+     * Allows to load the controller from the SCOTSv2.0 text file
+     *
+     * @param file_name the controller file name
+     * @return the loaded controller
+     * @throws IOException if the file could not be read or is malformed
+     */
+    public static ExplicitController load(final String file_name) throws IOException {
+        final Path path = Paths.get(file_name);
+        double[][] ss_vecs = new double[4][];
+        double[][] is_vecs = new double[4][];
+        double[][] curr_vecs = null;
+        try (final BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith(SS_TEXT_TAG)) {
+                    curr_vecs = ss_vecs;
+                } else if (line.startsWith(IS_TEXT_TAG)) {
+                    curr_vecs = is_vecs;
+                } else if (line.startsWith(TEXT_TAG)) {
+                    curr_vecs = null;
+                } else if (line.startsWith(DIM_MEMBER_TAG) && (curr_vecs != null)) {
+                    final String value = reader.readLine();
+                    if (value == null) {
+                        throw new IOException("Missing value of: " + DIM_MEMBER_TAG);
+                    }
+                    curr_vecs[3] = new double[]{Integer.parseInt(value.trim())};
+                } else if (line.startsWith(VECTOR_TAG) && (curr_vecs != null)) {
+                    final String name = line.substring(VECTOR_TAG.length()).trim();
+                    final double[] vec = read_vector(reader, name);
+                    if (ETA_NAME.equals(name)) {
+                        curr_vecs[0] = vec;
+                    } else if (LL_NAME.equals(name)) {
+                        curr_vecs[1] = vec;
+                    } else if (UR_NAME.equals(name)) {
+                        curr_vecs[2] = vec;
+                    }
+                } else if (line.startsWith(MATRIX_TAG)) {
+                    final Grid ss_grid = make_grid(ss_vecs, SS_TEXT_TAG);
+                    final Grid is_grid = make_grid(is_vecs, IS_TEXT_TAG);
+                    return read_matrix(reader, ss_grid, is_grid);
+                }
+            }
+        }
+        throw new IOException("No " + MATRIX_TAG + " winning domain found in: "
+                + file_name + ", expected the static controller written by "
+                + "SCOTSv2.0 without BDDs, not the BDD meta-data file");
+    }
+
+    /**
+     * Allows to create the grid from the read vectors
+     *
+     * @param vecs the eta, lower left and upper right vectors, and the
+     * optional dimensionality
+     * @param section the section name for error reporting
+     * @return the grid
+     * @throws IOException if one of the vectors is missing
+     */
+    private static Grid make_grid(final double[][] vecs, final String section)
+            throws IOException {
+        if ((vecs[0] == null) || (vecs[1] == null) || (vecs[2] == null)) {
+            throw new IOException("Incomplete grid definition in: " + section);
+        }
+        if ((vecs[3] != null) && (vecs[3][0] != vecs[0].length)) {
+            throw new IOException("The grid dimensionality " + ((int) vecs[3][0])
+                    + " does not match the vectors in: " + section);
+        }
+        try {
+            return new Grid(vecs[0], vecs[1], vecs[2]);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage() + " in: " + section);
+        }
+    }
+
+    /**
+     * Allows to read the begin tag values
+     *
+     * @param reader the reader
+     * @param name the vector/matrix name for error reporting
+     * @return the sizes given in the begin tag
+     * @throws IOException if the begin tag is missing or malformed
+     */
+    private static long[] read_begin(final BufferedReader reader, final String name)
+            throws IOException {
+        final String line = reader.readLine();
+        if ((line == null) || !line.trim().startsWith(BEGIN_TAG)) {
+            throw new IOException("Missing " + BEGIN_TAG + " for: " + name);
+        }
+        final String[] vals = line.trim().substring(BEGIN_TAG.length()).trim().split("\\s+");
+        final long[] sizes = new long[vals.length];
+        for (int idx = 0; idx < vals.length; ++idx) {
+            sizes[idx] = Long.parseLong(vals[idx]);
+        }
+        return sizes;
+    }
+
+    /**
+     * Allows to read a vector of doubles
+     *
+     * @param reader the reader
+     * @param name the vector name
+     * @return the vector
+     * @throws IOException if the vector is malformed
+     */
+    private static double[] read_vector(final BufferedReader reader, final String name)
+            throws IOException {
+        final double[] vec = new double[(int) read_begin(reader, name)[0]];
+        for (int idx = 0; idx < vec.length; ++idx) {
+            final String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Unexpected end of vector: " + name);
+            }
+            vec[idx] = Double.parseDouble(line.trim());
+        }
+        return vec;
+    }
+
+    /**
+     * Allows to get the number of bit set words for the read states
+     *
+     * @param num_states the number of states
+     * @param num_words the number of words per state
+     * @return the number of words
+     * @throws IOException if there are too many words
+     */
+    private static int to_num_longs(final long num_states, final int num_words)
+            throws IOException {
+        try {
+            return get_num_longs(num_states, num_words);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Allows to read the controller's sparse winning domain matrix
+     *
+     * @param reader the reader
+     * @param ss_grid the state space grid
+     * @param is_grid the input space grid
+     * @return the controller
+     * @throws IOException if the matrix is malformed
+     */
+    private static ExplicitController read_matrix(final BufferedReader reader,
+            final Grid ss_grid, final Grid is_grid) throws IOException {
+        final long[] sizes = read_begin(reader, MATRIX_TAG);
+        if ((sizes.length != 2) || (sizes[0] != ss_grid.m_size)
+                || (sizes[1] != is_grid.m_size)) {
+            throw new IOException("The controller matrix size "
+                    + Arrays.toString(sizes) + " does not match the grid sizes: "
+                    + ss_grid.m_size + " x " + is_grid.m_size);
+        }
+        if ((ss_grid.m_size > Integer.MAX_VALUE) || (is_grid.m_size > Integer.MAX_VALUE)) {
+            throw new IOException("The controller matrix size "
+                    + Arrays.toString(sizes) + " is too large");
+        }
+
+        //Read the rows into the on-heap growable arrays first
+        final int num_words = get_num_words(is_grid);
+        int[] states = new int[(int) Math.min(1024, ss_grid.m_size)];
+        long[] inputs = new long[to_num_longs(states.length, num_words)];
+        int dom_size = 0;
+        int prev_state = -1;
+        final long[] row = new long[num_words];
+        String line;
+        while (((line = reader.readLine()) != null)
+                && !(line = line.trim()).startsWith(END_TAG)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] vals = line.split("\\s+");
+            final int state = Integer.parseInt(vals[0]);
+            if ((state <= prev_state) || (state >= ss_grid.m_size)) {
+                throw new IOException("The controller matrix state " + state
+                        + " is out of range or order, previous: " + prev_state);
+            }
+            prev_state = state;
+            if (vals.length == 1) {
+                continue;
+            }
+            Arrays.fill(row, 0L);
+            for (int idx = 1; idx < vals.length; ++idx) {
+                final long input = Long.parseLong(vals[idx]);
+                if ((input < 0) || (input >= is_grid.m_size)) {
+                    throw new IOException("The controller matrix input " + input
+                            + " of state " + state + " is out of range");
+                }
+                row[(int) (input / WORD_BITS)] |= (1L << (input % WORD_BITS));
+            }
+            if (dom_size == states.length) {
+                states = Arrays.copyOf(states, (int) Math.min(
+                        2L * states.length, ss_grid.m_size));
+                inputs = Arrays.copyOf(inputs, to_num_longs(states.length, num_words));
+            }
+            states[dom_size] = state;
+            System.arraycopy(row, 0, inputs, dom_size * num_words, num_words);
+            ++dom_size;
+        }
+        if (line == null) {
+            throw new IOException("Unexpected end of the controller matrix");
+        }
+
+        //Move the data off-heap
+        final IntBuffer states_buf = alloc_ints(dom_size);
+        states_buf.put(states, 0, dom_size).rewind();
+        final int num_longs = to_num_longs(dom_size, num_words);
+        final LongBuffer inputs_buf = alloc_longs(num_longs);
+        inputs_buf.put(inputs, 0, num_longs).rewind();
+        return new ExplicitController(ss_grid, is_grid, states_buf, inputs_buf);
+    }
+
+    /**
+     * Allows to store the given states as a SCOTSv2.0 styled text file, along
+     * with the state space grid
+     *
+     * @param file_name the file name
+     * @param states the flat state grid indexes
+     * @param num_states the number of states in the array to store
+     * @throws IOException if the file could not be written
+     */
+    public void store_states(final String file_name, final int[] states,
+            final int num_states) throws IOException {
+        try (final BufferedWriter writer = Files.newBufferedWriter(Paths.get(file_name))) {
+            writer.write(VERSION_TAG + "\n");
+            writer.write(SS_TEXT_TAG + "\n");
+            writer.write(GRID_TYPE_TAG + "\n");
+            writer.write(DIM_MEMBER_TAG + "\n" + m_ss_grid.get_dim() + "\n");
+            write_vector(writer, ETA_NAME, m_ss_grid.m_eta);
+            write_vector(writer, LL_NAME, m_ss_grid.m_ll);
+            write_vector(writer, UR_NAME, m_ss_grid.m_ur);
+            writer.write(VECTOR_TAG + "STATES\n");
+            writer.write(BEGIN_TAG + num_states + "\n");
+            for (int idx = 0; idx < num_states; ++idx) {
+                writer.write(Integer.toString(states[idx]));
+                writer.write('\n');
+            }
+            writer.write(END_TAG + "\n");
+        }
+    }
+
+    /**
+     * Allows to write a vector of doubles
+     *
+     * @param writer the writer
+     * @param name the vector name
+     * @param vec the vector
+     * @throws IOException if the writing fails
+     */
+    private static void write_vector(final BufferedWriter writer,
+            final String name, final double[] vec) throws IOException {
+        writer.write(VECTOR_TAG + name + "\n");
+        writer.write(BEGIN_TAG + vec.length + "\n");
+        for (double val : vec) {
+            writer.write(Double.toString(val));
+            writer.write('\n');
+        }
+        writer.write(END_TAG + "\n");
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.FileNotFoundException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.scots2sr.metrics.LatencyHistogram;
+import nl.tudelft.dcsc.scots2sr.metrics.Metrics;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessComputerClass;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The base class for the fitness computing backends. Realizes the fitness
+ * cache and the fitness request batching that are shared by all the backends.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public abstract class FitnessBackend extends FitnessComputerClass {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(FitnessBackend.class.getName());
+
+    //Stores the unfit points file suffix for the BDD file name
+    public static final String UNFIT_FILE_SUFFIX = ".unfit";
+
+    //Stores the number of domain points per unfit points export chunk
+    protected static final int EXPORT_CHUNK_SIZE = 1 << 16;
+
+    //Stores the number of threads exporting the domain chunks
+    private static final int NUM_EXPORT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    //Stores the executor of the domain chunk exports
+    private static final ThreadPoolExecutor EXPORT_EXECUTOR = new ThreadPoolExecutor(
+            NUM_EXPORT_THREADS, NUM_EXPORT_THREADS, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), (Runnable runnable) -> {
+                final Thread thread = new Thread(runnable, "unfit-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    //Let the idle export threads end between the exports
+    static {
+        EXPORT_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    //Stores the fitness computation latency histogram, cache hits excluded
+    private static final LatencyHistogram FITNESS_LATENCY
+            = Metrics.INSTANCE.histogram(Metrics.FITNESS);
+
+    /**
+     * The call back interface for the unfit points export progress, may be
+     * called from several threads
+     */
+    @FunctionalInterface
+    public interface ExportProgress {
+
+        /**
+         * Is called once another domain chunk is exported, or once before a
+         * single pass export with an unknown total, the progress is then
+         * indeterminate until the export is finished
+         *
+         * @param done_cnt the number of exported domain points
+         * @param total_cnt the total number of domain points, &le; 0 if unknown
+         */
+        public void update_progress(final long done_cnt, final long total_cnt);
+    }
+
+    /**
+     * The export task of a domain chunk
+     */
+    @FunctionalInterface
+    protected interface ChunkTask {
+
+        /**
+         * Exports the chunk of domain points
+         *
+         * @param chunk_idx the chunk index
+         * @param begin the first domain point index, inclusive
+         * @param end the last domain point index, exclusive
+         * @throws InvocationTargetException if the export fails
+         */
+        public void export(final int chunk_idx, final long begin, final long end)
+                throws InvocationTargetException;
+    }
+
+    /**
+     * The batching settings along with the batchers created with them
+     */
+    private static final class Batching {
+
+        //Stores the maximum batch size
+        final int m_max_size;
+        //Stores the maximum linger time in micro seconds
+        final long m_max_linger_us;
+        //Stores the batchers per process manager id
+        final ConcurrentMap<Integer, FitnessBatcher> m_batchers;
+
+        Batching(final int max_size, final long max_linger_us) {
+            m_max_size = max_size;
+            m_max_linger_us = max_linger_us;
+            m_batchers = new ConcurrentHashMap<>();
+        }
+    }
+
+    //Stores the backend the fitness cache gauges report on, or null
+    private static volatile FitnessBackend m_cache_owner = null;
+
+    //Register the fitness cache gauges, once
+    static {
+        Metrics.INSTANCE.gauge(Metrics.CACHE_HITS, () -> get_cache_hits(m_cache_owner));
+        Metrics.INSTANCE.gauge(Metrics.CACHE_MISSES, () -> get_cache_misses(m_cache_owner));
+        Metrics.INSTANCE.gauge(Metrics.CACHE_HIT_RATIO, () -> {
+            final FitnessBackend owner = m_cache_owner;
+            final long hits = get_cache_hits(owner);
+            final long total = hits + get_cache_misses(owner);
+            return (total > 0) ? ((double) hits) / total : 0.0;
+        });
+    }
+
+    //Stores the fitness cache, null if none
+    private volatile FitnessCache m_cache;
+    //Stores the flag indicating that the cache is bypassed, as the fitness
+    //is a Monte Carlo estimate that must not be reused
+    private volatile boolean m_is_cache_bypass;
+    //Stores the fitness request batching, null if none
+    private volatile Batching m_batching;
+
+    /**
+     * Allows to load the controller
+     *
+     * @param file_name the file name to load the controller form
+     * @return the number of controller dimensions
+     * @throws java.io.FileNotFoundException if the controller file is not found
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    public abstract int load(final String file_name) throws FileNotFoundException,
+            IllegalAccessException, IllegalArgumentException, InvocationTargetException;
+
+    /**
+     * Allows to get the controller's state space size. I.e. the number of
+     * state-space grid points. This value is larger than the domain size.
+     *
+     * @param ss_dim the number of state-space dimensions
+     *
+     * @return the loaded controller's state-space size.
+     * @throws IllegalArgumentException if one of the configuration parameters
+     * has an incorrect value
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    public abstract int get_state_space_size(final int ss_dim) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Allows to configure the fitness computer
+     *
+     * @param cfg the configuration object
+     * @throws IllegalArgumentException if one of the configuration parameters
+     * has an incorrect value
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    public abstract void configure(final BackendConfig cfg) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Allows to store the unfit points for the resulting symbolic controller
+     *
+     * @param file_name the file name, without the extension
+     * @param ind stores the best fit individual
+     * @return the fitness of the individual on the entire controller's domain
+     * @throws java.lang.IllegalAccessException if the backend illegal access
+     * occurs
+     * @throws java.lang.reflect.InvocationTargetException if the backend target
+     * can not be invoked
+     */
+    public Fitness store_unfit_points(
+            final String file_name, final Individual ind)
+            throws IllegalAccessException, InvocationTargetException {
+        return store_unfit_points(file_name, ind, null);
+    }
+
+    /**
+     * Allows to store the unfit points for the resulting symbolic controller,
+     * reports the export progress
+     *
+     * @param file_name the file name, without the extension
+     * @param ind stores the best fit individual
+     * @param progress the export progress call back, or null
+     * @return the fitness of the individual on the entire controller's domain
+     * @throws java.lang.IllegalAccessException if the backend illegal access
+     * occurs
+     * @throws java.lang.reflect.InvocationTargetException if the backend target
+     * can not be invoked
+     */
+    public abstract Fitness store_unfit_points(
+            final String file_name, final Individual ind,
+            final ExportProgress progress)
+            throws IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Allows to get the number of export chunks for the domain
+     *
+     * @param total_cnt the number of domain points
+     * @return the number of chunks
+     */
+    protected static int get_num_chunks(final long total_cnt) {
+        return (int) ((total_cnt + EXPORT_CHUNK_SIZE - 1) / EXPORT_CHUNK_SIZE);
+    }
+
+    /**
+     * Exports the domain in chunks of EXPORT_CHUNK_SIZE points, the chunks
+     * are exported in parallel on the dedicated executor, bounded by the
+     * number of processors, and the progress is reported per chunk
+     *
+     * @param total_cnt the number of domain points
+     * @param progress the export progress call back, or null
+     * @param task the chunk export task
+     * @throws InvocationTargetException if one of the chunk exports fails or
+     * the export is interrupted
+     */
+    protected static void export_chunks(final long total_cnt,
+            final ExportProgress progress, final ChunkTask task)
+            throws InvocationTargetException {
+        final AtomicLong done_cnt = new AtomicLong();
+        if (progress != null) {
+            progress.update_progress(0, total_cnt);
+        }
+        final int num_chunks = get_num_chunks(total_cnt);
+        final List<Future<Void>> futures = new ArrayList<>(num_chunks);
+        try {
+            for (int idx = 0; idx < num_chunks; ++idx) {
+                final int chunk_idx = idx;
+                futures.add(EXPORT_EXECUTOR.submit(() -> {
+                    final long begin = ((long) chunk_idx) * EXPORT_CHUNK_SIZE;
+                    final long end = Math.min(total_cnt, begin + EXPORT_CHUNK_SIZE);
+                    task.export(chunk_idx, begin, end);
+                    final long done = done_cnt.addAndGet(end - begin);
+                    if (progress != null) {
+                        progress.update_progress(done, total_cnt);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof InvocationTargetException) {
+                throw (InvocationTargetException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new InvocationTargetException(cause);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InvocationTargetException(ex, "The unfit points export is interrupted");
+        } finally {
+            //Do not leave the remaining chunks running after a failure
+            futures.forEach((future) -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Must be called by the backend once a new controller is loaded, makes
+     * all the cached fitness values invalid.
+     */
+    protected void controller_loaded() {
+        final FitnessCache cache = m_cache;
+        if (cache != null) {
+            cache.set_config(null);
+        }
+    }
+
+    /**
+     * Must be called by the backend once it is configured, only a different
+     * configuration makes the cached fitness values invalid.
+     *
+     * @param cfg the new configuration
+     */
+    protected void configured(final BackendConfig cfg) {
+        m_is_cache_bypass = cfg.m_is_monte_carlo;
+        final FitnessCache cache = m_cache;
+        if (cache != null) {
+            if (cache.set_config(cfg.get_fingerprint())) {
+                LOGGER.log(Level.INFO, "The fitness cache is cleared");
+            }
+            if (m_is_cache_bypass) {
+                LOGGER.log(Level.INFO, "The fitness cache is not used "
+                        + "with the Monte Carlo fitness");
+            }
+        }
+    }
+
+    /**
+     * Allows to configure the fitness cache, the cached values are keyed by
+     * the individual's expressions and are dropped once the controller or the
+     * fitness configuration change. The cache is bypassed with the Monte
+     * Carlo fitness. Makes the fitness cache gauges report on this backend.
+     *
+     * @param max_size the maximum number of cached values, a value &le; 0
+     * disables caching
+     */
+    public void set_caching(final int max_size) {
+        m_cache_owner = this;
+        if (max_size > 0) {
+            final FitnessCache cache = m_cache;
+            if ((cache == null) || (cache.get_max_size() != max_size)) {
+                LOGGER.log(Level.INFO, "Fitness cache max size: {0}", max_size);
+                m_cache = new FitnessCache(max_size);
+            }
+        } else {
+            m_cache = null;
+        }
+    }
+
+    /**
+     * Allows to get the number of fitness cache hits, is lock free
+     *
+     * @param backend the backend, or null
+     * @return the number of hits, 0 if the cache is disabled
+     */
+    private static long get_cache_hits(final FitnessBackend backend) {
+        final FitnessCache cache = (backend != null) ? backend.m_cache : null;
+        return (cache != null) ? cache.get_hits() : 0L;
+    }
+
+    /**
+     * Allows to get the number of fitness cache misses, is lock free
+     *
+     * @param backend the backend, or null
+     * @return the number of misses, 0 if the cache is disabled
+     */
+    private static long get_cache_misses(final FitnessBackend backend) {
+        final FitnessCache cache = (backend != null) ? backend.m_cache : null;
+        return (cache != null) ? cache.get_misses() : 0L;
+    }
+
+    /**
+     * Allows to get the fitness cache statistics
+     *
+     * @return the fitness cache statistics as text, or null if the cache is
+     * disabled
+     */
+    public String get_cache_stats() {
+        final FitnessCache cache = m_cache;
+        if (cache != null) {
+            final long hits = cache.get_hits();
+            final long total = hits + cache.get_misses();
+            final double ratio = (total > 0) ? ((double) hits) / total : 0.0;
+            return "hits: " + hits + "/" + total
+                    + " (" + Math.round(ratio * 100.0) + "%), size: "
+                    + cache.get_size();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Allows to check if the backend evaluates a batch of individuals faster
+     * than one by one, e.g. in a single sweep over the domain states
+     *
+     * @return true if batch evaluation is supported, false by default
+     */
+    protected boolean is_batch_supported() {
+        return false;
+    }
+
+    /**
+     * Allows to configure coalescing of concurrent fitness requests of the
+     * same process manager into batches. This only pays off if the backend
+     * supports batch evaluation, otherwise batching is left disabled as the
+     * batch would be evaluated one by one in the leader thread, serializing
+     * the workers.
+     *
+     * @param max_size the maximum batch size, a value &le; 1 disables batching
+     * @param max_linger_us the maximum time in micro seconds to wait for a
+     * batch to fill up
+     * @return true if batching is enabled, otherwise false
+     */
+    public boolean set_batching(final int max_size, final long max_linger_us) {
+        if ((max_size > 1) && !is_batch_supported()) {
+            LOGGER.log(Level.WARNING, "Fitness batching is requested but the "
+                    + "backend has no batch evaluation, batching is disabled");
+            m_batching = null;
+        } else if (max_size > 1) {
+            LOGGER.log(Level.INFO, "Fitness batching: max size {0}, "
+                    + "max linger {1} us", new Object[]{max_size, max_linger_us});
+            m_batching = new Batching(max_size, max_linger_us);
+        } else {
+            m_batching = null;
+        }
+        return (m_batching != null);
+    }
+
+    /**
+     * Allows to get the batcher of the given process manager
+     *
+     * @param mgr_id the process manager id
+     * @return the batcher, or null if batching is disabled
+     */
+    private FitnessBatcher get_batcher(final int mgr_id) {
+        final Batching batching = m_batching;
+        if (batching != null) {
+            return batching.m_batchers.computeIfAbsent(mgr_id,
+                    (id) -> new FitnessBatcher(id, this::compute_fitness_batch,
+                            (id_1, names) -> new Fitness[]{
+                                compute_single(id_1, names[0])},
+                            batching.m_max_size, batching.m_max_linger_us));
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Allows to compute the fitness of a single individual class, without
+     * batching
+     *
+     * @param mgr_id the process manager id
+     * @param class_name the individual class name
+     * @return the fitness
+     * @throws IllegalStateException if the backend is not ready
+     * @throws IllegalArgumentException if the configuration is incorrect
+     * @throws ClassNotFoundException if the individual class is not found
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    protected abstract Fitness compute_single(final int mgr_id, final String class_name)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException;
+
+    /**
+     * Allows to compute the fitness of many individual classes of the same
+     * process manager in one call, by default evaluates them one by one.
+     *
+     * @param mgr_id the process manager id
+     * @param class_names the individual class names
+     * @return the array of fitness objects in the same order as class names
+     * @throws ClassNotFoundException if an individual class is not found
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    public Fitness[] compute_fitness_batch(
+            final int mgr_id, final String[] class_names)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final Fitness[] ftns = new Fitness[class_names.length];
+        for (int idx = 0; idx < class_names.length; ++idx) {
+            ftns[idx] = compute_single(mgr_id, class_names[idx]);
+        }
+        return ftns;
+    }
+
+    @Override
+    public Fitness compute_fitness(final int mgr_id, final String class_name)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final FitnessBatcher batcher = get_batcher(mgr_id);
+        return (batcher != null)
+                ? batcher.compute(class_name) : compute_single(mgr_id, class_name);
+    }
+
+    /**
+     * Computes the fitness by the backend and records its latency
+     *
+     * @param mgr_id the process manager id
+     * @param exprs the individual's expressions
+     * @return the computed fitness
+     */
+    private Fitness compute_timed(final int mgr_id, final String[] exprs) {
+        final long start_ns = System.nanoTime();
+        try {
+            return super.compute_fitness(mgr_id, exprs);
+        } finally {
+            FITNESS_LATENCY.record_since(start_ns);
+        }
+    }
+
+    @Override
+    public Fitness compute_fitness(final int mgr_id, final String[] exprs) {
+        final FitnessCache cache = m_cache;
+        if ((cache != null) && !m_is_cache_bypass) {
+            final String key = FitnessCache.get_key(exprs);
+            final long generation = cache.get_generation();
+            Fitness ftn = cache.get(key);
+            if (ftn == null) {
+                ftn = compute_timed(mgr_id, exprs);
+                if (ftn != null) {
+                    cache.put(key, ftn, generation);
+                }
+            }
+            return ftn;
+        } else {
+            return compute_timed(mgr_id, exprs);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+
+/**
+ * Coalesces concurrent single fitness requests of the worker threads of one
+ * process manager into micro-batches. The first thread that finds no batch being collected becomes
+ * the leader, lingers for at most the given time for the batch to fill up,
+ * takes it from the queue and evaluates it in one call. The next batch may be
+ * collected by another leader while the previous ones are being evaluated. The
+ * other threads wait for their results to be delivered, or to be woken up to
+ * lead the next batch.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+class FitnessBatcher {
+
+    /**
+     * The batch fitness computer interface
+     */
+    @FunctionalInterface
+    interface BatchComputer {
+
+        /**
+         * Computes the fitness of a batch of individual classes
+         *
+         * @param mgr_id the process manager id
+         * @param class_names the individual class names
+         * @return the fitness values, in the same order
+         * @throws ClassNotFoundException if an individual class is not found
+         * @throws IllegalAccessException if the backend invocation has failed
+         * @throws InvocationTargetException if the backend invocation has failed
+         */
+        Fitness[] compute(final int mgr_id, final String[] class_names)
+                throws ClassNotFoundException, IllegalAccessException,
+                InvocationTargetException;
+    }
+
+    /**
+     * Represents a single pending fitness request
+     */
+    private static final class Request {
+
+        //Stores the individual class name
+        private final String m_class_name;
+        //Stores the computed fitness
+        private Fitness m_ftn;
+        //Stores the exception if the computation failed
+        private Exception m_ex;
+        //Stores the flag indicating that the request is done
+        private boolean m_is_done;
+        //Stores the flag indicating that the waiting thread is to try leading
+        private boolean m_is_woken;
+
+        Request(final String class_name) {
+            m_class_name = class_name;
+            m_ftn = null;
+            m_ex = null;
+            m_is_done = false;
+            m_is_woken = false;
+        }
+
+        /**
+         * Marks the request as done and wakes up the waiting thread
+         *
+         * @param ftn the fitness or null if failed
+         * @param ex the exception or null if succeeded
+         */
+        synchronized void done(final Fitness ftn, final Exception ex) {
+            m_ftn = ftn;
+            m_ex = ex;
+            m_is_done = true;
+            this.notifyAll();
+        }
+
+        /**
+         * Wakes up the waiting thread to try to lead the next batch
+         */
+        synchronized void wake() {
+            m_is_woken = true;
+            this.notifyAll();
+        }
+
+        /**
+         * Checks if the request is done
+         *
+         * @return true if the request is done
+         */
+        synchronized boolean is_done() {
+            return m_is_done;
+        }
+
+        /**
+         * Waits for the request to be done, at most the given time
+         *
+         * @param max_wait_ms the maximum waiting time in milliseconds
+         * @return true if the request is done
+         */
+        synchronized boolean await(final long max_wait_ms) {
+            if (!m_is_done && !m_is_woken) {
+                try {
+                    this.wait(max_wait_ms);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            m_is_woken = false;
+            return m_is_done;
+        }
+    }
+
+    //Stores the waiting time of a follower thread, is a safety net only as
+    //the followers are woken up once done or once a leader is needed
+    private static final long MAX_WAIT_MS = 100;
+    //Stores the leader's parking time slice when lingering, in nano seconds
+    private static final long PARK_SLICE_NS = 20000;
+
+    //Stores the process manager id
+    private final int m_mgr_id;
+    //Stores the batch computer
+    private final BatchComputer m_batch;
+    //Stores the single computer to be used if the batch fails
+    private final BatchComputer m_single;
+    //Stores the maximum batch size
+    private final int m_max_size;
+    //Stores the maximum linger time in nano seconds
+    private final long m_max_linger_ns;
+    //Stores the pending requests
+    private final Queue<Request> m_queue;
+    //Stores the number of pending requests
+    private final AtomicInteger m_num_pending;
+    //Stores the flag indicating that a leader thread is collecting a batch
+    private final AtomicBoolean m_is_collecting;
+
+    /**
+     * The basic constructor
+     *
+     * @param mgr_id the process manager id of the batched requests
+     * @param batch the batch fitness computer
+     * @param single the computer used to evaluate a failed batch one by one
+     * @param max_size the maximum batch size, &gt; 1
+     * @param max_linger_us the maximum linger time in micro seconds
+     */
+    FitnessBatcher(final int mgr_id, final BatchComputer batch,
+            final BatchComputer single, final int max_size,
+            final long max_linger_us) {
+        m_mgr_id = mgr_id;
+        m_batch = batch;
+        m_single = single;
+        m_max_size = max_size;
+        m_max_linger_ns = TimeUnit.MICROSECONDS.toNanos(max_linger_us);
+        m_queue = new ConcurrentLinkedQueue<>();
+        m_num_pending = new AtomicInteger(0);
+        m_is_collecting = new AtomicBoolean(false);
+    }
+
+    /**
+     * Computes the fitness of the given individual class as part of a batch.
+     *
+     * @param class_name the individual class name
+     * @return the fitness
+     * @throws ClassNotFoundException if the individual class is not found
+     * @throws IllegalAccessException if the backend invocation has failed
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    Fitness compute(final String class_name) throws ClassNotFoundException,
+            IllegalAccessException, InvocationTargetException {
+        final Request req = new Request(class_name);
+        m_queue.add(req);
+        m_num_pending.incrementAndGet();
+
+        while (!req.is_done()) {
+            if (m_is_collecting.compareAndSet(false, true)) {
+                process_batch(collect_batch());
+            } else {
+                req.await(MAX_WAIT_MS);
+            }
+        }
+
+        if (req.m_ex instanceof ClassNotFoundException) {
+            throw (ClassNotFoundException) req.m_ex;
+        } else if (req.m_ex instanceof IllegalAccessException) {
+            throw (IllegalAccessException) req.m_ex;
+        } else {
+            if (req.m_ex != null) {
+                throw (InvocationTargetException) req.m_ex;
+            }
+        }
+        return req.m_ftn;
+    }
+
+    /**
+     * Lingers for the batch to fill up and takes it from the queue. Must only
+     * be called by the leader thread that has set the collecting flag, the
+     * flag is cleared once the batch is taken and the thread of the next
+     * pending request, if any, is woken up to lead the next batch.
+     *
+     * @return the batch of requests, may be empty
+     */
+    private List<Request> collect_batch() {
+        final List<Request> batch = new ArrayList<>(m_max_size);
+        try {
+            //Linger until the batch is full or the time is up
+            final long deadline = System.nanoTime() + m_max_linger_ns;
+            while ((m_num_pending.get() < m_max_size)
+                    && (System.nanoTime() < deadline)) {
+                LockSupport.parkNanos(Math.min(PARK_SLICE_NS,
+                        deadline - System.nanoTime()));
+            }
+
+            //Take the batch from the queue
+            Request req;
+            while ((batch.size() < m_max_size) && ((req = m_queue.poll()) != null)) {
+                m_num_pending.decrementAndGet();
+                batch.add(req);
+            }
+        } finally {
+            m_is_collecting.set(false);
+        }
+
+        //Hand the leadership over to the next pending request
+        final Request next = m_queue.peek();
+        if (next != null) {
+            next.wake();
+        }
+        return batch;
+    }
+
+    /**
+     * Evaluates the batch and delivers the results, several batches may be
+     * evaluated concurrently.
+     *
+     * @param batch the batch of requests
+     */
+    private void process_batch(final List<Request> batch) {
+        if (!batch.isEmpty()) {
+            final String[] class_names = new String[batch.size()];
+            for (int idx = 0; idx < class_names.length; ++idx) {
+                class_names[idx] = batch.get(idx).m_class_name;
+            }
+            try {
+                final Fitness[] ftns = m_batch.compute(m_mgr_id, class_names);
+                for (int idx = 0; idx < class_names.length; ++idx) {
+                    batch.get(idx).done(ftns[idx], null);
+                }
+            } catch (ClassNotFoundException | IllegalAccessException
+                    | InvocationTargetException | RuntimeException ex) {
+                //Evaluate one by one to attribute the failure correctly
+                for (Request one : batch) {
+                    try {
+                        one.done(m_single.compute(m_mgr_id,
+                                new String[]{one.m_class_name})[0], null);
+                    } catch (ClassNotFoundException | IllegalAccessException
+                            | InvocationTargetException one_ex) {
+                        one.done(null, one_ex);
+                    } catch (RuntimeException one_ex) {
+                        one.done(null, new InvocationTargetException(one_ex));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+
+/**
+ * A bounded fitness cache keyed by the canonical text of the individual's
+ * per-dof expressions. The cache is split into stripes, each of which is a
+ * synchronized LRU map, so that the worker threads rarely contend. The cache
+ * is bound to the fitness configuration fingerprint and is cleared once the
+ * latter changes. Is thread safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+class FitnessCache {
+
+    /**
+     * Represents a single LRU cache stripe
+     */
+    private static final class Stripe extends LinkedHashMap<String, Fitness> {
+
+        //Stores the maximum stripe size
+        private final int m_max_size;
+
+        Stripe(final int max_size) {
+            super(16, 0.75f, true);
+            m_max_size = max_size;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Fitness> eldest) {
+            return size() > m_max_size;
+        }
+    }
+
+    //Stores the number of stripes
+    private static final int NUM_STRIPES = 16;
+    //Stores the separator of the dof expressions in the key
+    private static final char DOF_SEPARATOR = '\n';
+
+    //Stores the maximum cache size
+    private final int m_max_size;
+    //Stores the cache stripes
+    private final Stripe[] m_stripes;
+    //Stores the number of cache hits
+    private final LongAdder m_hits;
+    //Stores the number of cache misses
+    private final LongAdder m_misses;
+    //Stores the active configuration fingerprint
+    private String m_cfg_fprint;
+    //Stores the cache generation, is incremented on clearing
+    private volatile long m_generation;
+
+    /**
+     * The basic constructor
+     *
+     * @param max_size the maximum number of cached fitness values, &gt; 0
+     */
+    FitnessCache(final int max_size) {
+        m_max_size = max_size;
+        final int stripe_size = Math.max(1, max_size / NUM_STRIPES);
+        m_stripes = new Stripe[NUM_STRIPES];
+        for (int idx = 0; idx < NUM_STRIPES; ++idx) {
+            m_stripes[idx] = new Stripe(stripe_size);
+        }
+        m_hits = new LongAdder();
+        m_misses = new LongAdder();
+        m_cfg_fprint = null;
+        m_generation = 0;
+    }
+
+    /**
+     * Allows to compute the canonical key of the individual, the white spaces
+     * are removed from the expressions, that are then concatenated.
+     *
+     * @param exprs the per-dof expressions of the individual
+     * @return the canonical key
+     */
+    static String get_key(final String[] exprs) {
+        int length = exprs.length;
+        for (String expr : exprs) {
+            length += expr.length();
+        }
+        final StringBuilder key = new StringBuilder(length);
+        for (String expr : exprs) {
+            for (int idx = 0; idx < expr.length(); ++idx) {
+                final char chr = expr.charAt(idx);
+                if (!Character.isWhitespace(chr)) {
+                    key.append(chr);
+                }
+            }
+            key.append(DOF_SEPARATOR);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Allows to get the stripe for the given key
+     *
+     * @param key the key
+     * @return the stripe
+     */
+    private Stripe get_stripe(final String key) {
+        final int hash = key.hashCode();
+        return m_stripes[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
+    }
+
+    /**
+     * Allows to get the maximum cache size
+     *
+     * @return the maximum number of cached fitness values
+     */
+    int get_max_size() {
+        return m_max_size;
+    }
+
+    /**
+     * Allows to get the current cache generation, to be passed to put
+     *
+     * @return the current cache generation
+     */
+    long get_generation() {
+        return m_generation;
+    }
+
+    /**
+     * Allows to get the cached fitness
+     *
+     * @param key the canonical individual key
+     * @return the cached fitness or null if none
+     */
+    Fitness get(final String key) {
+        final Stripe stripe = get_stripe(key);
+        final Fitness ftn;
+        synchronized (stripe) {
+            ftn = stripe.get(key);
+        }
+        if (ftn != null) {
+            m_hits.increment();
+        } else {
+            m_misses.increment();
+        }
+        return ftn;
+    }
+
+    /**
+     * Allows to put the fitness into cache, it is ignored if the cache has
+     * been cleared since the given generation was obtained.
+     *
+     * @param key the canonical individual key
+     * @param ftn the fitness
+     * @param generation the cache generation the fitness was computed in
+     */
+    void put(final String key, final Fitness ftn, final long generation) {
+        final Stripe stripe = get_stripe(key);
+        synchronized (stripe) {
+            if (generation == m_generation) {
+                stripe.put(key, ftn);
+            }
+        }
+    }
+
+    /**
+     * Allows to set the configuration fingerprint, if it is different from
+     * the current one then the cache is cleared.
+     *
+     * @param cfg_fprint the new configuration fingerprint, null to always
+     * clear the cache
+     * @return true if the cache was cleared
+     */
+    synchronized boolean set_config(final String cfg_fprint) {
+        if ((cfg_fprint == null) || !Objects.equals(m_cfg_fprint, cfg_fprint)) {
+            m_cfg_fprint = cfg_fprint;
+            clear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Allows to clear the cache and its statistics
+     */
+    private void clear() {
+        //Increment the generation first to discard the on-going puts
+        m_generation += 1;
+        for (Stripe stripe : m_stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        m_hits.reset();
+        m_misses.reset();
+    }
+
+    /**
+     * Allows to get the number of cached values
+     *
+     * @return the number of cached values
+     */
+    int get_size() {
+        int size = 0;
+        for (Stripe stripe : m_stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Allows to get the number of cache hits
+     *
+     * @return the number of hits since the last clearing
+     */
+    long get_hits() {
+        return m_hits.sum();
+    }
+
+    /**
+     * Allows to get the number of cache misses
+     *
+     * @return the number of misses since the last clearing
+     */
+    long get_misses() {
+        return m_misses.sum();
+    }
+}
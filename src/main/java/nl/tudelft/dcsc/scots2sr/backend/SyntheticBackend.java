@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+
+/**
+ * The explicit backend working on a synthetic non-deterministic controller,
+ * allows to run the regression end to end without the native SCOTS2DLL
+ * backend and a real controller. The state space is a grid of the given
+ * extent per dimension, its states are in the domain with the given density.
+ * Every domain state allows the input given by a random linear function of
+ * the state, plus the given number of random inputs. Every fitness
+ * computation additionally burns the given CPU time to model an expensive
+ * backend.
+ *
+ * The backend is created from the specification string of comma separated
+ * name=value pairs, e.g. "ss_dim=2,is_dim=1,ss_extent=100,is_extent=8", the
+ * omitted values get defaults.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class SyntheticBackend extends ExplicitBackend {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(SyntheticBackend.class.getName());
+
+    //Stores the specification parameter names
+    static final String SS_DIM_PARAM = "ss_dim";
+    static final String IS_DIM_PARAM = "is_dim";
+    static final String SS_EXTENT_PARAM = "ss_extent";
+    static final String IS_EXTENT_PARAM = "is_extent";
+    static final String DENSITY_PARAM = "density";
+    static final String NON_DET_PARAM = "non_det";
+    static final String COST_US_PARAM = "cost_us";
+    static final String SEED_PARAM = "seed";
+
+    //Stores the maximum number of input space grid points
+    private static final long MAX_IS_SIZE = 1 << 16;
+
+    //Stores the number of state-space dimensions
+    private final int m_ss_dim;
+    //Stores the number of input-space dimensions
+    private final int m_is_dim;
+    //Stores the number of state grid points per dimension
+    private final int m_ss_extent;
+    //Stores the number of input grid points per dimension
+    private final int m_is_extent;
+    //Stores the share of the state space in the domain
+    private final double m_density;
+    //Stores the number of random allowed inputs per domain state
+    private final int m_non_det;
+    //Stores the extra CPU time per fitness computation in micro seconds
+    private final long m_cost_us;
+    //Stores the random seed
+    private final long m_seed;
+    //Stores the unfit states of the running export, per exported range
+    private final List<int[]> m_unfit;
+
+    /**
+     * The basic constructor
+     *
+     * @param spec the comma separated name=value pairs
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public SyntheticBackend(final String spec) throws IllegalArgumentException {
+        int ss_dim = 2;
+        int is_dim = 1;
+        int ss_extent = 100;
+        int is_extent = 8;
+        double density = 0.5;
+        int non_det = 1;
+        long cost_us = 0;
+        long seed = 1;
+        for (String pair : spec.split(",")) {
+            if (!pair.trim().isEmpty()) {
+                final String[] nv = pair.split("=");
+                if (nv.length != 2) {
+                    throw new IllegalArgumentException("Expected name=value, got: " + pair);
+                }
+                final String name = nv[0].trim();
+                final String value = nv[1].trim();
+                switch (name) {
+                    case SS_DIM_PARAM:
+                        ss_dim = Integer.parseInt(value);
+                        break;
+                    case IS_DIM_PARAM:
+                        is_dim = Integer.parseInt(value);
+                        break;
+                    case SS_EXTENT_PARAM:
+                        ss_extent = Integer.parseInt(value);
+                        break;
+                    case IS_EXTENT_PARAM:
+                        is_extent = Integer.parseInt(value);
+                        break;
+                    case DENSITY_PARAM:
+                        density = Double.parseDouble(value);
+                        break;
+                    case NON_DET_PARAM:
+                        non_det = Integer.parseInt(value);
+                        break;
+                    case COST_US_PARAM:
+                        cost_us = Long.parseLong(value);
+                        break;
+                    case SEED_PARAM:
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown synthetic "
+                                + "controller parameter: " + name);
+                }
+            }
+        }
+        if ((ss_dim <= 0) || (is_dim <= 0) || (ss_extent <= 0) || (is_extent <= 0)
+                || (Math.pow(ss_extent, ss_dim) > Integer.MAX_VALUE)
+                || (Math.pow(is_extent, is_dim) > MAX_IS_SIZE)) {
+            throw new IllegalArgumentException("Invalid synthetic controller "
+                    + "dimensions or extents: " + spec);
+        }
+        if ((density <= 0.0) || (density > 1.0) || (non_det < 0) || (cost_us < 0)) {
+            throw new IllegalArgumentException("Invalid synthetic controller "
+                    + "density, non-determinism or cost: " + spec);
+        }
+        m_ss_dim = ss_dim;
+        m_is_dim = is_dim;
+        m_ss_extent = ss_extent;
+        m_is_extent = is_extent;
+        m_density = density;
+        m_non_det = non_det;
+        m_cost_us = cost_us;
+        m_seed = seed;
+        m_unfit = new ArrayList<>();
+    }
+
+    /**
+     * Creates the uniform grid with the unit cell size
+     *
+     * @param dim the number of dimensions
+     * @param extent the number of grid points per dimension
+     * @return the grid
+     */
+    private static ExplicitController.Grid make_grid(final int dim, final int extent) {
+        final double[] eta = new double[dim];
+        final double[] ll = new double[dim];
+        final double[] ur = new double[dim];
+        Arrays.fill(eta, 1.0);
+        Arrays.fill(ur, extent - 1.0);
+        return new ExplicitController.Grid(eta, ll, ur);
+    }
+
+    /**
+     * Generates the synthetic controller
+     *
+     * @return the controller
+     */
+    ExplicitController generate() {
+        final ExplicitController.Grid ss_grid = make_grid(m_ss_dim, m_ss_extent);
+        final ExplicitController.Grid is_grid = make_grid(m_is_dim, m_is_extent);
+        final Random rnd = new Random(m_seed);
+
+        //The input of every dof is a linear function of the state
+        final double[][] coefs = new double[m_is_dim][m_ss_dim];
+        final double[] norms = new double[m_is_dim];
+        for (int dof = 0; dof < m_is_dim; ++dof) {
+            for (int idx = 0; idx < m_ss_dim; ++idx) {
+                coefs[dof][idx] = rnd.nextDouble();
+                norms[dof] += coefs[dof][idx] * (m_ss_extent - 1);
+            }
+        }
+
+        //Choose the domain states
+        final int ss_size = (int) ss_grid.m_size;
+        final BitSet domain = new BitSet(ss_size);
+        for (int state = 0; state < ss_size; ++state) {
+            if (rnd.nextDouble() < m_density) {
+                domain.set(state);
+            }
+        }
+
+        //Fill in the allowed inputs
+        final int dom_size = domain.cardinality();
+        final int num_words = ExplicitController.get_num_words(is_grid);
+        final IntBuffer states = ExplicitController.alloc_ints(dom_size);
+        final LongBuffer inputs = ExplicitController.alloc_longs(
+                ExplicitController.get_num_longs(dom_size, num_words));
+        final double[] x = new double[m_ss_dim];
+        final long[] row = new long[num_words];
+        for (int state = domain.nextSetBit(0); state >= 0; state = domain.nextSetBit(state + 1)) {
+            ss_grid.to_vector(state, x);
+            Arrays.fill(row, 0L);
+            long input = 0;
+            for (int dof = 0; dof < m_is_dim; ++dof) {
+                double value = 0.0;
+                for (int idx = 0; idx < m_ss_dim; ++idx) {
+                    value += coefs[dof][idx] * x[idx];
+                }
+                final long u = (norms[dof] > 0.0)
+                        ? Math.round(value * (m_is_extent - 1) / norms[dof]) : 0;
+                input += u * is_grid.m_mults[dof];
+            }
+            row[(int) (input / Long.SIZE)] |= 1L << (input % Long.SIZE);
+            for (int idx = 0; idx < m_non_det; ++idx) {
+                final int other = rnd.nextInt((int) is_grid.m_size);
+                row[other / Long.SIZE] |= 1L << (other % Long.SIZE);
+            }
+            states.put(state);
+            inputs.put(row);
+        }
+        states.rewind();
+        inputs.rewind();
+        return new ExplicitController(ss_grid, is_grid, states, inputs);
+    }
+
+    @Override
+    public int load(final String file_name) {
+        LOGGER.log(Level.INFO, "Generating the synthetic controller instead of: {0}",
+                file_name);
+        return set_ctrl(generate());
+    }
+
+    /**
+     * Burns the configured CPU time per individual
+     *
+     * @param num_inds the number of evaluated individuals
+     */
+    private void burn(final int num_inds) {
+        if (m_cost_us > 0) {
+            final long end = System.nanoTime() + m_cost_us * 1000L * num_inds;
+            while (System.nanoTime() < end) {
+                //Busy wait, to load the CPU as the real backend does
+            }
+        }
+    }
+
+    @Override
+    public Fitness[] compute_fitness_batch(
+            final int mgr_id, final String[] class_names)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        burn(class_names.length);
+        return super.compute_fitness_batch(mgr_id, class_names);
+    }
+
+    /**
+     * Allows to get the number of domain states
+     *
+     * @return the domain size
+     */
+    public long get_domain_size() {
+        return get_ctrl().get_domain_size();
+    }
+
+    /**
+     * Starts a new unfit points export
+     */
+    public void start_unfit_export() {
+        synchronized (m_unfit) {
+            m_unfit.clear();
+        }
+    }
+
+    /**
+     * Evaluates the individual on the range of domain states and keeps the
+     * unfit ones for the export, may be called concurrently
+     *
+     * @param class_name the individual's class name
+     * @param begin the first domain state index, inclusive
+     * @param end the last domain state index, exclusive
+     * @return the number of fit states in the range
+     * @throws ClassNotFoundException if the individual class is not found
+     * @throws IllegalAccessException if the individual is not accessible
+     * @throws InvocationTargetException if the evaluation fails
+     */
+    public long export_unfit_points_range(final String class_name,
+            final long begin, final long end) throws ClassNotFoundException,
+            IllegalAccessException, InvocationTargetException {
+        final ExplicitController ctrl = get_ctrl();
+        final MethodHandle eval = get_evaluator(class_name);
+        final double[] x = new double[ctrl.get_ss_dim()];
+        final int[] unfit = new int[(int) (end - begin)];
+        int num_unfit = 0;
+        for (int dom_idx = (int) begin; dom_idx < end; ++dom_idx) {
+            ctrl.get_state_vector(dom_idx, x);
+            final double[] u = evaluate(eval, x, ctrl.get_is_dim());
+            if (!ctrl.is_allowed(dom_idx, ctrl.get_input(u))) {
+                unfit[num_unfit++] = ctrl.get_state(dom_idx);
+            }
+        }
+        synchronized (m_unfit) {
+            m_unfit.add(Arrays.copyOf(unfit, num_unfit));
+        }
+        return (end - begin) - num_unfit;
+    }
+
+    /**
+     * Finishes the unfit points export, stores the unfit states sorted
+     *
+     * @param file_name the file name without the extension
+     * @throws IOException if the file could not be written
+     */
+    public void finish_unfit_export(final String file_name) throws IOException {
+        final int[] unfit;
+        synchronized (m_unfit) {
+            unfit = m_unfit.stream().flatMapToInt(Arrays::stream).sorted().toArray();
+            m_unfit.clear();
+        }
+        get_ctrl().store_states(file_name + CTRL_FILE_EXT, unfit, unfit.length);
+    }
+
+    @Override
+    public String toString() {
+        return SS_DIM_PARAM + "=" + m_ss_dim + "," + IS_DIM_PARAM + "=" + m_is_dim
+                + "," + SS_EXTENT_PARAM + "=" + m_ss_extent
+                + "," + IS_EXTENT_PARAM + "=" + m_is_extent
+                + "," + DENSITY_PARAM + "=" + m_density
+                + "," + NON_DET_PARAM + "=" + m_non_det
+                + "," + COST_US_PARAM + "=" + m_cost_us
+                + "," + SEED_PARAM + "=" + m_seed;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.dist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The coordinator of the distributed regression. Waits for the given number
+ * of nodes and, once all the nodes are done, chooses the node with the
+ * fittest individual to export the controller. The nodes are not
+ * authenticated, so the coordinator only listens on the loopback interface
+ * unless another bind address is given. Usage:
+ *
+ * java -cp SCOTS2SR.jar nl.tudelft.dcsc.scots2sr.dist.Coordinator &lt;port&gt;
+ * &lt;num_nodes&gt; [&lt;bind_address&gt;]
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class Coordinator {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(Coordinator.class.getName());
+
+    //The default address to bind to, the local host only
+    public static final String DEF_BIND_ADDRESS = "127.0.0.1";
+
+    /**
+     * The connection to a node
+     */
+    private final class Node implements Runnable {
+
+        //Stores the node index in the ring
+        private final int m_idx;
+        //Stores the node socket
+        private final Socket m_socket;
+        //Stores the node streams
+        private final DataInputStream m_in;
+        private final DataOutputStream m_out;
+        //Stores the node name
+        private final String m_name;
+        //Stores the fittest individual reported by the node, or null
+        private Migrant m_best;
+
+        Node(final int idx, final Socket socket) throws IOException {
+            m_idx = idx;
+            m_socket = socket;
+            m_in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            m_out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (m_in.readByte() != Protocol.HELLO) {
+                throw new IOException("Expected HELLO from: " + socket.getRemoteSocketAddress());
+            }
+            m_name = Protocol.read_hello(m_in);
+            m_best = null;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean is_done = false;
+                while (!is_done) {
+                    final byte type = m_in.readByte();
+                    switch (type) {
+                        case Protocol.BEST:
+                            for (Migrant migrant : Protocol.read_migrants(m_in)) {
+                                if (migrant.is_fitter(m_best)) {
+                                    m_best = migrant;
+                                }
+                            }
+                            LOGGER.log(Level.INFO, "Node {0} is done, best fitness: {1}",
+                                    new Object[]{m_name, (m_best != null) ? m_best.m_act_ftn : null});
+                            is_done = true;
+                            break;
+                        default:
+                            throw new IOException("Unexpected message type: " + type);
+                    }
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Lost node: " + m_name, ex);
+            } finally {
+                m_done.countDown();
+            }
+        }
+
+        /**
+         * Sends the final decision to the node and closes the connection
+         *
+         * @param is_export true if the node is to export the controller
+         */
+        void finish(final boolean is_export) {
+            try {
+                Protocol.write_empty(m_out, is_export ? Protocol.EXPORT : Protocol.SKIP);
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Could not finish node: " + m_name, ex);
+            }
+            try {
+                m_socket.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Could not close node: " + m_name, ex);
+            }
+        }
+    }
+
+    //Stores the address to bind to
+    private final String m_bind_address;
+    //Stores the server port
+    private final int m_port;
+    //Stores the number of nodes
+    private final int m_num_nodes;
+    //Stores the nodes in the ring order
+    private final List<Node> m_nodes;
+    //Counts down once a node is done or lost
+    private final CountDownLatch m_done;
+
+    /**
+     * The basic constructor, listens on the loopback interface only
+     *
+     * @param port the port to listen on
+     * @param num_nodes the number of nodes to wait for
+     */
+    public Coordinator(final int port, final int num_nodes) {
+        this(DEF_BIND_ADDRESS, port, num_nodes);
+    }
+
+    /**
+     * The constructor with the bind address
+     *
+     * @param bind_address the host name or address to bind to
+     * @param port the port to listen on
+     * @param num_nodes the number of nodes to wait for
+     */
+    public Coordinator(final String bind_address, final int port, final int num_nodes) {
+        m_bind_address = bind_address;
+        m_port = port;
+        m_num_nodes = num_nodes;
+        m_nodes = new ArrayList<>(num_nodes);
+        m_done = new CountDownLatch(num_nodes);
+    }
+
+    /**
+     * Runs the coordinator until all the nodes are done
+     *
+     * @return the fittest individual over all the nodes, or null if none
+     * @throws IOException if the server socket fails
+     */
+    public Migrant run() throws IOException {
+        try (final ServerSocket server = new ServerSocket(m_port, 0,
+                InetAddress.getByName(m_bind_address))) {
+            LOGGER.log(Level.INFO, "Waiting for {0} nodes on {1}:{2}",
+                    new Object[]{m_num_nodes, m_bind_address,
+                        Integer.toString(server.getLocalPort())});
+            while (m_nodes.size() < m_num_nodes) {
+                final Socket socket = server.accept();
+                try {
+                    final Node node = new Node(m_nodes.size(), socket);
+                    m_nodes.add(node);
+                    LOGGER.log(Level.INFO, "Node {0} joined: {1}",
+                            new Object[]{node.m_idx, node.m_name});
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Rejected connection from: "
+                            + socket.getRemoteSocketAddress(), ex);
+                    socket.close();
+                }
+            }
+        }
+
+        //Only start reading once all the nodes have joined
+        for (Node node : m_nodes) {
+            final Thread thread = new Thread(node, "gp-node-" + node.m_idx);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            m_done.await();
+        } catch (InterruptedException ex) {
+            LOGGER.warning("Interrupted while waiting for the nodes");
+            Thread.currentThread().interrupt();
+        }
+
+        //Choose the node with the fittest individual to export
+        Node best_node = null;
+        for (Node node : m_nodes) {
+            if ((node.m_best != null) && node.m_best.is_fitter(
+                    (best_node != null) ? best_node.m_best : null)) {
+                best_node = node;
+            }
+        }
+        for (Node node : m_nodes) {
+            node.finish(node == best_node);
+        }
+        if (best_node != null) {
+            LOGGER.log(Level.INFO, "Node {0} exports the controller, fitness: {1}",
+                    new Object[]{best_node.m_name, best_node.m_best.m_act_ftn});
+            return best_node.m_best;
+        } else {
+            LOGGER.warning("None of the nodes has a controller to export");
+            return null;
+        }
+    }
+
+    /**
+     * The coordinator entry point
+     *
+     * @param args the command line arguments: the port, the number of nodes
+     * and, optionally, the address to bind to
+     */
+    public static void main(String[] args) {
+        if ((args.length != 2) && (args.length != 3)) {
+            System.err.println("Usage: " + Coordinator.class.getName()
+                    + " <port> <num_nodes> [<bind_address>]");
+            System.exit(2);
+        }
+        int status = 0;
+        try {
+            final String bind_address = (args.length == 3)
+                    ? args[2].trim() : DEF_BIND_ADDRESS;
+            final Migrant best = new Coordinator(bind_address,
+                    Integer.parseInt(args[0].trim()),
+                    Integer.parseInt(args[1].trim())).run();
+            if (best == null) {
+                status = 1;
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.SEVERE, "The coordinator has failed!", ex);
+            status = 1;
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.dist;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import nl.tudelft.dcsc.scots2sr.sr.ExtendedFitness;
+import nl.tudelft.dcsc.scots2sr.sr.ScaledFitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The best fit individual reported by a node to the coordinator: its
+ * expression text per dof, the extended fitness and the scale/shift per dof.
+ * Is immutable.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Migrant {
+
+    //Stores the scale and the shift of an unscaled expression
+    private static final double NO_SCALE = 1.0;
+    private static final double NO_SHIFT = 0.0;
+    //Stores the maximum expression text size in bytes
+    private static final int MAX_TEXT_SIZE = 1 << 24;
+
+    //Stores the expression text per dof, includes the scale and shift
+    public final String[] m_exprs;
+    //Stores the actual and the extended fitness
+    public final double m_act_ftn;
+    public final double m_ext_ftn;
+    //Stores the scale and shift per dof, 1.0 and 0.0 if none
+    public final double[] m_scales;
+    public final double[] m_shifts;
+
+    /**
+     * The basic constructor
+     *
+     * @param exprs the expression text per dof
+     * @param act_ftn the actual fitness
+     * @param ext_ftn the extended fitness
+     * @param scales the scale per dof
+     * @param shifts the shift per dof
+     */
+    public Migrant(final String[] exprs, final double act_ftn, final double ext_ftn,
+            final double[] scales, final double[] shifts) {
+        m_exprs = exprs;
+        m_act_ftn = act_ftn;
+        m_ext_ftn = ext_ftn;
+        m_scales = scales;
+        m_shifts = shifts;
+    }
+
+    /**
+     * Creates the migrant from the individual
+     *
+     * @param ind the individual
+     * @return the migrant
+     */
+    public static Migrant from(final Individual ind) {
+        final List<String> exprs = ind.get_expr_text();
+        final Fitness ftn = ind.get_fitness();
+        double act_ftn = ftn.get_fitness();
+        double ext_ftn = ftn.get_fitness();
+        if (ftn instanceof ExtendedFitness) {
+            act_ftn = ((ExtendedFitness) ftn).get_act_ftn();
+            ext_ftn = ((ExtendedFitness) ftn).get_ext_ftn();
+        }
+        final double[] scales = new double[exprs.size()];
+        final double[] shifts = new double[exprs.size()];
+        for (int idx = 0; idx < exprs.size(); ++idx) {
+            scales[idx] = NO_SCALE;
+            shifts[idx] = NO_SHIFT;
+            if (ftn instanceof ScaledFitness) {
+                final ScaledFitness sftn = (ScaledFitness) ftn;
+                if (sftn.is_scale(idx)) {
+                    scales[idx] = sftn.get_scale(idx);
+                }
+                if (sftn.is_shift(idx)) {
+                    shifts[idx] = sftn.get_shift(idx);
+                }
+            }
+        }
+        return new Migrant(exprs.toArray(new String[exprs.size()]),
+                act_ftn, ext_ftn, scales, shifts);
+    }
+
+    /**
+     * Allows to check if this migrant is fitter than the other one, the actual
+     * fitness is compared first and then the extended one
+     *
+     * @param other the other migrant, or null
+     * @return true if this migrant is fitter
+     */
+    public boolean is_fitter(final Migrant other) {
+        if (other == null) {
+            return true;
+        } else {
+            final int result = Double.compare(m_act_ftn, other.m_act_ftn);
+            return (result > 0) || ((result == 0) && (m_ext_ftn > other.m_ext_ftn));
+        }
+    }
+
+    /**
+     * Writes the migrant
+     *
+     * @param out the data output
+     * @throws IOException if writing fails
+     */
+    void write(final DataOutput out) throws IOException {
+        out.writeDouble(m_act_ftn);
+        out.writeDouble(m_ext_ftn);
+        out.writeInt(m_exprs.length);
+        for (int idx = 0; idx < m_exprs.length; ++idx) {
+            out.writeDouble(m_scales[idx]);
+            out.writeDouble(m_shifts[idx]);
+            final byte[] text = m_exprs[idx].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+        }
+    }
+
+    /**
+     * Reads the migrant
+     *
+     * @param in the data input
+     * @param max_dofs the maximum number of dofs
+     * @return the migrant
+     * @throws IOException if reading fails or the data is corrupted
+     */
+    static Migrant read(final DataInput in, final int max_dofs) throws IOException {
+        final double act_ftn = in.readDouble();
+        final double ext_ftn = in.readDouble();
+        final int num_dofs = in.readInt();
+        if ((num_dofs < 0) || (num_dofs > max_dofs)) {
+            throw new IOException("Invalid migrant number of dofs: " + num_dofs);
+        }
+        final String[] exprs = new String[num_dofs];
+        final double[] scales = new double[num_dofs];
+        final double[] shifts = new double[num_dofs];
+        for (int idx = 0; idx < num_dofs; ++idx) {
+            scales[idx] = in.readDouble();
+            shifts[idx] = in.readDouble();
+            final int text_len = in.readInt();
+            if ((text_len < 0) || (text_len > MAX_TEXT_SIZE)) {
+                throw new IOException("Invalid migrant expression size: " + text_len);
+            }
+            final byte[] text = new byte[text_len];
+            in.readFully(text);
+            exprs[idx] = new String(text, StandardCharsets.UTF_8);
+        }
+        return new Migrant(exprs, act_ftn, ext_ftn, scales, shifts);
+    }
+}
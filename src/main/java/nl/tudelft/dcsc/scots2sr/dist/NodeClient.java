@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.dist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The node side of the distributed regression. Once the regression is done,
+ * reports the best fit individuals to the coordinator and learns whether this
+ * node is the one to export the controller.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class NodeClient {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(NodeClient.class.getName());
+
+    //Stores the connection time out in milliseconds
+    private static final int CONNECT_TIME_OUT_MS = 10000;
+    //Stores the time out for the coordinator decision in seconds
+    private static final long DECISION_TIME_OUT_SEC = 600;
+
+    //Stores the socket
+    private final Socket m_socket;
+    //Stores the socket streams
+    private final DataInputStream m_in;
+    private final DataOutputStream m_out;
+    //Stores the coordinator decision, true if this node exports
+    private final CompletableFuture<Boolean> m_decision;
+
+    /**
+     * Connects to the coordinator
+     *
+     * @param address the coordinator address as host:port
+     * @throws IOException if the connection fails
+     */
+    public NodeClient(final String address) throws IOException {
+        m_socket = new Socket();
+        m_socket.setTcpNoDelay(true);
+        m_socket.connect(parse_address(address), CONNECT_TIME_OUT_MS);
+        m_in = new DataInputStream(new BufferedInputStream(m_socket.getInputStream()));
+        m_out = new DataOutputStream(new BufferedOutputStream(m_socket.getOutputStream()));
+        m_decision = new CompletableFuture<>();
+        Protocol.write_hello(m_out, ManagementFactory.getRuntimeMXBean().getName());
+
+        final Thread reader = new Thread(this::read, "gp-node-reader");
+        reader.setDaemon(true);
+        reader.start();
+        LOGGER.log(Level.INFO, "Connected to the coordinator: {0}", address);
+    }
+
+    /**
+     * Parses the address
+     *
+     * @param address the address as host:port
+     * @return the socket address
+     * @throws IOException if the address is malformed
+     */
+    private static InetSocketAddress parse_address(final String address)
+            throws IOException {
+        final int idx = address.lastIndexOf(':');
+        if (idx <= 0) {
+            throw new IOException("Expected host:port, got: " + address);
+        }
+        try {
+            return new InetSocketAddress(address.substring(0, idx).trim(),
+                    Integer.parseInt(address.substring(idx + 1).trim()));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid coordinator address: " + address, ex);
+        }
+    }
+
+    /**
+     * Reads the coordinator messages until the decision or the end of stream
+     */
+    private void read() {
+        try {
+            while (!m_decision.isDone()) {
+                final byte type = m_in.readByte();
+                switch (type) {
+                    case Protocol.EXPORT:
+                        m_decision.complete(Boolean.TRUE);
+                        break;
+                    case Protocol.SKIP:
+                        m_decision.complete(Boolean.FALSE);
+                        break;
+                    default:
+                        throw new IOException("Unexpected message type: " + type);
+                }
+            }
+        } catch (IOException ex) {
+            m_decision.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Reports the best fit individuals and waits for the coordinator to
+     * decide which node exports the controller. Closes the connection.
+     *
+     * @param best_fit the best fit individuals of this node
+     * @return true if this node is to export the controller
+     * @throws IOException if the coordinator can not be reached
+     */
+    public boolean finish(final List<Individual> best_fit) throws IOException {
+        try {
+            final List<Migrant> best = new ArrayList<>(best_fit.size());
+            for (Individual ind : best_fit) {
+                best.add(Migrant.from(ind));
+            }
+            Protocol.write_migrants(m_out, Protocol.BEST, best);
+            return m_decision.get(DECISION_TIME_OUT_SEC, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            throw new IOException("Lost the coordinator", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IOException("The coordinator did not decide in time", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the coordinator", ex);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the connection, the failures are logged
+     */
+    public void close() {
+        try {
+            m_socket.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Could not close the connection", ex);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.dist;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary protocol between the coordinator and the nodes. Every message
+ * starts with the message type byte. A node sends HELLO once connected and
+ * BEST once its regression is stopped. Once all the nodes have sent BEST,
+ * the coordinator answers EXPORT to the node with the fittest individual and
+ * SKIP to the others.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class Protocol {
+
+    //Stores the protocol magic number and version, sent with HELLO
+    static final int MAGIC = 0x53325344;
+    static final int VERSION = 2;
+
+    //The message types, 2 was the retired migrants exchange
+    static final byte HELLO = 1;
+    static final byte BEST = 3;
+    static final byte EXPORT = 4;
+    static final byte SKIP = 5;
+
+    //Stores the maximum number of migrants per message
+    private static final int MAX_MIGRANTS = 1 << 16;
+    //Stores the maximum number of dofs per migrant
+    private static final int MAX_DOFS = 1 << 10;
+
+    /**
+     * The private constructor, this is a utility class
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Writes the HELLO message
+     *
+     * @param out the output stream
+     * @param node_name the node name
+     * @throws IOException if writing fails
+     */
+    static void write_hello(final DataOutputStream out, final String node_name)
+            throws IOException {
+        synchronized (out) {
+            out.writeByte(HELLO);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(node_name);
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the HELLO message body, the type byte is already read
+     *
+     * @param in the input stream
+     * @return the node name
+     * @throws IOException if reading fails or the protocol does not match
+     */
+    static String read_hello(final DataInputStream in) throws IOException {
+        if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+            throw new IOException("Unsupported protocol");
+        }
+        return in.readUTF();
+    }
+
+    /**
+     * Writes the list of migrants message
+     *
+     * @param out the output stream
+     * @param type the message type, BEST
+     * @param migrants the migrants
+     * @throws IOException if writing fails
+     */
+    static void write_migrants(final DataOutputStream out, final byte type,
+            final List<Migrant> migrants) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(migrants.size());
+            for (Migrant migrant : migrants) {
+                migrant.write(out);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the list of migrants message body, the type byte is already read
+     *
+     * @param in the input stream
+     * @return the migrants
+     * @throws IOException if reading fails or the data is corrupted
+     */
+    static List<Migrant> read_migrants(final DataInputStream in) throws IOException {
+        final int num_migrants = in.readInt();
+        if ((num_migrants < 0) || (num_migrants > MAX_MIGRANTS)) {
+            throw new IOException("Invalid number of migrants: " + num_migrants);
+        }
+        final List<Migrant> migrants = new ArrayList<>(num_migrants);
+        for (int idx = 0; idx < num_migrants; ++idx) {
+            migrants.add(Migrant.read(in, MAX_DOFS));
+        }
+        return migrants;
+    }
+
+    /**
+     * Writes the message with no body
+     *
+     * @param out the output stream
+     * @param type the message type, EXPORT or SKIP
+     * @throws IOException if writing fails
+     */
+    static void write_empty(final DataOutputStream out, final byte type)
+            throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.flush();
+        }
+    }
+}
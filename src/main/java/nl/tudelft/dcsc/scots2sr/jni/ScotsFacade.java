@@ -22,12 +22,19 @@
 package nl.tudelft.dcsc.scots2sr.jni;
 
 import java.io.FileNotFoundException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nl.tudelft.dcsc.scots2jni.Scots2JNI;
 import nl.tudelft.dcsc.scots2jni.FConfig;
+import nl.tudelft.dcsc.scots2sr.backend.BackendConfig;
+import nl.tudelft.dcsc.scots2sr.backend.FitnessBackend;
+import nl.tudelft.dcsc.scots2sr.metrics.FlightEvents;
 import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
 import nl.tudelft.dcsc.sr2jlib.fitness.FitnessComputerClass;
 import nl.tudelft.dcsc.sr2jlib.fitness.FitnessManager;
@@ -39,26 +46,34 @@ import nl.tudelft.dcsc.sr2jlib.instance.Loader;
  *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
-public class ScotsFacade extends FitnessComputerClass {
+public class ScotsFacade extends FitnessBackend {
 
     //Stores the reference to the logger
     private static final Logger LOGGER = Logger.getLogger(ScotsFacade.class.getName());
 
-    //Stores the unfit points file suffix for the BDD file name
-    public static final String UNFIT_FILE_SUFFIX = ".unfit";
-
     //Stores the class loader
     private Loader m_loader;
     //Stores the Scots2JNI loaded class
     private Class<?> m_class;
-    //Stores the Scots2JNI class interface methods
-    private Method m_load;
-    private Method m_get_ss_size;
-    private Method m_configure;
-    private Method m_compute_fitness;
-    private Method m_start_unfit_export;
-    private Method m_export_unfit_points;
-    private Method m_finish_unfit_export;
+    //Stores the Scots2JNI class interface method handles, these are typed
+    //exactly so that the calls do not need boxing and access checks
+    private MethodHandle m_load;
+    private MethodHandle m_get_ss_size;
+    private MethodHandle m_configure;
+    private MethodHandle m_compute_fitness;
+    private MethodHandle m_start_unfit_export;
+    private MethodHandle m_export_unfit_points;
+    private MethodHandle m_finish_unfit_export;
+    //The optional ranged unfit points export, null if not supported
+    private MethodHandle m_get_domain_size;
+    private MethodHandle m_export_unfit_points_range;
+    //Stores the optional batch fitness method handle, null if not supported
+    private MethodHandle m_compute_fitness_batch;
+    //Stores the last configuration, or null
+    private volatile BackendConfig m_cfg;
+
+    //Stores the library name prefix selecting the synthetic stand-in
+    public static final String SYNTHETIC_LIB_PREF = "synthetic:";
 
     /**
      * The private constructor for the singleton
@@ -82,6 +97,9 @@ public class ScotsFacade extends FitnessComputerClass {
      * @return true if the library could not be loaded, otherwise false
      */
     public boolean load_library(final String lib_file_name) {
+        if (lib_file_name.startsWith(SYNTHETIC_LIB_PREF)) {
+            return load_synthetic(lib_file_name.substring(SYNTHETIC_LIB_PREF.length()));
+        }
         m_loader = new Loader();
         try {
             final String name = Scots2JNI.class.getName();
@@ -101,14 +119,9 @@ public class ScotsFacade extends FitnessComputerClass {
                 return true;
             }
 
-            m_load = m_class.getMethod("load", String.class);
-            m_get_ss_size = m_class.getMethod("get_state_space_size", int.class);
-            m_configure = m_class.getMethod("configure", FConfig.class);
-            m_compute_fitness = m_class.getMethod("compute_fitness", String.class);
-            m_start_unfit_export = m_class.getMethod("start_unfit_export");
-            m_export_unfit_points = m_class.getMethod("export_unfit_points", String.class);
-            m_finish_unfit_export = m_class.getMethod("finish_unfit_export", String.class);
-        } catch (ClassNotFoundException | NoSuchMethodException | SecurityException ex) {
+            bind(m_class);
+        } catch (ClassNotFoundException | NoSuchMethodException
+                | IllegalAccessException | SecurityException ex) {
             final Throwable c_ex = ex.getCause();
             LOGGER.log(Level.SEVERE, "Failed when loading and instantiating "
                     + Scots2JNI.class.getName(), ((c_ex == null) ? ex: c_ex));
@@ -119,48 +132,155 @@ public class ScotsFacade extends FitnessComputerClass {
     }
 
     /**
-     * Allows to load the controller
+     * Allows to load the pure Java stand-in working on a synthetic controller
      *
-     * @param file_name the file name to load the controller form
-     * @return the number of controller dimensions
-     * @throws java.io.FileNotFoundException if the controller file is not found
-     * @throws IllegalAccessException if the JNI invocation has failed
-     * @throws InvocationTargetException if the JNI invocation has failed
+     * @param spec the synthetic controller specification
+     * @return true if the stand-in could not be loaded, otherwise false
      */
-    public int load(final String file_name) throws FileNotFoundException,
-            IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        return (Integer) m_load.invoke(null, file_name);
+    private boolean load_synthetic(final String spec) {
+        try {
+            SyntheticScots2JNI.load_lib(spec);
+            bind(SyntheticScots2JNI.class);
+            LOGGER.log(Level.INFO, "Using the synthetic controller backend: {0}", spec);
+        } catch (IllegalArgumentException | NoSuchMethodException
+                | IllegalAccessException ex) {
+            LOGGER.log(Level.SEVERE, "Failed when loading the synthetic backend: "
+                    + spec, ex);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Allows to get the controller's state space size. I.e. the number of
-     * state-space grid points. This value is larger than the domain size.
+     * Allows to get the last configuration
      *
-     * @param ss_dim the number of state-space dimensions
+     * @return the last configuration, or null if not configured
+     */
+    BackendConfig get_config() {
+        return m_cfg;
+    }
+
+    /**
+     * Binds the fitness computations to the static methods of the given
+     * backend class, which must provide the Scots2JNI methods
      *
-     * @return the loaded controller's state-space size.
-     * @throws IllegalArgumentException if one of the configuration parameters
-     * has an incorrect value
-     * @throws IllegalAccessException if the JNI invocation has failed
-     * @throws InvocationTargetException if the JNI invocation has failed
+     * @param backend the backend class
+     * @throws NoSuchMethodException if a mandatory method is not found
+     * @throws IllegalAccessException if a method is not accessible
      */
-    public int get_state_space_size(final int ss_dim) throws IllegalArgumentException,
-            IllegalAccessException, InvocationTargetException {
-        return (Integer) m_get_ss_size.invoke(null, ss_dim);
+    void bind(final Class<?> backend) throws NoSuchMethodException,
+            IllegalAccessException {
+        m_class = backend;
+        m_load = get_handle("load",
+                MethodType.methodType(int.class, String.class));
+        m_get_ss_size = get_handle("get_state_space_size",
+                MethodType.methodType(int.class, int.class));
+        m_configure = get_handle("configure",
+                MethodType.methodType(void.class, FConfig.class));
+        m_compute_fitness = get_handle("compute_fitness",
+                MethodType.methodType(Fitness.class, String.class));
+        m_start_unfit_export = get_handle("start_unfit_export",
+                MethodType.methodType(void.class));
+        m_export_unfit_points = get_handle("export_unfit_points",
+                MethodType.methodType(double.class, String.class));
+        m_finish_unfit_export = get_handle("finish_unfit_export",
+                MethodType.methodType(void.class, String.class));
+        m_compute_fitness_batch = get_opt_handle("compute_fitness_batch",
+                MethodType.methodType(Fitness[].class, String[].class));
+        m_get_domain_size = get_opt_handle("get_domain_size",
+                MethodType.methodType(long.class));
+        m_export_unfit_points_range = get_opt_handle("export_unfit_points_range",
+                MethodType.methodType(long.class, String.class, long.class, long.class));
     }
 
     /**
-     * Allows to configure the fitness computer
+     * Allows to get a method handle of the loaded Scots2JNI class adapted to
+     * the given type, so that it can be called with invokeExact.
      *
-     * @param cfg the configuration object
-     * @throws IllegalArgumentException if one of the configuration parameters
-     * has an incorrect value
-     * @throws IllegalAccessException if the JNI invocation has failed
-     * @throws InvocationTargetException if the JNI invocation has failed
+     * @param name the static method name
+     * @param type the method type to adapt the handle to
+     * @return the method handle
+     * @throws NoSuchMethodException if the method is not found
+     * @throws IllegalAccessException if the method is not accessible
      */
-    public void configure(final FConfig cfg) throws IllegalArgumentException,
+    private MethodHandle get_handle(final String name, final MethodType type)
+            throws NoSuchMethodException, IllegalAccessException {
+        final Method method = m_class.getMethod(name, type.parameterArray());
+        return MethodHandles.publicLookup().unreflect(method).asType(type);
+    }
+
+    /**
+     * Allows to get an optional method handle of the loaded Scots2JNI class
+     *
+     * @param name the static method name
+     * @param type the method type to adapt the handle to
+     * @return the method handle or null if there is no such method
+     * @throws IllegalAccessException if the method is not accessible
+     */
+    private MethodHandle get_opt_handle(final String name, final MethodType type)
+            throws IllegalAccessException {
+        try {
+            return get_handle(name, type);
+        } catch (NoSuchMethodException ex) {
+            LOGGER.log(Level.INFO, "The {0} backend has no {1} method",
+                    new Object[]{m_class.getName(), name});
+            return null;
+        }
+    }
+
+    /**
+     * Wraps the exception thrown by the JNI method handle in the same way the
+     * reflective invocation does it.
+     *
+     * @param ex the exception thrown by the method handle invocation
+     * @return the invocation target exception wrapping the cause
+     */
+    private static InvocationTargetException wrap(final Throwable ex) {
+        return new InvocationTargetException(ex);
+    }
+
+    @Override
+    public int load(final String file_name) throws FileNotFoundException,
+            IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        controller_loaded();
+        try {
+            return (int) m_load.invokeExact(file_name);
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+    }
+
+    @Override
+    public int get_state_space_size(final int ss_dim) throws IllegalArgumentException,
+            IllegalAccessException, InvocationTargetException {
+        try {
+            return (int) m_get_ss_size.invokeExact(ss_dim);
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+    }
+
+    @Override
+    public void configure(final BackendConfig cfg) throws IllegalArgumentException,
             IllegalAccessException, InvocationTargetException {
-        m_configure.invoke(null, cfg);
+        final FConfig f_cfg = new FConfig(cfg.m_num_ss_dofs,
+                cfg.m_ftn_type.get_uid(), cfg.m_attr_size, cfg.m_ftn_scale,
+                cfg.m_is_scale, cfg.m_is_extend, cfg.m_is_complex,
+                cfg.m_is_monte_carlo, cfg.m_is_rec_strat_sample,
+                cfg.m_sample_size, cfg.m_re_sample_attempts,
+                cfg.m_min_bisect_size, cfg.m_sample_bisect_ratio);
+        m_cfg = cfg;
+        try {
+            m_configure.invokeExact(f_cfg);
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+        configured(cfg);
+    }
+
+    @Override
+    protected boolean is_batch_supported() {
+        return (m_compute_fitness_batch != null);
     }
 
     @Override
@@ -169,42 +289,144 @@ public class ScotsFacade extends FitnessComputerClass {
             throws IllegalStateException, IllegalArgumentException,
             ClassNotFoundException, IllegalAccessException,
             InvocationTargetException {
-        return (Fitness) m_compute_fitness.invoke(null, class_name);
+        final Object event = FlightEvents.begin_fitness();
+        final Fitness ftn = super.compute_fitness(mgr_id, class_name);
+        if (event != null) {
+            FlightEvents.end_fitness(event, mgr_id,
+                    (ftn != null) ? ftn.get_fitness() : Double.NaN);
+        }
+        return ftn;
+    }
+
+    @Override
+    protected Fitness compute_single(final int mgr_id, final String class_name)
+            throws InvocationTargetException {
+        try {
+            return (Fitness) m_compute_fitness.invokeExact(class_name);
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+    }
+
+    /**
+     * Allows to compute the fitness of many individual classes in one call. If
+     * the backend supports it the batch is evaluated in a single sweep over
+     * the controller's state points, otherwise one by one. The native back-end
+     * is not aware of the process managers, the batch of one manager is passed
+     * on as it is.
+     *
+     * @param mgr_id the process manager id
+     * @param class_names the individual class names
+     * @return the array of fitness objects in the same order as class names
+     * @throws ClassNotFoundException if an individual class is not found
+     * @throws IllegalAccessException if the JNI invocation has failed
+     * @throws InvocationTargetException if the JNI invocation has failed
+     */
+    @Override
+    public Fitness[] compute_fitness_batch(
+            final int mgr_id, final String[] class_names)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        if (m_compute_fitness_batch != null) {
+            try {
+                return (Fitness[]) m_compute_fitness_batch.invokeExact(class_names);
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        } else {
+            return super.compute_fitness_batch(mgr_id, class_names);
+        }
     }
 
     /**
-     * Allows to store the unfit points for the resulting symbolic controller
+     * Exports the unfit points in domain chunks evaluated in parallel, the
+     * native side merges the per chunk unfit points into the export started
+     * with start_unfit_export.
      *
-     * @param file_name the file name, without the extension (will be stored as
-     * a BDD)
-     * @param ind stores the best fit individual
-     * @return an array of fitness objects per individual in the inds list (the
-     * same order)
-     * @throws java.lang.IllegalAccessException if the JNI illegal access occurs
-     * @throws java.lang.reflect.InvocationTargetException if the JNI target can
-     * not be invoked
+     * @param class_name the individual's class name
+     * @param progress the export progress call back, or null
+     * @return the fitness of the individual on the entire controller's domain
+     * @throws InvocationTargetException if the backend invocation has failed
      */
+    private Fitness export_unfit_points(final String class_name,
+            final ExportProgress progress) throws InvocationTargetException {
+        final long dom_size;
+        try {
+            dom_size = (long) m_get_domain_size.invokeExact();
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+        final AtomicLong num_fit = new AtomicLong();
+        export_chunks(dom_size, progress, (chunk_idx, begin, end) -> {
+            try {
+                num_fit.addAndGet((long) m_export_unfit_points_range.invokeExact(
+                        class_name, begin, end));
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        });
+        return new Fitness((dom_size > 0) ? ((double) num_fit.get()) / dom_size : 0.0);
+    }
+
+    @Override
     public Fitness store_unfit_points(
-            final String file_name, final Individual ind)
+            final String file_name, final Individual ind,
+            final ExportProgress progress)
             throws IllegalAccessException, InvocationTargetException {
-        //Start new unfit points export
-        m_start_unfit_export.invoke(null, new Object[]{});
-
         //Export the unfit points, missuse the fintess compute class instance for that.
-        Fitness ftn = new FitnessComputerClass() {
+        return new FitnessComputerClass() {
             @Override
             public Fitness compute_fitness(int mgr_id, String class_name)
                     throws IllegalStateException, IllegalArgumentException,
                     ClassNotFoundException, IllegalAccessException,
                     InvocationTargetException {
-                final Double fitness
-                        = (Double) m_export_unfit_points.invoke(null, class_name);
-                return new Fitness(fitness);
+                return store_unfit_points(file_name, class_name, progress);
             }
         }.compute_fitness(ind.get_mgr_id(), ind.get_expr_array());
+    }
+
+    /**
+     * Stores the unfit points of the compiled individual's class, in domain
+     * chunks if the backend supports the ranged export, otherwise in a single
+     * backend call with an indeterminate progress
+     *
+     * @param file_name the file name, without the extension
+     * @param class_name the individual's class name
+     * @param progress the export progress call back, or null
+     * @return the fitness of the individual on the entire controller's domain
+     * @throws InvocationTargetException if the backend invocation has failed
+     */
+    Fitness store_unfit_points(final String file_name, final String class_name,
+            final ExportProgress progress) throws InvocationTargetException {
+        //Start new unfit points export
+        try {
+            m_start_unfit_export.invokeExact();
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
+
+        //Export the unfit points
+        final Fitness ftn;
+        if ((m_get_domain_size != null) && (m_export_unfit_points_range != null)) {
+            ftn = export_unfit_points(class_name, progress);
+        } else {
+            //A single native pass, its progress is not known
+            if (progress != null) {
+                progress.update_progress(0, -1);
+            }
+            try {
+                ftn = new Fitness((double) m_export_unfit_points.invokeExact(class_name));
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        }
 
         //Finish new unfit points export
-        m_finish_unfit_export.invoke(null, file_name + UNFIT_FILE_SUFFIX);
+        try {
+            m_finish_unfit_export.invokeExact(file_name + UNFIT_FILE_SUFFIX);
+        } catch (Throwable ex) {
+            throw wrap(ex);
+        }
 
         //Return the fitness results
         return ftn;
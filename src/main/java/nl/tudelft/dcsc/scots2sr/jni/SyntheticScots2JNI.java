@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jni;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import nl.tudelft.dcsc.scots2jni.FConfig;
+import nl.tudelft.dcsc.scots2sr.backend.BackendConfig;
+import nl.tudelft.dcsc.scots2sr.backend.SyntheticBackend;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+
+/**
+ * The pure Java stand-in for Scots2JNI working on a synthetic controller, see
+ * {@link SyntheticBackend}. Provides the same static methods as Scots2JNI and
+ * is bound by {@link ScotsFacade#load_library(java.lang.String)} if the
+ * library name starts with {@link ScotsFacade#SYNTHETIC_LIB_PREF}, the rest of
+ * the name is the synthetic controller specification.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class SyntheticScots2JNI {
+
+    //Stores the synthetic backend, or null if not loaded
+    private static volatile SyntheticBackend m_backend = null;
+
+    /**
+     * The private constructor, only has static methods
+     */
+    private SyntheticScots2JNI() {
+    }
+
+    /**
+     * Allows to get the synthetic backend
+     *
+     * @return the synthetic backend
+     * @throws IllegalStateException if the stand-in is not loaded
+     */
+    private static SyntheticBackend get_backend() throws IllegalStateException {
+        final SyntheticBackend backend = m_backend;
+        if (backend == null) {
+            throw new IllegalStateException("The synthetic backend is not loaded!");
+        }
+        return backend;
+    }
+
+    public static void load_lib(final String spec) {
+        m_backend = new SyntheticBackend(spec);
+    }
+
+    public static int load(final String file_name) {
+        return get_backend().load(file_name);
+    }
+
+    public static int get_state_space_size(final int ss_dim)
+            throws IllegalAccessException, InvocationTargetException {
+        return get_backend().get_state_space_size(ss_dim);
+    }
+
+    public static void configure(final FConfig cfg)
+            throws IllegalAccessException, InvocationTargetException {
+        //The FConfig values are meant for the native side, use the original
+        final BackendConfig b_cfg = ScotsFacade.INSTANCE.get_config();
+        if (b_cfg == null) {
+            throw new IllegalStateException("The fitness backend is not configured!");
+        }
+        get_backend().configure(b_cfg);
+    }
+
+    public static Fitness compute_fitness(final String class_name)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        return get_backend().compute_fitness(0, class_name);
+    }
+
+    public static Fitness[] compute_fitness_batch(final String[] class_names)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        return get_backend().compute_fitness_batch(0, class_names);
+    }
+
+    public static void start_unfit_export() {
+        get_backend().start_unfit_export();
+    }
+
+    public static double export_unfit_points(final String class_name)
+            throws ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final long dom_size = get_domain_size();
+        final long num_fit = export_unfit_points_range(class_name, 0, dom_size);
+        return (dom_size > 0) ? ((double) num_fit) / dom_size : 0.0;
+    }
+
+    public static void finish_unfit_export(final String file_name) throws IOException {
+        get_backend().finish_unfit_export(file_name);
+    }
+
+    public static long get_domain_size() {
+        return get_backend().get_domain_size();
+    }
+
+    public static long export_unfit_points_range(final String class_name,
+            final long begin, final long end) throws ClassNotFoundException,
+            IllegalAccessException, InvocationTargetException {
+        return get_backend().export_unfit_points_range(class_name, begin, end);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic event counter, is cheap to increment from many threads. Is
+ * thread safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Counter {
+
+    //Stores the number of counted events
+    private final LongAdder m_count;
+
+    /**
+     * The basic constructor
+     */
+    Counter() {
+        m_count = new LongAdder();
+    }
+
+    /**
+     * Counts one event
+     */
+    public void inc() {
+        m_count.increment();
+    }
+
+    /**
+     * Counts the given number of events
+     *
+     * @param num the number of events
+     */
+    public void add(final long num) {
+        m_count.add(num);
+    }
+
+    /**
+     * Allows to get the number of counted events
+     *
+     * @return the number of counted events
+     */
+    public long get_count() {
+        return m_count.sum();
+    }
+
+    /**
+     * Drops the counted events
+     */
+    void reset() {
+        m_count.reset();
+    }
+}
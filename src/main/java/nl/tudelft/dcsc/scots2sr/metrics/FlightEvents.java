@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The entry point of the flight recorder events. The events are disabled
+ * unless the JVM is started with {@code -Dscots2sr.jfr=true} and the build
+ * includes the flight recorder sink. When disabled the begin methods return
+ * null and the end methods ignore it, the check is on a static final flag
+ * and is thus folded away by the JIT.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class FlightEvents {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(FlightEvents.class.getName());
+
+    //Stores the system property enabling the events
+    public static final String ENABLED_PROP = "scots2sr.jfr";
+    //Stores the flight recorder sink class name, is built with the jfr profile
+    private static final String SINK_CLASS = "nl.tudelft.dcsc.scots2sr.jfr.JfrSink";
+
+    //Stores the event sink, or null if the events are disabled
+    private static final FlightSink SINK = load_sink();
+    //Stores the flag indicating whether the events are enabled
+    public static final boolean ENABLED = (SINK != null);
+
+    //Stop stage: requesting the process manager to stop
+    public static final String STOP_REQUEST = "stop.request";
+    //Stop stage: waiting for the process manager to stop
+    public static final String STOP_WAIT = "stop.wait";
+    //Stop stage: storing the last population snapshot
+    public static final String STOP_CHECKPOINT = "stop.checkpoint";
+    //Save stage: optimizing the best fit individuals
+    public static final String SAVE_OPTIMIZE = "save.optimize";
+    //Save stage: choosing the smallest individual
+    public static final String SAVE_CHOOSE = "save.choose";
+    //Save stage: storing the unfit points
+    public static final String SAVE_UNFIT = "save.store_unfit_points";
+    //Save stage: storing the symbolic controller
+    public static final String SAVE_SYMBOLIC = "save.store_symbolic";
+
+    /**
+     * The private constructor
+     */
+    private FlightEvents() {
+    }
+
+    /**
+     * Instantiates the flight recorder sink, if enabled and available
+     *
+     * @return the sink or null if the events are disabled
+     */
+    private static FlightSink load_sink() {
+        if (Boolean.getBoolean(ENABLED_PROP)) {
+            try {
+                final FlightSink sink = (FlightSink) Class.forName(SINK_CLASS).newInstance();
+                LOGGER.info("The flight recorder events are enabled");
+                return sink;
+            } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+                LOGGER.log(Level.WARNING, "The flight recorder events are not "
+                        + "available, the build must include the jfr profile "
+                        + "and run on a JDK providing jdk.jfr", ex);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Begins the fitness evaluation event
+     *
+     * @return the event handle, or null if disabled
+     */
+    public static Object begin_fitness() {
+        return ENABLED ? SINK.begin_fitness() : null;
+    }
+
+    /**
+     * Ends the fitness evaluation event
+     *
+     * @param event the event handle, or null
+     * @param mgr_id the process manager id
+     * @param fitness the computed fitness value
+     */
+    public static void end_fitness(final Object event, final int mgr_id, final double fitness) {
+        if (event != null) {
+            SINK.end_fitness(event, mgr_id, fitness);
+        }
+    }
+
+    /**
+     * Begins the grid update event
+     *
+     * @return the event handle, or null if disabled
+     */
+    public static Object begin_grid() {
+        return ENABLED ? SINK.begin_grid() : null;
+    }
+
+    /**
+     * Ends the grid update event
+     *
+     * @param event the event handle, or null
+     * @param is_set true if the individual is settled, false if it is removed
+     * @param mgr_id the process manager id
+     * @param pos_x the grid position x
+     * @param pos_y the grid position y
+     * @param act_ftn the individual's actual fitness
+     */
+    public static void end_grid(final Object event, final boolean is_set,
+            final int mgr_id, final int pos_x, final int pos_y, final double act_ftn) {
+        if (event != null) {
+            SINK.end_grid(event, is_set, mgr_id, pos_x, pos_y, act_ftn);
+        }
+    }
+
+    /**
+     * Begins the lifecycle stage event
+     *
+     * @return the event handle, or null if disabled
+     */
+    public static Object begin_stage() {
+        return ENABLED ? SINK.begin_stage() : null;
+    }
+
+    /**
+     * Ends the lifecycle stage event
+     *
+     * @param event the event handle, or null
+     * @param stage the stage name
+     */
+    public static void end_stage(final Object event, final String stage) {
+        if (event != null) {
+            SINK.end_stage(event, stage);
+        }
+    }
+}
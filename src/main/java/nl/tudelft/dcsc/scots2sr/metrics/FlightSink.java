@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+/**
+ * The sink of the flight recorder events. An event is begun before the
+ * measured activity and is ended, i.e. committed, right after it. The event
+ * handles are opaque, so that the code does not depend on the flight recorder
+ * API unless the sink is installed. Must be thread safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public interface FlightSink {
+
+    /**
+     * Begins the fitness evaluation event
+     *
+     * @return the event handle
+     */
+    public Object begin_fitness();
+
+    /**
+     * Ends the fitness evaluation event
+     *
+     * @param event the event handle
+     * @param mgr_id the process manager id
+     * @param fitness the computed fitness value
+     */
+    public void end_fitness(final Object event, final int mgr_id, final double fitness);
+
+    /**
+     * Begins the grid update event
+     *
+     * @return the event handle
+     */
+    public Object begin_grid();
+
+    /**
+     * Ends the grid update event
+     *
+     * @param event the event handle
+     * @param is_set true if the individual is settled, false if it is removed
+     * @param mgr_id the process manager id
+     * @param pos_x the grid position x
+     * @param pos_y the grid position y
+     * @param act_ftn the individual's actual fitness
+     */
+    public void end_grid(final Object event, final boolean is_set,
+            final int mgr_id, final int pos_x, final int pos_y, final double act_ftn);
+
+    /**
+     * Begins the lifecycle stage event
+     *
+     * @return the event handle
+     */
+    public Object begin_stage();
+
+    /**
+     * Ends the lifecycle stage event
+     *
+     * @param event the event handle
+     * @param stage the stage name
+     */
+    public void end_stage(final Object event, final String stage);
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size, HDR-style latency histogram of nanosecond values. Every power
+ * of two range is split into SUB_COUNT linear sub-buckets, so the recorded
+ * values are kept with a relative error below 1/SUB_COUNT whatever their
+ * magnitude, while recording is a couple of atomic increments. Is thread
+ * safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class LatencyHistogram {
+
+    //Stores the number of bits of the sub-bucket index
+    private static final int SUB_BITS = 5;
+    //Stores the number of sub-buckets per power of two range
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    //Stores the total number of buckets, covers all the positive long values
+    private static final int NUM_BUCKETS = SUB_COUNT + (Long.SIZE - 1 - SUB_BITS) * SUB_COUNT;
+
+    //Stores the per bucket value counts
+    private final AtomicLongArray m_buckets;
+    //Stores the number of recorded values
+    private final LongAdder m_count;
+    //Stores the sum of the recorded values
+    private final LongAdder m_sum;
+    //Stores the maximum recorded value
+    private final LongAccumulator m_max;
+
+    /**
+     * The basic constructor
+     */
+    LatencyHistogram() {
+        m_buckets = new AtomicLongArray(NUM_BUCKETS);
+        m_count = new LongAdder();
+        m_sum = new LongAdder();
+        m_max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * Allows to get the bucket index of the value
+     *
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    static int get_bucket(final long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        } else {
+            final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+            return SUB_COUNT + shift * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+        }
+    }
+
+    /**
+     * Allows to get the largest value falling into the bucket
+     *
+     * @param bucket the bucket index
+     * @return the largest bucket value
+     */
+    static long get_bucket_max(final int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        } else {
+            final int shift = (bucket - SUB_COUNT) / SUB_COUNT;
+            final long sub = (bucket - SUB_COUNT) % SUB_COUNT;
+            return ((SUB_COUNT + sub + 1) << shift) - 1;
+        }
+    }
+
+    /**
+     * Records the duration elapsed since the given start time
+     *
+     * @param start_ns the start time as given by System.nanoTime()
+     */
+    public void record_since(final long start_ns) {
+        record(System.nanoTime() - start_ns);
+    }
+
+    /**
+     * Records the duration
+     *
+     * @param duration_ns the duration in nanoseconds, the negative values are
+     * recorded as 0
+     */
+    public void record(final long duration_ns) {
+        final long value = Math.max(0L, duration_ns);
+        m_buckets.incrementAndGet(get_bucket(value));
+        m_count.increment();
+        m_sum.add(value);
+        m_max.accumulate(value);
+    }
+
+    /**
+     * Allows to get the number of recorded values
+     *
+     * @return the number of recorded values
+     */
+    public long get_count() {
+        return m_count.sum();
+    }
+
+    /**
+     * Allows to get the sum of the recorded values
+     *
+     * @return the sum of the recorded values in nanoseconds
+     */
+    public long get_sum_ns() {
+        return m_sum.sum();
+    }
+
+    /**
+     * Allows to get the maximum recorded value
+     *
+     * @return the maximum recorded value in nanoseconds
+     */
+    public long get_max_ns() {
+        return m_max.get();
+    }
+
+    /**
+     * Allows to get the mean recorded value
+     *
+     * @return the mean recorded value in nanoseconds, 0 if none
+     */
+    public double get_mean_ns() {
+        final long count = get_count();
+        return (count > 0) ? ((double) get_sum_ns()) / count : 0.0;
+    }
+
+    /**
+     * Allows to get the value at the given percentile, is accurate up to the
+     * bucket width. The recording threads may proceed meanwhile, so the result
+     * is a snapshot of a moving histogram.
+     *
+     * @param pct the percentile within [0.0, 100.0]
+     * @return the value at the percentile in nanoseconds, 0 if none
+     */
+    public long get_percentile_ns(final double pct) {
+        return get_percentiles_ns(pct)[0];
+    }
+
+    /**
+     * Allows to get the values at the given percentiles in a single pass
+     * over the buckets, see {@link #get_percentile_ns(double)}.
+     *
+     * @param pcts the ascending percentiles within [0.0, 100.0]
+     * @return the values at the percentiles in nanoseconds, 0 if none
+     */
+    public long[] get_percentiles_ns(final double... pcts) {
+        final long[] values = new long[pcts.length];
+        final long[] counts = new long[NUM_BUCKETS];
+        long total = 0L;
+        for (int idx = 0; idx < NUM_BUCKETS; ++idx) {
+            counts[idx] = m_buckets.get(idx);
+            total += counts[idx];
+        }
+        if (total > 0) {
+            final long max_ns = get_max_ns();
+            long seen = 0L;
+            int idx = 0;
+            for (int pct_idx = 0; pct_idx < pcts.length; ++pct_idx) {
+                final long rank = Math.max(1L, (long) Math.ceil(total * pcts[pct_idx] / 100.0));
+                while ((seen + counts[idx] < rank) && (idx < NUM_BUCKETS - 1)) {
+                    seen += counts[idx];
+                    ++idx;
+                }
+                values[pct_idx] = Math.min(get_bucket_max(idx), max_ns);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Drops the recorded values
+     */
+    void reset() {
+        for (int idx = 0; idx < NUM_BUCKETS; ++idx) {
+            m_buckets.set(idx, 0L);
+        }
+        m_count.reset();
+        m_sum.reset();
+        m_max.reset();
+    }
+
+    /**
+     * Converts the nanoseconds into milliseconds
+     *
+     * @param value_ns the nanoseconds value
+     * @return the milliseconds value
+     */
+    private static double to_ms(final double value_ns) {
+        return value_ns / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        final long[] pcts_ns = get_percentiles_ns(50.0, 90.0, 99.0);
+        return String.format("count: %d, total: %.3f ms, mean: %.3f ms, "
+                + "p50: %.3f ms, p90: %.3f ms, p99: %.3f ms, max: %.3f ms",
+                get_count(), to_ms(get_sum_ns()), to_ms(get_mean_ns()),
+                to_ms(pcts_ns[0]), to_ms(pcts_ns[1]), to_ms(pcts_ns[2]),
+                to_ms(get_max_ns()));
+    }
+}
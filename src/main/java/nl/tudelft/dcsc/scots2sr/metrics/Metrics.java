@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The process wide metrics registry: named counters, gauges and latency
+ * histograms. The metrics are created on first use and live as long as the
+ * process, resetting only drops their values, so the hot paths may keep
+ * references to them. The summary is logged and thus ends up in the
+ * {@code .gp.log} file. Is thread safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Metrics {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+
+    //Stores the controller loading phase histogram name
+    public static final String LOAD = "phase.load";
+    //Stores the fitness backend configuration phase histogram name
+    public static final String CONFIGURE = "phase.configure";
+    //Stores the grammar creation phase histogram name
+    public static final String CREATE_GRAMMAR = "phase.create_grammar";
+    //Stores the grammars preparation phase histogram name
+    public static final String PREPARE_GRAMMARS = "phase.prepare_grammars";
+    //Stores the breeding phase histogram name, from start until stopped
+    public static final String BREEDING = "phase.breeding";
+    //Stores the best individual optimization phase histogram name
+    public static final String OPTIMIZE = "phase.optimize";
+    //Stores the unfit points export phase histogram name
+    public static final String STORE_UNFIT = "phase.store_unfit_points";
+    //Stores the per individual fitness computation histogram name
+    public static final String FITNESS = "fitness.compute";
+    //Stores the settled individuals counter name
+    public static final String SETTLES = "grid.settles";
+    //Stores the used heap gauge name
+    public static final String HEAP_USED_MB = "jvm.heap_used_mb";
+    //Stores the maximum actual fitness gauge name
+    public static final String ACT_FTN_MAX = "tracker.actual_fitness_max";
+    //Stores the mean actual fitness gauge name
+    public static final String ACT_FTN_MEAN = "tracker.actual_fitness_mean";
+    //Stores the maximum extended fitness gauge name
+    public static final String EXT_FTN_MAX = "tracker.extended_fitness_max";
+    //Stores the mean extended fitness gauge name
+    public static final String EXT_FTN_MEAN = "tracker.extended_fitness_mean";
+    //Stores the occupied grid cells fraction gauge name
+    public static final String GRID_OCCUPANCY = "tracker.grid_occupancy";
+    //Stores the fitness cache hits gauge name
+    public static final String CACHE_HITS = "fitness.cache_hits";
+    //Stores the fitness cache misses gauge name
+    public static final String CACHE_MISSES = "fitness.cache_misses";
+    //Stores the fitness cache hit ratio gauge name
+    public static final String CACHE_HIT_RATIO = "fitness.cache_hit_ratio";
+
+    //Stores the only instance of the registry
+    public static final Metrics INSTANCE = new Metrics();
+
+    //Stores the counters, sorted by name
+    private final Map<String, Counter> m_counters;
+    //Stores the gauges, sorted by name
+    private final Map<String, DoubleSupplier> m_gauges;
+    //Stores the latency histograms, sorted by name
+    private final Map<String, LatencyHistogram> m_histograms;
+    //Stores the time of the last reset as given by System.nanoTime()
+    private volatile long m_reset_ns;
+
+    /**
+     * The basic constructor
+     */
+    private Metrics() {
+        m_counters = new ConcurrentSkipListMap<>();
+        m_gauges = new ConcurrentSkipListMap<>();
+        m_histograms = new ConcurrentSkipListMap<>();
+        m_reset_ns = System.nanoTime();
+        gauge(HEAP_USED_MB, () -> {
+            final Runtime rt = Runtime.getRuntime();
+            return (rt.totalMemory() - rt.freeMemory()) / (1024.0 * 1024.0);
+        });
+    }
+
+    /**
+     * Allows to get the counter, creates it if not present
+     *
+     * @param name the counter name
+     * @return the counter
+     */
+    public Counter counter(final String name) {
+        return m_counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Allows to get the latency histogram, creates it if not present
+     *
+     * @param name the histogram name
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(final String name) {
+        return m_histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Allows to register a gauge, the gauge value is read on demand and
+     * replaces the previously registered gauge with the same name
+     *
+     * @param name the gauge name
+     * @param value the gauge value supplier
+     */
+    public void gauge(final String name, final DoubleSupplier value) {
+        m_gauges.put(name, value);
+    }
+
+    /**
+     * Allows to get the counters
+     *
+     * @return the read-only view of the counters sorted by name
+     */
+    public Map<String, Counter> get_counters() {
+        return Collections.unmodifiableMap(m_counters);
+    }
+
+    /**
+     * Allows to get the gauges
+     *
+     * @return the read-only view of the gauges sorted by name
+     */
+    public Map<String, DoubleSupplier> get_gauges() {
+        return Collections.unmodifiableMap(m_gauges);
+    }
+
+    /**
+     * Allows to get the latency histograms
+     *
+     * @return the read-only view of the histograms sorted by name
+     */
+    public Map<String, LatencyHistogram> get_histograms() {
+        return Collections.unmodifiableMap(m_histograms);
+    }
+
+    /**
+     * Records the duration elapsed since the given start time into the
+     * latency histogram
+     *
+     * @param name the histogram name
+     * @param start_ns the start time as given by System.nanoTime()
+     */
+    public void record_since(final String name, final long start_ns) {
+        histogram(name).record_since(start_ns);
+    }
+
+    /**
+     * Drops the values of all the counters and histograms, the gauges are
+     * kept. Starts a new rate measurement interval.
+     */
+    public void reset() {
+        m_counters.values().forEach(Counter::reset);
+        m_histograms.values().forEach(LatencyHistogram::reset);
+        m_reset_ns = System.nanoTime();
+    }
+
+    /**
+     * Allows to get the number of seconds since the last reset
+     *
+     * @return the number of seconds since the last reset
+     */
+    public double get_elapsed_sec() {
+        return ((double) (System.nanoTime() - m_reset_ns)) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Allows to get the metrics summary, the counter rates are per second
+     * since the last reset
+     *
+     * @return the metrics summary, one metric per line
+     */
+    public String get_summary() {
+        final double elapsed_sec = get_elapsed_sec();
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("elapsed: %.3f sec", elapsed_sec));
+        m_counters.forEach((name, counter) -> {
+            final long count = counter.get_count();
+            sb.append(String.format("%n%s: %d (%.1f/sec)", name, count,
+                    (elapsed_sec > 0.0) ? count / elapsed_sec : 0.0));
+        });
+        m_gauges.forEach((name, value) -> {
+            sb.append(String.format("%n%s: %.3f", name, value.getAsDouble()));
+        });
+        m_histograms.forEach((name, hist) -> {
+            sb.append(String.format("%n%s: %s", name, hist));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Logs the metrics summary
+     *
+     * @param reason the reason of logging, e.g. the lifecycle event
+     */
+    public void log_summary(final String reason) {
+        LOGGER.log(Level.INFO, "Metrics summary on {0}:\n{1}",
+                new Object[]{reason, get_summary()});
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The embedded HTTP endpoint exposing the metrics registry in the Prometheus
+ * text format. The counters and the histogram counts are also exposed as per
+ * second rates, these are sampled periodically, so that a scrape only reads
+ * the pre-aggregated values and never blocks the regression.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class MetricsServer {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(MetricsServer.class.getName());
+
+    //Stores the metrics endpoint path
+    public static final String PATH = "/metrics";
+    //Stores the metric names prefix
+    private static final String PREFIX = "scots2sr_";
+    //Stores the Prometheus text format content type
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    //Stores the rates sampling period in seconds
+    private static final long SAMPLE_PERIOD_SEC = 1;
+    //Stores the exposed latency quantiles
+    private static final double[] QUANTILES = new double[]{0.5, 0.9, 0.99};
+
+    /**
+     * The per second rate of a monotonic count
+     */
+    private static final class Rate {
+
+        //Stores the count at the last sample
+        long m_last_count = 0L;
+        //Stores the rate since the previous sample
+        volatile double m_per_sec = 0.0;
+    }
+
+    //Stores the HTTP server
+    private final HttpServer m_server;
+    //Stores the rates sampling executor
+    private final ScheduledExecutorService m_sampler;
+    //Stores the rates per metric name
+    private final Map<String, Rate> m_rates;
+    //Stores the last sample time as given by System.nanoTime()
+    private long m_last_ns;
+
+    /**
+     * The basic constructor, binds the endpoint but does not serve it yet
+     *
+     * @param host the host name or address to bind to
+     * @param port the port to bind to
+     * @throws IOException if the endpoint could not be bound
+     */
+    public MetricsServer(final String host, final int port) throws IOException {
+        m_server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        m_server.createContext(PATH, this::handle);
+        m_sampler = Executors.newSingleThreadScheduledExecutor((Runnable run) -> {
+            final Thread thread = new Thread(run, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_rates = new ConcurrentHashMap<>();
+        m_last_ns = System.nanoTime();
+    }
+
+    /**
+     * Starts sampling the rates and serving the endpoint
+     */
+    public void start() {
+        m_last_ns = System.nanoTime();
+        m_sampler.scheduleAtFixedRate(this::sample,
+                SAMPLE_PERIOD_SEC, SAMPLE_PERIOD_SEC, TimeUnit.SECONDS);
+        m_server.start();
+        final InetSocketAddress addr = m_server.getAddress();
+        LOGGER.log(Level.INFO, "Serving metrics on http://{0}:{1}{2}",
+                new Object[]{addr.getHostString(), Integer.toString(addr.getPort()), PATH});
+    }
+
+    /**
+     * Stops serving the endpoint and sampling the rates
+     */
+    public void stop() {
+        m_server.stop(0);
+        m_sampler.shutdownNow();
+    }
+
+    /**
+     * Samples the counts and updates the per second rates, is only called
+     * from the sampler thread
+     */
+    private void sample() {
+        final long now_ns = System.nanoTime();
+        final double elapsed_sec = ((double) (now_ns - m_last_ns)) / TimeUnit.SECONDS.toNanos(1);
+        m_last_ns = now_ns;
+        Metrics.INSTANCE.get_counters().forEach((name, counter) -> {
+            update_rate(name, counter.get_count(), elapsed_sec);
+        });
+        Metrics.INSTANCE.get_histograms().forEach((name, hist) -> {
+            update_rate(name, hist.get_count(), elapsed_sec);
+        });
+    }
+
+    /**
+     * Updates the rate of the count
+     *
+     * @param name the metric name
+     * @param count the current count
+     * @param elapsed_sec the time since the previous sample in seconds
+     */
+    private void update_rate(final String name, final long count, final double elapsed_sec) {
+        final Rate rate = m_rates.computeIfAbsent(name, key -> new Rate());
+        //The count drops if the metrics are reset, then start over
+        final long delta = Math.max(0L, count - rate.m_last_count);
+        rate.m_last_count = count;
+        rate.m_per_sec = (elapsed_sec > 0.0) ? delta / elapsed_sec : 0.0;
+    }
+
+    /**
+     * Handles the metrics request
+     *
+     * @param exchange the HTTP exchange
+     * @throws IOException if the response could not be sent
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                final byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Renders the metrics in the Prometheus text format
+     *
+     * @return the metrics text
+     */
+    String render() {
+        final StringBuilder sb = new StringBuilder();
+        Metrics.INSTANCE.get_counters().forEach((name, counter) -> {
+            final String p_name = get_name(name);
+            append_type(sb, p_name + "_total", "counter");
+            append_value(sb, p_name + "_total", "", counter.get_count());
+            append_rate(sb, name);
+        });
+        Metrics.INSTANCE.get_gauges().forEach((name, value) -> {
+            final String p_name = get_name(name);
+            append_type(sb, p_name, "gauge");
+            append_value(sb, p_name, "", value.getAsDouble());
+        });
+        Metrics.INSTANCE.get_histograms().forEach((name, hist) -> {
+            final String p_name = get_name(name) + "_seconds";
+            final long[] values_ns = hist.get_percentiles_ns(
+                    QUANTILES[0] * 100.0, QUANTILES[1] * 100.0, QUANTILES[2] * 100.0);
+            append_type(sb, p_name, "summary");
+            for (int idx = 0; idx < QUANTILES.length; ++idx) {
+                append_value(sb, p_name, "{quantile=\"" + QUANTILES[idx] + "\"}",
+                        to_sec(values_ns[idx]));
+            }
+            append_value(sb, p_name + "_sum", "", to_sec(hist.get_sum_ns()));
+            append_value(sb, p_name + "_count", "", hist.get_count());
+            append_type(sb, p_name + "_max", "gauge");
+            append_value(sb, p_name + "_max", "", to_sec(hist.get_max_ns()));
+            append_rate(sb, name);
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Appends the per second rate gauge of the metric count, if sampled
+     *
+     * @param sb the string builder
+     * @param name the metric name
+     */
+    private void append_rate(final StringBuilder sb, final String name) {
+        final Rate rate = m_rates.get(name);
+        if (rate != null) {
+            final String p_name = get_name(name) + "_per_second";
+            append_type(sb, p_name, "gauge");
+            append_value(sb, p_name, "", rate.m_per_sec);
+        }
+    }
+
+    /**
+     * Allows to get the Prometheus metric name
+     *
+     * @param name the registry metric name
+     * @return the prefixed name with the invalid characters replaced
+     */
+    private static String get_name(final String name) {
+        return PREFIX + name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    /**
+     * Converts the nanoseconds into seconds
+     *
+     * @param value_ns the nanoseconds value
+     * @return the seconds value
+     */
+    private static double to_sec(final long value_ns) {
+        return ((double) value_ns) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Appends the metric type line
+     *
+     * @param sb the string builder
+     * @param p_name the Prometheus metric name
+     * @param type the metric type
+     */
+    private static void append_type(final StringBuilder sb,
+            final String p_name, final String type) {
+        sb.append("# TYPE ").append(p_name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Appends the metric value line
+     *
+     * @param sb the string builder
+     * @param p_name the Prometheus metric name
+     * @param labels the labels, including the braces, or an empty string
+     * @param value the metric value
+     */
+    private static void append_value(final StringBuilder sb,
+            final String p_name, final String labels, final double value) {
+        sb.append(p_name).append(labels).append(' ');
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            sb.append((value > 0) ? "+Inf" : "-Inf");
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically stores the population grid snapshot into a file, so that the
+ * population can be inspected after the regression is stopped or the JVM is
+ * restarted.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Checkpointer {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(Checkpointer.class.getName());
+
+    //The termination time out in seconds
+    private static final long TERM_TIME_OUT_SEC = 60;
+
+    //Stores the population grid tracker
+    private final FitnessTracker m_tracker;
+    //Stores the grid size
+    private final int m_size_x;
+    private final int m_size_y;
+    //Stores the number of dofs per individual
+    private final int m_num_dofs;
+    //Stores the snapshot file name
+    private final String m_file_name;
+    //Stores the snapshot executor
+    private final ScheduledExecutorService m_executor;
+
+    /**
+     * The basic constructor
+     *
+     * @param tracker the population grid tracker
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     * @param num_dofs the number of dofs per individual
+     * @param file_name the snapshot file name
+     */
+    public Checkpointer(final FitnessTracker tracker, final int size_x,
+            final int size_y, final int num_dofs, final String file_name) {
+        m_tracker = tracker;
+        m_size_x = size_x;
+        m_size_y = size_y;
+        m_num_dofs = num_dofs;
+        m_file_name = file_name;
+        m_executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            final Thread thread = new Thread(runnable, "gp-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts storing the snapshots periodically
+     *
+     * @param period_sec the period in seconds, must be positive
+     */
+    public void start(final long period_sec) {
+        LOGGER.log(Level.INFO, "Storing the population snapshot into {0} every {1} seconds",
+                new Object[]{m_file_name, period_sec});
+        m_executor.scheduleWithFixedDelay(this::store, period_sec, period_sec, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops storing the snapshots periodically and stores the last one, is to
+     * be called once the process manager is stopped
+     */
+    public void stop() {
+        m_executor.shutdown();
+        try {
+            if (!m_executor.awaitTermination(TERM_TIME_OUT_SEC, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.WARNING, "Failed to stop the checkpoint executor");
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "Interrupted while stopping the checkpoint executor");
+            Thread.currentThread().interrupt();
+        }
+        store();
+    }
+
+    /**
+     * Stores the population grid snapshot
+     */
+    private synchronized void store() {
+        try {
+            final PopulationSnapshot snapshot = PopulationSnapshot.take(
+                    m_tracker, m_size_x, m_size_y, m_num_dofs);
+            snapshot.store(m_file_name);
+            LOGGER.log(Level.INFO, "Stored the population snapshot of {0} individuals",
+                    snapshot.get_cells().size());
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed storing the population snapshot into: "
+                    + m_file_name, ex);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Stores the items of a fixed number of grid cells, indexed by their actual
+ * fitness, so that the best fit items are found without scanning the grid.
+ * The updates are lock free. The index may temporarily contain entries that
+ * are no longer in the grid, these are skipped. The non-finite fitness values
+ * are indexed as negative infinity, i.e. as the worst ones.
+ *
+ * @param <T> the item type
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class FitnessIndex<T> {
+
+    /**
+     * The grid entry, is ordered by the descending actual fitness and then by
+     * the grid cell and the entry sequence number.
+     *
+     * @param <T> the item type
+     */
+    private static final class Entry<T> implements Comparable<Entry<T>> {
+
+        //The item
+        final T m_item;
+        //The actual fitness, a non-finite one is stored as negative infinity
+        final double m_act_ftn;
+        //The grid cell index
+        final int m_cell;
+        //The unique entry sequence number
+        final long m_seq;
+
+        Entry(final T item, final double act_ftn, final int cell, final long seq) {
+            m_item = item;
+            m_act_ftn = (Double.isNaN(act_ftn) || Double.isInfinite(act_ftn))
+                    ? Double.NEGATIVE_INFINITY : act_ftn;
+            m_cell = cell;
+            m_seq = seq;
+        }
+
+        @Override
+        public int compareTo(final Entry<T> other) {
+            int result = Double.compare(other.m_act_ftn, m_act_ftn);
+            if (result == 0) {
+                result = Integer.compare(m_cell, other.m_cell);
+                if (result == 0) {
+                    result = Long.compare(m_seq, other.m_seq);
+                }
+            }
+            return result;
+        }
+    }
+
+    //The grid entries per cell
+    private final AtomicReferenceArray<Entry<T>> m_grid;
+    //The index of the grid entries by the actual fitness
+    private final ConcurrentSkipListSet<Entry<T>> m_index;
+    //The entry sequence number generator
+    private final AtomicLong m_seq;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_cells the number of grid cells
+     */
+    FitnessIndex(final int num_cells) {
+        m_grid = new AtomicReferenceArray<>(num_cells);
+        m_index = new ConcurrentSkipListSet<>();
+        m_seq = new AtomicLong();
+    }
+
+    /**
+     * Allows to get the number of grid cells
+     *
+     * @return the number of grid cells
+     */
+    int get_num_cells() {
+        return m_grid.length();
+    }
+
+    /**
+     * Allows to get the item of the grid cell
+     *
+     * @param cell the grid cell index
+     * @return the item or null if the cell is empty
+     */
+    T get(final int cell) {
+        final Entry<T> entry = m_grid.get(cell);
+        return (entry != null) ? entry.m_item : null;
+    }
+
+    /**
+     * Sets the item into the grid cell, replaces the previous one, if any.
+     * The new entry is indexed before it is published, so that an entry is
+     * always removed from the index after it has been added there.
+     *
+     * @param cell the grid cell index
+     * @param item the item, not null
+     * @param act_ftn the item's actual fitness
+     * @return the replaced item or null if the cell was empty
+     */
+    T set(final int cell, final T item, final double act_ftn) {
+        final Entry<T> new_entry = new Entry<>(item, act_ftn, cell, m_seq.getAndIncrement());
+        m_index.add(new_entry);
+        final Entry<T> old_entry = m_grid.getAndSet(cell, new_entry);
+        if (old_entry != null) {
+            m_index.remove(old_entry);
+            return old_entry.m_item;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Removes the item from the grid cell, unless the cell already holds
+     * another item
+     *
+     * @param cell the grid cell index
+     * @param item the item to remove
+     * @return true if the cell has been cleared, otherwise false
+     */
+    boolean remove(final int cell, final T item) {
+        final Entry<T> old_entry = m_grid.get(cell);
+        if ((old_entry != null) && (old_entry.m_item == item)
+                && m_grid.compareAndSet(cell, old_entry, null)) {
+            m_index.remove(old_entry);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Allows to get the equally best fit items, ordered by the grid cell
+     *
+     * @return the list of the best fit items, empty if the grid is empty
+     */
+    List<T> get_best() {
+        final List<T> best_fit = new ArrayList<>();
+        double max_ftn = Double.NaN;
+        for (Entry<T> entry : m_index) {
+            if (m_grid.get(entry.m_cell) == entry) {
+                if (best_fit.isEmpty()) {
+                    max_ftn = entry.m_act_ftn;
+                } else {
+                    if (entry.m_act_ftn != max_ftn) {
+                        //The item is less fit, stop
+                        break;
+                    }
+                }
+                best_fit.add(entry.m_item);
+            } else {
+                //The entry is being replaced or removed
+            }
+        }
+        return best_fit;
+    }
+
+    /**
+     * Allows to get the top fit items, ordered by the descending actual
+     * fitness and then by the grid cell.
+     *
+     * @param max_num the maximum number of items to return
+     * @param filter the filter the returned items must pass
+     * @return the list of at most max_num top fit items
+     */
+    List<T> get_top(final int max_num, final Predicate<T> filter) {
+        final List<T> top_fit = new ArrayList<>();
+        for (Entry<T> entry : m_index) {
+            if (top_fit.size() >= max_num) {
+                break;
+            }
+            if (filter.test(entry.m_item) && (m_grid.get(entry.m_cell) == entry)) {
+                top_fit.add(entry.m_item);
+            }
+        }
+        return top_fit;
+    }
+}
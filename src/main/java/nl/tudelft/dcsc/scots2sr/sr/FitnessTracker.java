@@ -21,13 +21,13 @@
  */
 package nl.tudelft.dcsc.scots2sr.sr;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
+import nl.tudelft.dcsc.scots2sr.metrics.Counter;
+import nl.tudelft.dcsc.scots2sr.metrics.FlightEvents;
+import nl.tudelft.dcsc.scots2sr.metrics.Metrics;
 import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
 import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
 import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
@@ -38,7 +38,14 @@ import nl.tudelft.dcsc.sr2jlib.grid.GridObserver;
 
 /**
  * This is a fitness tracker implementation of the grid observer class, is
- * responsible for monitoring the current SR grid state.
+ * responsible for monitoring the current SR grid state. The grid updates are
+ * lock free, so that the breeding workers never block on the observer. The
+ * changed cells are marked dirty and are folded into the fitness statistics
+ * by the reader in {@link #re_compute_fitness()}. The grid entries are also
+ * indexed by their actual fitness, so that the best fit individuals are found
+ * without scanning the grid. The tracker may observe several equally sized
+ * island grids, these are laid out side by side along x in the manager id
+ * order.
  *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
@@ -48,11 +55,26 @@ public abstract class FitnessTracker implements GridObserver {
 
     private static final int MIN_DATA_SIZE = 3;
 
-    private final Individual[][] m_pop_grid;
+    //The number of bits in a dirty cell bit set word
+    private static final int WORD_BITS = Long.SIZE;
 
+    //The settled individuals counter
+    private static final Counter SETTLES = Metrics.INSTANCE.counter(Metrics.SETTLES);
+
+    //The population grid, stored row by row: cell = grid_x * size_y + pos_y,
+    //indexed by the actual fitness
+    private final FitnessIndex<Individual> m_pop_grid;
+    //The bit set of grid cells changed since the last statistics update
+    private final AtomicLongArray m_dirty;
+
+    //The island grid sizes
     private final int m_size_x;
     private final int m_size_y;
 
+    //The running requested and actual fitness statistics, per grid cell
+    private final RunningStats m_req_stats;
+    private final RunningStats m_act_stats;
+
     private double m_req_mean;
     private double m_req_dev;
     private double m_req_max;
@@ -61,6 +83,10 @@ public abstract class FitnessTracker implements GridObserver {
     private double m_ex_dev;
     private double m_act_max;
 
+    //The lock free copy of the last computed statistics, is read by the
+    //metrics gauges: actual max and mean, extended max and mean, occupancy
+    private volatile double[] m_snapshot;
+
     /**
      * The basic constructor
      *
@@ -68,13 +94,27 @@ public abstract class FitnessTracker implements GridObserver {
      * @param size_y the population grid size in y
      */
     public FitnessTracker(final int size_x, final int size_y) {
+        this(size_x, size_y, 1);
+    }
+
+    /**
+     * The island model constructor
+     *
+     * @param size_x the island population grid size in x
+     * @param size_y the island population grid size in y
+     * @param num_islands the number of islands, the manager ids are in
+     * [0,num_islands)
+     */
+    public FitnessTracker(final int size_x, final int size_y, final int num_islands) {
         this.m_size_x = size_x;
         this.m_size_y = size_y;
 
-        this.m_pop_grid = new Individual[size_x][];
-        IntStream.range(0, size_x).forEachOrdered(idx -> {
-            this.m_pop_grid[idx] = new Individual[size_y];
-        });
+        final int num_cells = num_islands * size_x * size_y;
+        this.m_pop_grid = new FitnessIndex<>(num_cells);
+        this.m_dirty = new AtomicLongArray((num_cells + WORD_BITS - 1) / WORD_BITS);
+
+        this.m_req_stats = new RunningStats(num_cells);
+        this.m_act_stats = new RunningStats(num_cells);
 
         this.m_req_mean = 0.0;
         this.m_req_dev = 0.0;
@@ -83,6 +123,21 @@ public abstract class FitnessTracker implements GridObserver {
         this.m_ex_mean = 0.0;
         this.m_ex_dev = 0.0;
         this.m_act_max = Double.NEGATIVE_INFINITY;
+
+        this.m_snapshot = new double[]{m_act_max, m_ex_mean, m_req_max, m_req_mean, 0.0};
+        register_gauges();
+    }
+
+    /**
+     * Registers the fitness statistics gauges, these read the lock free
+     * statistics snapshot and replace the gauges of the previous tracker
+     */
+    private void register_gauges() {
+        Metrics.INSTANCE.gauge(Metrics.ACT_FTN_MAX, () -> m_snapshot[0]);
+        Metrics.INSTANCE.gauge(Metrics.ACT_FTN_MEAN, () -> m_snapshot[1]);
+        Metrics.INSTANCE.gauge(Metrics.EXT_FTN_MAX, () -> m_snapshot[2]);
+        Metrics.INSTANCE.gauge(Metrics.EXT_FTN_MEAN, () -> m_snapshot[3]);
+        Metrics.INSTANCE.gauge(Metrics.GRID_OCCUPANCY, () -> m_snapshot[4]);
     }
 
     /**
@@ -104,7 +159,9 @@ public abstract class FitnessTracker implements GridObserver {
     }
 
     @Override
-    public synchronized void set(final Individual new_ind) {
+    public void set(final Individual new_ind) {
+        SETTLES.inc();
+        final Object event = FlightEvents.begin_grid();
         //First re-work the scale and shift from the fitness into the individual.
         final Fitness ftn = new_ind.get_fitness();
         if (ftn instanceof ScaledFitness) {
@@ -131,15 +188,98 @@ public abstract class FitnessTracker implements GridObserver {
             });
         }
 
-        final Individual old_ind = m_pop_grid[new_ind.get_pos_x()][new_ind.get_pos_y()];
-        LOGGER.log(Level.FINE, "Settling {0} in place of {1}", new Object[]{new_ind, old_ind});
-        m_pop_grid[new_ind.get_pos_x()][new_ind.get_pos_y()] = new_ind;
+        final int cell = get_cell(new_ind);
+        final double act_ftn = get_actual_fitness(new_ind);
+        final Individual old_ind = m_pop_grid.set(cell, new_ind, act_ftn);
+        LOGGER.log(Level.FINE, "Settling {0} in place of {1}",
+                new Object[]{new_ind, old_ind});
+        mark_dirty(cell);
+        if (event != null) {
+            FlightEvents.end_grid(event, true, new_ind.get_mgr_id(),
+                    new_ind.get_pos_x(), new_ind.get_pos_y(), act_ftn);
+        }
     }
 
     @Override
-    public synchronized void remove(final Individual old_ind) {
-        //Remove an old individual from the grid
-        m_pop_grid[old_ind.get_pos_x()][old_ind.get_pos_y()] = null;
+    public void remove(final Individual old_ind) {
+        remove_ind(old_ind);
+    }
+
+    /**
+     * Removes the old individual from the grid, unless its cell already holds
+     * another individual
+     *
+     * @param old_ind the individual to remove
+     * @return true if the individual's cell has been cleared, otherwise false
+     */
+    protected boolean remove_ind(final Individual old_ind) {
+        final Object event = FlightEvents.begin_grid();
+        //Remove an old individual from the grid, unless it is already replaced
+        final int cell = get_cell(old_ind);
+        final boolean is_cleared = m_pop_grid.remove(cell, old_ind);
+        if (is_cleared) {
+            mark_dirty(cell);
+        }
+        if (event != null) {
+            FlightEvents.end_grid(event, false, old_ind.get_mgr_id(),
+                    old_ind.get_pos_x(), old_ind.get_pos_y(), get_actual_fitness(old_ind));
+        }
+        return is_cleared;
+    }
+
+    /**
+     * Marks the grid cell as changed, is lock free
+     *
+     * @param cell the grid cell index
+     */
+    private void mark_dirty(final int cell) {
+        final int word = cell / WORD_BITS;
+        final long bit = 1L << (cell % WORD_BITS);
+        long value = m_dirty.get(word);
+        while (((value & bit) == 0) && !m_dirty.compareAndSet(word, value, value | bit)) {
+            value = m_dirty.get(word);
+        }
+    }
+
+    /**
+     * Allows to take a snapshot of the population grid. The snapshot is
+     * consistent per cell, but concurrent updates may be partially visible.
+     *
+     * @param snapshot the array of at least num_islands * size_x * size_y
+     * elements to store the individuals into, the cell index is grid_x *
+     * size_y + pos_y, the empty cells are set to null
+     * @return the number of individuals in the snapshot
+     */
+    public int get_snapshot(final Individual[] snapshot) {
+        int num_ind = 0;
+        for (int cell = 0; cell < m_pop_grid.get_num_cells(); ++cell) {
+            snapshot[cell] = m_pop_grid.get(cell);
+            if (snapshot[cell] != null) {
+                ++num_ind;
+            }
+        }
+        return num_ind;
+    }
+
+    /**
+     * Allows to get the x position of the individual in the tracked grid, the
+     * island grids are laid out side by side along x
+     *
+     * @param ind the individual, not null
+     * @return the tracked grid x position
+     */
+    protected int get_grid_x(final Individual ind) {
+        return ind.get_mgr_id() * m_size_x + ind.get_pos_x();
+    }
+
+    /**
+     * Allows to get the flat grid cell index of the individual
+     *
+     * @param ind the individual, not null
+     * @return the grid cell index
+     */
+    private int get_cell(final Individual ind) {
+        return get_grid_x(ind) * m_size_y + ind.get_pos_y();
     }
 
     /**
@@ -149,7 +289,7 @@ public abstract class FitnessTracker implements GridObserver {
      * @return its actual fitness if instance of ExtendedFirness or 0.0
      * otherwise
      */
-    private double get_actual_fitness(final Individual ind) {
+    protected static double get_actual_fitness(final Individual ind) {
         if ((ind.get_fitness() instanceof ExtendedFitness)) {
             return ((ExtendedFitness) ind.get_fitness()).get_act_ftn();
         } else {
@@ -158,115 +298,105 @@ public abstract class FitnessTracker implements GridObserver {
     }
 
     @Override
-    public synchronized List<Individual> get_best_fit_ind() {
-        //Return the list of best fit individuals
-        double max_ftn = 0.0;
-        final List<Individual> best_fit = new ArrayList<>();
-        for (int pos_x = 0; pos_x < m_size_x; ++pos_x) {
-            for (int pos_y = 0; pos_y < m_size_y; ++pos_y) {
-                final Individual ind = get_individual(pos_x, pos_y);
-                if (ind != null) {
-                    if (best_fit.isEmpty()) {
-                        best_fit.add(ind);
-                        max_ftn = get_actual_fitness(ind);
-                    } else {
-                        final double new_ftn = get_actual_fitness(ind);
-                        if (new_ftn == max_ftn) {
-                            best_fit.add(ind);
-                            LOGGER.log(Level.FINE,
-                                    "The number of {0} fit individuals is {1}",
-                                    new Object[]{max_ftn, best_fit.size()});
-                        } else {
-                            if (new_ftn > max_ftn) {
-                                best_fit.clear();
-                                max_ftn = new_ftn;
-                                best_fit.add(ind);
-                            } else {
-                                //The new individual is less fit, ignore it
-                            }
-                        }
-                    }
-                } else {
-                    //The individual is not there or could not be compiled
-                }
-            }
-        }
+    public List<Individual> get_best_fit_ind() {
+        //Return the list of equally best fit individuals
+        final List<Individual> best_fit = m_pop_grid.get_best();
+        LOGGER.log(Level.FINE, "The number of {0} fit individuals is {1}",
+                new Object[]{best_fit.isEmpty() ? Double.NaN
+                            : get_actual_fitness(best_fit.get(0)), best_fit.size()});
         return best_fit;
     }
 
     /**
-     * Allows to get an individual at the given position
+     * Allows to get the top fit individuals, ordered by the descending actual
+     * fitness and then by the grid position.
+     *
+     * @param max_num the maximum number of individuals to return
+     * @return the list of at most max_num top fit individuals
+     */
+    public List<Individual> get_top_fit_ind(final int max_num) {
+        return m_pop_grid.get_top(max_num, (ind) -> true);
+    }
+
+    /**
+     * Allows to get the top fit individuals of the island, ordered by the
+     * descending actual fitness and then by the grid position.
      *
-     * @param pos_x position in x
-     * @param pos_y position in y
-     * @return and individual in the given position, or null if none
+     * @param mgr_id the island manager id
+     * @param max_num the maximum number of individuals to return
+     * @return the list of at most max_num top fit individuals
      */
-    private synchronized Individual get_individual(final int pos_x, final int pos_y) {
-        return m_pop_grid[pos_x][pos_y];
+    public List<Individual> get_top_fit_ind(final int mgr_id, final int max_num) {
+        return m_pop_grid.get_top(max_num, (ind) -> ind.get_mgr_id() == mgr_id);
     }
 
     /**
-     * Allows to re-compute the fitness values This method is not fully thread
-     * safe. There must be one thread calling this method at the same time!
+     * Allows to re-compute the fitness values, the grid cells changed since
+     * the last call are folded into the running statistics first.
      *
      * @return true if there is data to be plotted, otherwise false
      */
-    protected boolean re_compute_fitness() {
-        double num_ind = 0.0;
-
-        m_req_max = Double.NEGATIVE_INFINITY;
-        m_act_max = Double.NEGATIVE_INFINITY;
-        BigDecimal req_sum_bd = new BigDecimal(0.0);
-        BigDecimal req_sum_sq_bd = new BigDecimal(0.0);
-        BigDecimal act_sum_bd = new BigDecimal(0.0);
-        BigDecimal act_sum_sq_bd = new BigDecimal(0.0);
-        for (int pos_x = 0; pos_x < m_size_x; ++pos_x) {
-            for (int pos_y = 0; pos_y < m_size_y; ++pos_y) {
-                final Individual ind = get_individual(pos_x, pos_y);
-                if (ind != null) {
-                    final Fitness ftn = ind.get_fitness();
-                    final double ext_ftn = ftn.get_fitness();
-                    final BigDecimal req_ftn_bd = new BigDecimal(ext_ftn);
-                    req_sum_bd = req_sum_bd.add(req_ftn_bd);
-                    req_sum_sq_bd = req_sum_sq_bd.add(req_ftn_bd.pow(2));
-                    m_req_max = Math.max(m_req_max, ext_ftn);
-
-                    final double act_ftn;
-                    if (ftn instanceof ExtendedFitness) {
-                        act_ftn = ((ExtendedFitness) ftn).get_act_ftn();
+    protected synchronized boolean re_compute_fitness() {
+        //Fold the changed cells into the running statistics
+        for (int word = 0; word < m_dirty.length(); ++word) {
+            if (m_dirty.get(word) != 0) {
+                long bits = m_dirty.getAndSet(word, 0L);
+                while (bits != 0) {
+                    final int cell = word * WORD_BITS + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    final Individual ind = m_pop_grid.get(cell);
+                    if (ind != null) {
+                        m_req_stats.set(cell, get_finite(ind.get_fitness().get_fitness()));
+                        m_act_stats.set(cell, get_finite(get_actual_fitness(ind)));
                     } else {
-                        act_ftn = 0;
+                        m_req_stats.clear(cell);
+                        m_act_stats.clear(cell);
                     }
-                    final BigDecimal act_ftn_bd = new BigDecimal(act_ftn);
-                    act_sum_bd = act_sum_bd.add(act_ftn_bd);
-                    act_sum_sq_bd = act_sum_sq_bd.add(act_ftn_bd.pow(2));
-                    m_act_max = Math.max(m_act_max, act_ftn);
-                    ++num_ind;
                 }
             }
         }
 
+        m_req_max = m_req_stats.get_max();
+        m_act_max = m_act_stats.get_max();
+
         //If the sample mean and variance are computable then schedule and update
-        if (num_ind >= MIN_DATA_SIZE) {
-            final BigDecimal num_ind_bd = new BigDecimal(num_ind - 1.0);
-
-            final BigDecimal req_mean_bd = req_sum_bd.divide(num_ind_bd, 10, RoundingMode.HALF_UP);
-            m_req_mean = req_mean_bd.doubleValue();
-            final BigDecimal req_sq_mean_bd = req_mean_bd.pow(2);
-            final BigDecimal req_mean_sq_bd = req_sum_sq_bd.divide(num_ind_bd, 10, RoundingMode.HALF_UP);
-            m_req_dev = (req_mean_sq_bd.doubleValue() > req_sq_mean_bd.doubleValue())
-                    ? Math.sqrt(req_mean_sq_bd.doubleValue() - req_sq_mean_bd.doubleValue()) : 0.0;
-
-            final BigDecimal ex_mean_bd = act_sum_bd.divide(num_ind_bd, 10, RoundingMode.HALF_UP);
-            m_ex_mean = ex_mean_bd.doubleValue();
-            final BigDecimal ex_sq_mean_bd = ex_mean_bd.pow(2);
-            final BigDecimal ex_mean_sq_bd = act_sum_sq_bd.divide(num_ind_bd, 10, RoundingMode.HALF_UP);
-            m_ex_dev = (ex_mean_sq_bd.doubleValue() > ex_sq_mean_bd.doubleValue())
-                    ? Math.sqrt(ex_mean_sq_bd.doubleValue() - ex_sq_mean_bd.doubleValue()) : 0.0;
-            return true;
-        } else {
-            return false;
+        final int num_ind = m_req_stats.get_count();
+        final boolean is_data = (num_ind >= MIN_DATA_SIZE);
+        if (is_data) {
+            final double num_ind_m1 = num_ind - 1.0;
+
+            m_req_mean = m_req_stats.get_sum() / num_ind_m1;
+            m_req_dev = get_deviation(m_req_mean, m_req_stats.get_sum_sq() / num_ind_m1);
+
+            m_ex_mean = m_act_stats.get_sum() / num_ind_m1;
+            m_ex_dev = get_deviation(m_ex_mean, m_act_stats.get_sum_sq() / num_ind_m1);
         }
+        m_snapshot = new double[]{m_act_max, m_ex_mean, m_req_max, m_req_mean,
+            ((double) num_ind) / m_pop_grid.get_num_cells()};
+        return is_data;
+    }
+
+    /**
+     * Allows to get the fitness value fit for the running statistics, the
+     * non-finite values are counted as no fitness
+     *
+     * @param ftn the fitness value
+     * @return the fitness value if finite, otherwise 0.0
+     */
+    private static double get_finite(final double ftn) {
+        return (Double.isNaN(ftn) || Double.isInfinite(ftn)) ? 0.0 : ftn;
+    }
+
+    /**
+     * Computes the deviation from the mean and the mean of squares
+     *
+     * @param mean the mean
+     * @param mean_sq the mean of squares
+     * @return the deviation, non negative
+     */
+    private static double get_deviation(final double mean, final double mean_sq) {
+        final double sq_mean = mean * mean;
+        return (mean_sq > sq_mean) ? Math.sqrt(mean_sq - sq_mean) : 0.0;
     }
 
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The fitness tracker for the headless runs, periodically logs the fitness
+ * statistics instead of visualizing them.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class HeadlessTracker extends FitnessTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(HeadlessTracker.class.getName());
+
+    /**
+     * The call back interface for the 100% fit individual
+     */
+    @FunctionalInterface
+    public interface FoundCallBack {
+
+        /**
+         * Is called once a 100% fit individual is found
+         *
+         * @param ind the found individual
+         */
+        public void found(final Individual ind);
+    }
+
+    //Stores the statistics logging period in seconds
+    private final long m_log_period_sec;
+    //Stores the found call back or null if none
+    private final FoundCallBack m_found_cb;
+    //Stores the statistics logging executor
+    private ScheduledExecutorService m_executor;
+    //Stores the actual fitness targets to be timed
+    private double[] m_targets;
+    //Stores the times the targets were first reached in milliseconds since
+    //the start, or -1 if not reached yet
+    private long[] m_target_ms;
+    //Stores the best actual fitness seen so far
+    private volatile double m_best_ftn;
+    //Stores the observing start time in nanoseconds
+    private long m_start_ns;
+
+    /**
+     * The basic constructor
+     *
+     * @param size_x the island population grid size in x
+     * @param size_y the island population grid size in y
+     * @param num_islands the number of islands
+     * @param log_period_sec the statistics logging period in seconds
+     * @param found_cb the call back for the 100% fit individual, or null
+     */
+    public HeadlessTracker(final int size_x, final int size_y, final int num_islands,
+            final long log_period_sec, final FoundCallBack found_cb) {
+        super(size_x, size_y, num_islands);
+        m_log_period_sec = log_period_sec;
+        m_found_cb = found_cb;
+        m_executor = null;
+        m_targets = new double[0];
+        m_target_ms = new long[0];
+        m_best_ftn = Double.NEGATIVE_INFINITY;
+        m_start_ns = System.nanoTime();
+    }
+
+    /**
+     * Allows to set the actual fitness targets to be timed, must be called
+     * before the observing starts
+     *
+     * @param targets the actual fitness targets
+     */
+    public synchronized void set_targets(final double[] targets) {
+        m_targets = targets.clone();
+        m_target_ms = new long[targets.length];
+        Arrays.fill(m_target_ms, -1L);
+    }
+
+    /**
+     * Allows to get the times the actual fitness targets were first reached
+     *
+     * @return the times in milliseconds since the start, in the order of the
+     * targets, -1 for the targets not reached
+     */
+    public synchronized long[] get_target_ms() {
+        return m_target_ms.clone();
+    }
+
+    /**
+     * Allows to get the best actual fitness seen so far
+     *
+     * @return the best actual fitness, negative infinity if none
+     */
+    public double get_best_ftn() {
+        return m_best_ftn;
+    }
+
+    /**
+     * Registers the new best actual fitness and times the targets it reaches
+     *
+     * @param act_ftn the actual fitness
+     */
+    private synchronized void update_best(final double act_ftn) {
+        if (act_ftn > m_best_ftn) {
+            m_best_ftn = act_ftn;
+            final long elapsed_ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - m_start_ns);
+            for (int idx = 0; idx < m_targets.length; ++idx) {
+                if ((m_target_ms[idx] < 0) && (act_ftn >= m_targets[idx])) {
+                    m_target_ms[idx] = elapsed_ms;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start_observing() {
+        if (m_executor == null) {
+            m_start_ns = System.nanoTime();
+            m_executor = Executors.newSingleThreadScheduledExecutor((Runnable run) -> {
+                final Thread thread = new Thread(run, "headless-tracker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            m_executor.scheduleAtFixedRate(this::log_fitness,
+                    m_log_period_sec, m_log_period_sec, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void set(final Individual ind) {
+        super.set(ind);
+        final Fitness ftn = ind.get_fitness();
+        final double act_ftn = get_actual_fitness(ind);
+        if (act_ftn > m_best_ftn) {
+            update_best(act_ftn);
+        }
+        if ((m_found_cb != null) && (ftn != null) && ftn.is_one()) {
+            m_found_cb.found(ind);
+        }
+    }
+
+    /**
+     * Logs the current fitness statistics
+     */
+    private void log_fitness() {
+        if (re_compute_fitness()) {
+            final double[] req_ftn = get_req_fitness();
+            final double[] ex_ftn = get_ex_fitness();
+            LOGGER.log(Level.INFO, "Actual fitness mean: {0}, deviation: {1}, "
+                    + "max: {2}; extended fitness mean: {3}, deviation: {4}, max: {5}",
+                    new Object[]{ex_ftn[0], ex_ftn[1], ex_ftn[2],
+                        req_ftn[0], req_ftn[1], req_ftn[2]});
+        }
+    }
+
+    @Override
+    public synchronized void stop_observing() {
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+            //Log the last statistics
+            log_fitness();
+        }
+    }
+}
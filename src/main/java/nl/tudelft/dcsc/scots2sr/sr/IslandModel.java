@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.ProcessManager;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+import nl.tudelft.dcsc.sr2jlib.grid.GridObserver;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The island model of the symbolic regression: several independent process
+ * managers, each with its own grid and workers, observed by one fitness
+ * tracker. The top fit individuals periodically migrate to the next island in
+ * the ring. SR2JLIB can not place an individual into a grid, so a migrant
+ * moves as its expression trees, which are put into the lock-free arrival
+ * queue of the receiving island. The next offspring settling on that island
+ * takes over the trees of the first queued migrant, if the migrant is at least
+ * as fit, and keeps its own, not larger, fitness value. The trees are taken
+ * over after the tracker has baked the offspring's scale and shift, the
+ * migrant's trees have them baked in on the source island already.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class IslandModel {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(IslandModel.class.getName());
+
+    //The termination time out in seconds
+    private static final long TERM_TIME_OUT_SEC = 60;
+
+    /**
+     * The island process manager factory
+     */
+    @FunctionalInterface
+    public interface IslandFactory {
+
+        /**
+         * Creates the island process manager
+         *
+         * @param mgr_id the island manager id
+         * @param observer the island grid observer
+         * @return the process manager
+         */
+        public ProcessManager create(final int mgr_id, final GridObserver observer);
+    }
+
+    /**
+     * The migrant moving between the islands of this model
+     */
+    private static final class Migrant {
+
+        //Stores the expression trees per dof
+        final Expression[] m_exprs;
+        //Stores the actual fitness on the source island
+        final double m_act_ftn;
+
+        Migrant(final Expression[] exprs, final double act_ftn) {
+            m_exprs = exprs;
+            m_act_ftn = act_ftn;
+        }
+    }
+
+    /**
+     * The island grid observer, forwards to the shared tracker. The tracker is
+     * started by the first started island and stopped by the last stopped one.
+     * The settling offspring take over the trees of the arrived migrants.
+     */
+    private final class IslandObserver implements GridObserver {
+
+        //Stores the island manager id
+        private final int m_mgr_id;
+
+        IslandObserver(final int mgr_id) {
+            m_mgr_id = mgr_id;
+        }
+
+        @Override
+        public void start_observing() {
+            if (m_num_observing.getAndIncrement() == 0) {
+                m_tracker.start_observing();
+            }
+        }
+
+        @Override
+        public void set(final Individual ind) {
+            m_tracker.set(ind);
+            final Migrant migrant = m_arrivals.get(m_mgr_id).poll();
+            if (migrant != null) {
+                settle(migrant, ind);
+            }
+        }
+
+        @Override
+        public void remove(final Individual ind) {
+            m_tracker.remove(ind);
+        }
+
+        @Override
+        public List<Individual> get_best_fit_ind() {
+            return m_tracker.get_best_fit_ind();
+        }
+
+        @Override
+        public void stop_observing() {
+            if (m_num_observing.decrementAndGet() == 0) {
+                m_tracker.stop_observing();
+            }
+        }
+    }
+
+    //Stores the shared fitness tracker
+    private final FitnessTracker m_tracker;
+    //Stores the island process managers, the index is the manager id
+    private final List<ProcessManager> m_managers;
+    //Stores the number of observing islands
+    private final AtomicInteger m_num_observing;
+    //Stores the arrived migrants, per island
+    private final List<ConcurrentLinkedQueue<Migrant>> m_arrivals;
+    //Stores the number of migrants that took over an offspring
+    private final AtomicLong m_num_settled;
+    //Stores the migration executor, or null if there is no migration
+    private ScheduledExecutorService m_executor;
+
+    /**
+     * The basic constructor
+     *
+     * @param tracker the fitness tracker, for all the islands
+     * @param num_islands the number of islands
+     * @param factory the island process manager factory
+     */
+    public IslandModel(final FitnessTracker tracker, final int num_islands,
+            final IslandFactory factory) {
+        m_tracker = tracker;
+        m_num_observing = new AtomicInteger(0);
+        m_num_settled = new AtomicLong(0);
+        m_executor = null;
+        final List<ConcurrentLinkedQueue<Migrant>> arrivals = new ArrayList<>(num_islands);
+        final List<ProcessManager> managers = new ArrayList<>(num_islands);
+        for (int mgr_id = 0; mgr_id < num_islands; ++mgr_id) {
+            arrivals.add(new ConcurrentLinkedQueue<>());
+            managers.add(factory.create(mgr_id, new IslandObserver(mgr_id)));
+        }
+        m_arrivals = Collections.unmodifiableList(arrivals);
+        m_managers = Collections.unmodifiableList(managers);
+    }
+
+    /**
+     * Allows to get the number of islands
+     *
+     * @return the number of islands
+     */
+    public int get_num_islands() {
+        return m_managers.size();
+    }
+
+    /**
+     * Allows to get the island process manager
+     *
+     * @param mgr_id the island manager id
+     * @return the process manager
+     */
+    public ProcessManager get_manager(final int mgr_id) {
+        return m_managers.get(mgr_id);
+    }
+
+    /**
+     * Starts the islands and the migration between them
+     *
+     * @param period_sec the migration period in seconds, &le; 0 for none
+     * @param num_migrants the number of the top fit individuals migrating
+     * from every island
+     */
+    public synchronized void start(final long period_sec, final int num_migrants) {
+        m_managers.forEach((mgr) -> {
+            mgr.start();
+        });
+        if ((period_sec > 0) && (num_migrants > 0) && (m_managers.size() > 1)) {
+            m_executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                final Thread thread = new Thread(runnable, "gp-migration");
+                thread.setDaemon(true);
+                return thread;
+            });
+            m_executor.scheduleWithFixedDelay(() -> {
+                migrate(num_migrants);
+            }, period_sec, period_sec, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Allows to get the top fit individuals of the island
+     *
+     * @param mgr_id the island manager id
+     * @param max_num the maximum number of individuals
+     * @return the top fit individuals, by the descending actual fitness
+     */
+    public List<Individual> get_top_fit_ind(final int mgr_id, final int max_num) {
+        return m_tracker.get_top_fit_ind(mgr_id, max_num);
+    }
+
+    /**
+     * Captures the expression trees of the individual, the trees are kept
+     * as they are
+     *
+     * @param ind the individual
+     * @return the expression trees per dof
+     */
+    private static Expression[] get_exprs(final Individual ind) {
+        final List<Expression> exprs = new ArrayList<>();
+        ind.update_exprs((Expression expr, final int idx) -> {
+            while (exprs.size() <= idx) {
+                exprs.add(null);
+            }
+            exprs.set(idx, expr);
+            return expr;
+        });
+        return exprs.toArray(new Expression[exprs.size()]);
+    }
+
+    /**
+     * Lets the settled offspring take over the migrant's expression trees, if
+     * the migrant is at least as fit, otherwise the migrant is dropped
+     *
+     * @param migrant the arrived migrant
+     * @param ind the offspring settled on the island
+     */
+    private void settle(final Migrant migrant, final Individual ind) {
+        if (migrant.m_act_ftn >= FitnessTracker.get_actual_fitness(ind)) {
+            ind.update_exprs((Expression expr, final int idx) -> {
+                return (idx < migrant.m_exprs.length) ? migrant.m_exprs[idx] : expr;
+            });
+            m_num_settled.incrementAndGet();
+        }
+    }
+
+    /**
+     * Moves the top fit individuals of every island into the arrival queue of
+     * the next island in the ring, the migrants not settled since the last
+     * migration are dropped.
+     *
+     * @param num_migrants the number of migrants from every island
+     */
+    private void migrate(final int num_migrants) {
+        final int num_islands = m_managers.size();
+        for (int mgr_id = 0; mgr_id < num_islands; ++mgr_id) {
+            final ConcurrentLinkedQueue<Migrant> arrivals
+                    = m_arrivals.get((mgr_id + 1) % num_islands);
+            arrivals.clear();
+            for (Individual ind : get_top_fit_ind(mgr_id, num_migrants)) {
+                arrivals.offer(new Migrant(get_exprs(ind),
+                        FitnessTracker.get_actual_fitness(ind)));
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} migrants have settled so far",
+                m_num_settled.get());
+    }
+
+    /**
+     * Allows to check whether any of the islands is active
+     *
+     * @return true if at least one island is active
+     */
+    public boolean is_active() {
+        return m_managers.stream().anyMatch(ProcessManager::is_active);
+    }
+
+    /**
+     * Allows to check whether any of the islands is stopping
+     *
+     * @return true if at least one island is stopping
+     */
+    public boolean is_stopping() {
+        return m_managers.stream().anyMatch(ProcessManager::is_stopping);
+    }
+
+    /**
+     * Stops the migration and requests all the islands to stop
+     *
+     * @param time_out_sec the islands stopping time out in seconds
+     * @param notify the object to be notified once an island is stopped
+     */
+    public void stop(final long time_out_sec, final Object notify) {
+        stop_migration();
+        m_managers.forEach((mgr) -> {
+            if (mgr.is_active() && !mgr.is_stopping()) {
+                mgr.stop(time_out_sec, notify);
+            }
+        });
+    }
+
+    /**
+     * Stops the migration between the islands
+     */
+    private synchronized void stop_migration() {
+        if (m_executor != null) {
+            m_executor.shutdown();
+            try {
+                if (!m_executor.awaitTermination(TERM_TIME_OUT_SEC, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.WARNING, "Failed to stop the migration executor");
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.WARNING, "Interrupted while stopping the migration executor");
+                Thread.currentThread().interrupt();
+            }
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Allows to get the equally best fit individuals of all the islands
+     *
+     * @return the list of the best fit individuals
+     */
+    public List<Individual> get_best_fit_ind() {
+        return m_tracker.get_best_fit_ind();
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * The snapshot of the population grid: the individual's expression text,
+ * fitness and scale/shift per occupied grid cell. Is stored into a compact
+ * binary file, the file is replaced atomically. Is immutable.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class PopulationSnapshot {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(PopulationSnapshot.class.getName());
+
+    //Stores the snapshot file name extension
+    public static final String POP_FILE_NAME_EXT = "pop";
+
+    //Stores the snapshot file magic number
+    private static final int MAGIC = 0x53325350;
+    //Stores the snapshot file format version
+    private static final int VERSION = 1;
+    //Stores the scale and the shift of an unscaled expression
+    private static final double NO_SCALE = 1.0;
+    private static final double NO_SHIFT = 0.0;
+
+    /**
+     * The snapshot of a single grid cell
+     */
+    public static final class Cell {
+
+        //Stores the grid position
+        public final int m_pos_x;
+        public final int m_pos_y;
+        //Stores the actual and the extended fitness
+        public final double m_act_ftn;
+        public final double m_ext_ftn;
+        //Stores the expression text per dof, includes the scale and shift
+        public final String[] m_exprs;
+        //Stores the scale and shift per dof, 1.0 and 0.0 if none
+        public final double[] m_scales;
+        public final double[] m_shifts;
+
+        Cell(final int pos_x, final int pos_y, final double act_ftn,
+                final double ext_ftn, final String[] exprs,
+                final double[] scales, final double[] shifts) {
+            m_pos_x = pos_x;
+            m_pos_y = pos_y;
+            m_act_ftn = act_ftn;
+            m_ext_ftn = ext_ftn;
+            m_exprs = exprs;
+            m_scales = scales;
+            m_shifts = shifts;
+        }
+    }
+
+    //Stores the grid size
+    private final int m_size_x;
+    private final int m_size_y;
+    //Stores the number of dofs per individual
+    private final int m_num_dofs;
+    //Stores the occupied cells
+    private final List<Cell> m_cells;
+
+    /**
+     * The basic constructor
+     *
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     * @param num_dofs the number of dofs per individual
+     * @param cells the occupied cells
+     */
+    private PopulationSnapshot(final int size_x, final int size_y,
+            final int num_dofs, final List<Cell> cells) {
+        m_size_x = size_x;
+        m_size_y = size_y;
+        m_num_dofs = num_dofs;
+        m_cells = Collections.unmodifiableList(cells);
+    }
+
+    /**
+     * Allows to take the snapshot of the population grid, the cell positions
+     * are those of the tracked grid, i.e. the island grids are laid out side
+     * by side along x
+     *
+     * @param tracker the population grid tracker
+     * @param size_x the tracked grid size in x, for all islands
+     * @param size_y the grid size in y
+     * @param num_dofs the number of dofs per individual
+     * @return the population snapshot
+     */
+    public static PopulationSnapshot take(final FitnessTracker tracker,
+            final int size_x, final int size_y, final int num_dofs) {
+        final Individual[] grid = new Individual[size_x * size_y];
+        final List<Cell> cells = new ArrayList<>(tracker.get_snapshot(grid));
+        for (int grid_idx = 0; grid_idx < grid.length; ++grid_idx) {
+            final Individual ind = grid[grid_idx];
+            if (ind != null) {
+                final List<String> exprs = ind.get_expr_text();
+                final Fitness ftn = ind.get_fitness();
+                double act_ftn = ftn.get_fitness();
+                double ext_ftn = ftn.get_fitness();
+                if (ftn instanceof ExtendedFitness) {
+                    act_ftn = ((ExtendedFitness) ftn).get_act_ftn();
+                    ext_ftn = ((ExtendedFitness) ftn).get_ext_ftn();
+                }
+                final double[] scales = new double[exprs.size()];
+                final double[] shifts = new double[exprs.size()];
+                for (int idx = 0; idx < exprs.size(); ++idx) {
+                    scales[idx] = NO_SCALE;
+                    shifts[idx] = NO_SHIFT;
+                    if (ftn instanceof ScaledFitness) {
+                        final ScaledFitness sftn = (ScaledFitness) ftn;
+                        if (sftn.is_scale(idx)) {
+                            scales[idx] = sftn.get_scale(idx);
+                        }
+                        if (sftn.is_shift(idx)) {
+                            shifts[idx] = sftn.get_shift(idx);
+                        }
+                    }
+                }
+                cells.add(new Cell(grid_idx / size_y, grid_idx % size_y, act_ftn,
+                        ext_ftn, exprs.toArray(new String[exprs.size()]),
+                        scales, shifts));
+            }
+        }
+        return new PopulationSnapshot(size_x, size_y, num_dofs, cells);
+    }
+
+    /**
+     * Allows to get the snapshot file name
+     *
+     * @param file_name the controller file name, without the extension
+     * @return the snapshot file name
+     */
+    public static String get_file_name(final String file_name) {
+        return file_name + "." + POP_FILE_NAME_EXT;
+    }
+
+    /**
+     * Allows to get the grid size in x
+     *
+     * @return the grid size in x
+     */
+    public int get_size_x() {
+        return m_size_x;
+    }
+
+    /**
+     * Allows to get the grid size in y
+     *
+     * @return the grid size in y
+     */
+    public int get_size_y() {
+        return m_size_y;
+    }
+
+    /**
+     * Allows to get the number of dofs per individual
+     *
+     * @return the number of dofs
+     */
+    public int get_num_dofs() {
+        return m_num_dofs;
+    }
+
+    /**
+     * Allows to get the occupied cells
+     *
+     * @return the unmodifiable list of occupied cells
+     */
+    public List<Cell> get_cells() {
+        return m_cells;
+    }
+
+    /**
+     * Allows to store the snapshot, the file is first written under a
+     * temporary name and is then atomically renamed.
+     *
+     * @param file_name the snapshot file name
+     * @throws IOException if the snapshot could not be stored
+     */
+    public void store(final String file_name) throws IOException {
+        final Path path = Paths.get(file_name);
+        final Path tmp = Paths.get(file_name + ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(m_size_x);
+                out.writeInt(m_size_y);
+                out.writeInt(m_num_dofs);
+                out.writeInt(m_cells.size());
+                for (Cell cell : m_cells) {
+                    out.writeInt(cell.m_pos_x);
+                    out.writeInt(cell.m_pos_y);
+                    out.writeDouble(cell.m_act_ftn);
+                    out.writeDouble(cell.m_ext_ftn);
+                    out.writeInt(cell.m_exprs.length);
+                    for (int idx = 0; idx < cell.m_exprs.length; ++idx) {
+                        out.writeDouble(cell.m_scales[idx]);
+                        out.writeDouble(cell.m_shifts[idx]);
+                        final byte[] text = cell.m_exprs[idx].getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(text.length);
+                        out.write(text);
+                    }
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.log(Level.FINE, "Stored {0} individuals into: {1}",
+                    new Object[]{m_cells.size(), file_name});
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Allows to load the snapshot
+     *
+     * @param file_name the snapshot file name
+     * @return the loaded snapshot
+     * @throws IOException if the snapshot could not be read or is corrupted
+     */
+    public static PopulationSnapshot load(final String file_name) throws IOException {
+        try (final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Paths.get(file_name))))) {
+            if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+                throw new IOException("Not a population snapshot file: " + file_name);
+            }
+            final int size_x = in.readInt();
+            final int size_y = in.readInt();
+            final int num_dofs = in.readInt();
+            final int num_cells = in.readInt();
+            if ((size_x <= 0) || (size_y <= 0) || (num_cells < 0)
+                    || (num_cells > ((long) size_x) * size_y)) {
+                throw new IOException("Corrupted population snapshot file: " + file_name);
+            }
+            final List<Cell> cells = new ArrayList<>(num_cells);
+            for (int cell_idx = 0; cell_idx < num_cells; ++cell_idx) {
+                final int pos_x = in.readInt();
+                final int pos_y = in.readInt();
+                final double act_ftn = in.readDouble();
+                final double ext_ftn = in.readDouble();
+                final int num_exprs = in.readInt();
+                if ((num_exprs < 0) || (num_exprs > num_dofs)) {
+                    throw new IOException("Corrupted population snapshot file: " + file_name);
+                }
+                final String[] exprs = new String[num_exprs];
+                final double[] scales = new double[num_exprs];
+                final double[] shifts = new double[num_exprs];
+                for (int idx = 0; idx < num_exprs; ++idx) {
+                    scales[idx] = in.readDouble();
+                    shifts[idx] = in.readDouble();
+                    final int text_len = in.readInt();
+                    if (text_len < 0) {
+                        throw new IOException("Corrupted population snapshot file: " + file_name);
+                    }
+                    final byte[] text = new byte[text_len];
+                    in.readFully(text);
+                    exprs[idx] = new String(text, StandardCharsets.UTF_8);
+                }
+                cells.add(new Cell(pos_x, pos_y, act_ftn, ext_ftn, exprs, scales, shifts));
+            }
+            return new PopulationSnapshot(size_x, size_y, num_dofs, cells);
+        }
+    }
+}
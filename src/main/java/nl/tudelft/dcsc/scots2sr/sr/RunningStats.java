@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.Arrays;
+
+/**
+ * Maintains the running statistics of the values stored in a fixed number of
+ * cells: the count, the sum and the sum of squares, and the maximum. The sums
+ * use the Kahan compensated summation, so that the values can be added and
+ * removed without accumulating the rounding errors. The maximum is kept in an
+ * indexed binary heap, so it supports removal. Updates are O(log n) and reads
+ * are O(1), neither allocates. Only finite values are accepted, as a single
+ * NaN or infinity would poison the sums for good. Is not thread safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class RunningStats {
+
+    //Stores the cell values
+    private final double[] m_values;
+    //Stores the heap position per cell, or -1 if the cell is empty
+    private final int[] m_heap_pos;
+    //Stores the heap of cell indexes, ordered by the cell values
+    private final int[] m_heap;
+    //Stores the number of the non-empty cells
+    private int m_count;
+    //Stores the sum of values and its compensation
+    private double m_sum;
+    private double m_sum_c;
+    //Stores the sum of squared values and its compensation
+    private double m_sum_sq;
+    private double m_sum_sq_c;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_cells the number of cells
+     */
+    RunningStats(final int num_cells) {
+        m_values = new double[num_cells];
+        m_heap_pos = new int[num_cells];
+        m_heap = new int[num_cells];
+        Arrays.fill(m_heap_pos, -1);
+        m_count = 0;
+        m_sum = 0.0;
+        m_sum_c = 0.0;
+        m_sum_sq = 0.0;
+        m_sum_sq_c = 0.0;
+    }
+
+    /**
+     * Sets the cell value, replaces the previous one, if any
+     *
+     * @param cell the cell index
+     * @param value the new value, must be finite
+     * @throws IllegalArgumentException if the value is not finite
+     */
+    void set(final int cell, final double value) throws IllegalArgumentException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("The value of cell " + cell
+                    + " must be finite, got: " + value);
+        }
+        if (m_heap_pos[cell] >= 0) {
+            add(-m_values[cell], -m_values[cell] * m_values[cell]);
+            m_values[cell] = value;
+            add(value, value * value);
+            final int pos = m_heap_pos[cell];
+            sift_down(sift_up(pos));
+        } else {
+            m_values[cell] = value;
+            add(value, value * value);
+            m_heap[m_count] = cell;
+            m_heap_pos[cell] = m_count;
+            ++m_count;
+            sift_up(m_count - 1);
+        }
+    }
+
+    /**
+     * Clears the cell value, if any
+     *
+     * @param cell the cell index
+     */
+    void clear(final int cell) {
+        final int pos = m_heap_pos[cell];
+        if (pos >= 0) {
+            --m_count;
+            m_heap_pos[cell] = -1;
+            if (m_count == 0) {
+                //Reset the sums to remove any residual rounding error
+                m_sum = 0.0;
+                m_sum_c = 0.0;
+                m_sum_sq = 0.0;
+                m_sum_sq_c = 0.0;
+            } else {
+                add(-m_values[cell], -m_values[cell] * m_values[cell]);
+                if (pos != m_count) {
+                    m_heap[pos] = m_heap[m_count];
+                    m_heap_pos[m_heap[pos]] = pos;
+                    sift_down(sift_up(pos));
+                }
+            }
+        }
+    }
+
+    /**
+     * Allows to get the number of non-empty cells
+     *
+     * @return the number of values
+     */
+    int get_count() {
+        return m_count;
+    }
+
+    /**
+     * Allows to get the sum of values
+     *
+     * @return the sum of values
+     */
+    double get_sum() {
+        return m_sum + m_sum_c;
+    }
+
+    /**
+     * Allows to get the sum of squared values
+     *
+     * @return the sum of squared values
+     */
+    double get_sum_sq() {
+        return m_sum_sq + m_sum_sq_c;
+    }
+
+    /**
+     * Allows to get the maximum value
+     *
+     * @return the maximum value or negative infinity if there are no values
+     */
+    double get_max() {
+        return (m_count > 0) ? m_values[m_heap[0]] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Adds the value and its square to the sums, uses the Neumaier variant of
+     * the Kahan summation as the values can be of any sign
+     *
+     * @param value the value
+     * @param value_sq the squared value
+     */
+    private void add(final double value, final double value_sq) {
+        double sum = m_sum + value;
+        m_sum_c += (Math.abs(m_sum) >= Math.abs(value))
+                ? (m_sum - sum) + value : (value - sum) + m_sum;
+        m_sum = sum;
+        sum = m_sum_sq + value_sq;
+        m_sum_sq_c += (Math.abs(m_sum_sq) >= Math.abs(value_sq))
+                ? (m_sum_sq - sum) + value_sq : (value_sq - sum) + m_sum_sq;
+        m_sum_sq = sum;
+    }
+
+    /**
+     * Checks if the first heap position value is larger than the second one
+     *
+     * @param pos1 the first heap position
+     * @param pos2 the second heap position
+     * @return true if the first value is larger
+     */
+    private boolean is_larger(final int pos1, final int pos2) {
+        final double val1 = m_values[m_heap[pos1]];
+        final double val2 = m_values[m_heap[pos2]];
+        return (val1 > val2);
+    }
+
+    /**
+     * Swaps two heap positions
+     *
+     * @param pos1 the first heap position
+     * @param pos2 the second heap position
+     */
+    private void swap(final int pos1, final int pos2) {
+        final int cell = m_heap[pos1];
+        m_heap[pos1] = m_heap[pos2];
+        m_heap[pos2] = cell;
+        m_heap_pos[m_heap[pos1]] = pos1;
+        m_heap_pos[m_heap[pos2]] = pos2;
+    }
+
+    /**
+     * Moves the heap element up to its place
+     *
+     * @param pos the heap position
+     * @return the new heap position
+     */
+    private int sift_up(int pos) {
+        while (pos > 0) {
+            final int parent = (pos - 1) / 2;
+            if (is_larger(pos, parent)) {
+                swap(pos, parent);
+                pos = parent;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Moves the heap element down to its place
+     *
+     * @param pos the heap position
+     */
+    private void sift_down(int pos) {
+        while (true) {
+            final int left = 2 * pos + 1;
+            if (left >= m_count) {
+                break;
+            }
+            final int right = left + 1;
+            final int child = ((right < m_count) && is_larger(right, left)) ? right : left;
+            if (is_larger(child, pos)) {
+                swap(child, pos);
+                pos = child;
+            } else {
+                break;
+            }
+        }
+    }
+}
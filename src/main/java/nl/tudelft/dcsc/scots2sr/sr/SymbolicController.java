@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.scots2sr.utils.Pair;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * Contains the symbolic controller export routines shared by the UI and the
+ * headless runner.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class SymbolicController {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(SymbolicController.class.getName());
+
+    //Stores the symbolic controller file name extension
+    public static final String SYM_FILE_NAME_EXT = "sym";
+
+    /**
+     * The private constructor, this is a utility class
+     */
+    private SymbolicController() {
+    }
+
+    /**
+     * Allows to compute the individual size (as an eucledian norm of text size
+     * vector)
+     *
+     * @param ind_str the list of individual's functions per dof represented as
+     * text
+     * @return the individual size
+     */
+    private static double compute_ind_size(final List<String> ind_str) {
+        double sum = 0.0;
+        for (String str : ind_str) {
+            final int size = str.length();
+            sum += size * size;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Allows to choose the smallest individual from the list of individuals.
+     *
+     * @param inds the list of individuals, not empty
+     * @return the pair of individual and its prepared string representation.
+     */
+    public static Pair<Individual, List<String>> get_smallest(final List<Individual> inds) {
+        Individual min_ind = null;
+        List<String> min_ind_str = null;
+        double min_ind_str_size = Double.MAX_VALUE;
+        for (int ind_idx = 0; ind_idx < inds.size(); ++ind_idx) {
+            //Get the individual
+            final Individual ind = inds.get(ind_idx);
+            //Get minimum individual size
+            final List<String> ind_str = ind.get_expr_text();
+            final double ind_str_size = compute_ind_size(ind_str);
+            //Choose the shortest representation
+            if ((min_ind_str == null) || (min_ind_str_size > ind_str_size)) {
+                min_ind_str = ind_str;
+                min_ind = ind;
+                min_ind_str_size = ind_str_size;
+            }
+        }
+        return new Pair<>(min_ind, min_ind_str);
+    }
+
+    /**
+     * Allows to store the symbolic controllers per dof into file along with
+     * their fitness scores
+     *
+     * @param ctrl_file_name the file name to be used
+     * @param ind_str stores the string representation of the individual
+     * @param ftn the fitness object of the individual
+     * @throws IOException in case the file writing fails
+     */
+    public static void store(final String ctrl_file_name,
+            final List<String> ind_str, final Fitness ftn) throws IOException {
+        //Save the symbolic controllers into a text file
+        Path file_path = Paths.get(ctrl_file_name);
+        try (final BufferedWriter writer = Files.newBufferedWriter(file_path)) {
+            //Dump the total fitness
+            NumberFormat formatter = new DecimalFormat("#00.00");
+            final double val = ftn.get_fitness() * 100;
+            writer.write("Controller's fitness: " + formatter.format(val) + "%\n");
+
+            //Dump the control functions per dof
+            for (int idx = 0; idx < ind_str.size(); ++idx) {
+                final String dof_funct = ind_str.get(idx);
+                LOGGER.log(Level.FINE, "The shortest one is {0}", dof_funct);
+                writer.write("Dof #" + idx + ": " + dof_funct + "\n");
+                LOGGER.log(Level.FINE, "The individual is stored");
+                writer.flush();
+            }
+        }
+    }
+}
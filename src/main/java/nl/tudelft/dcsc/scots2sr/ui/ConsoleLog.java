@@ -21,19 +21,85 @@
  */
 package nl.tudelft.dcsc.scots2sr.ui;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ListView;
 
 /**
- * Is used for trivial logging of events in the UI. Is thread safe.
+ * Is used for trivial logging of events in the UI. The messages are put into a
+ * lock-free queue and are drained into the list view in one go, at most once
+ * per FX pulse. The list view keeps at most a fixed number of the latest
+ * lines, the older lines are spilled into the logger, i.e. into the .gp.log
+ * file once the controller logging is started, on a background thread. Once the limit is exceeded a
+ * tenth of the lines is evicted at once, so that the list is not shifted on
+ * every drain. Is thread safe.
  */
 public class ConsoleLog {
 
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(ConsoleLog.class.getName());
+
+    //Stores the default maximum number of lines in the list view
+    public static final int DEF_MAX_LINES = 10000;
+    //Stores the share of the maximum number of lines evicted at once
+    private static final double EVICT_RATIO = 0.1;
+
+    //Stores the executor logging the spilled lines, in their order
+    private static final ExecutorService SPILL_EXECUTOR
+            = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+                final Thread thread = new Thread(runnable, "console-spill");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    //Stores the time stamp formatter
+    private static final DateTimeFormatter TIME_FMT
+            = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Stores the not yet formatted log line
+     */
+    private static final class Line {
+
+        //Stores the time stamp in milliseconds
+        final long m_time_ms;
+        //Stores the message
+        final String m_msg;
+
+        Line(final long time_ms, final String msg) {
+            m_time_ms = time_ms;
+            m_msg = msg;
+        }
+
+        @Override
+        public String toString() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(m_time_ms),
+                    ZoneId.systemDefault()).format(TIME_FMT) + " " + m_msg;
+        }
+    }
+
     //Stores the list view
     private final ListView<String> m_view;
+    //Stores the maximum number of lines in the list view
+    private final int m_max_lines;
+    //Stores the number of lines left in the list view after eviction
+    private final int m_min_lines;
+    //Stores the queue of lines to be added to the list view
+    private final ConcurrentLinkedQueue<Line> m_queue;
+    //Stores the flag indicating whether the queue drain is scheduled
+    private final AtomicBoolean m_is_drain;
 
     /**
      * The basic constructor
@@ -41,7 +107,22 @@ public class ConsoleLog {
      * @param view the list view to log data into
      */
     public ConsoleLog(ListView<String> view) {
+        this(view, DEF_MAX_LINES);
+    }
+
+    /**
+     * The basic constructor
+     *
+     * @param view the list view to log data into
+     * @param max_lines the maximum number of lines in the list view, must be
+     * positive
+     */
+    public ConsoleLog(ListView<String> view, final int max_lines) {
         m_view = view;
+        m_max_lines = max_lines;
+        m_min_lines = Math.max(1, max_lines - (int) Math.max(1, max_lines * EVICT_RATIO));
+        m_queue = new ConcurrentLinkedQueue<>();
+        m_is_drain = new AtomicBoolean(false);
     }
 
     /**
@@ -49,18 +130,67 @@ public class ConsoleLog {
      *
      * @param msg the message to be logged
      */
-    public synchronized void log(final String msg) {
-        final LocalDateTime data_time = LocalDateTime.now();
-        final ObservableList<String> list = m_view.getItems();
-        final String dts = data_time.format(
-                DateTimeFormatter.ISO_LOCAL_DATE_TIME
-        ).replaceAll("T", " ");
-        Platform.runLater(new Runnable() {
-            @Override
-            public void run() {
-                list.add(dts + " " + msg);
+    public void log(final String msg) {
+        m_queue.offer(new Line(System.currentTimeMillis(), msg));
+        if (m_is_drain.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /**
+     * Drains the queued lines into the list view, is to be run on the FX
+     * thread
+     */
+    private void drain() {
+        //Reset the flag first so that the later messages schedule a new drain
+        m_is_drain.set(false);
+
+        final List<String> lines = new ArrayList<>();
+        Line line;
+        while ((line = m_queue.poll()) != null) {
+            lines.add(line.toString());
+        }
+
+        if (!lines.isEmpty()) {
+            final ObservableList<String> list = m_view.getItems();
+            final int num_lines = list.size() + lines.size();
+            if (num_lines > m_max_lines) {
+                //Evict down to the minimum, the oldest list lines go first
+                final int num_evict = num_lines - m_min_lines;
+                final int num_remove = Math.min(list.size(), num_evict);
+                if (num_remove > 0) {
+                    spill(list.subList(0, num_remove));
+                    list.remove(0, num_remove);
+                }
+                final int num_skip = num_evict - num_remove;
+                if (num_skip > 0) {
+                    spill(lines.subList(0, num_skip));
+                    list.addAll(lines.subList(num_skip, lines.size()));
+                } else {
+                    list.addAll(lines);
+                }
+            } else {
+                list.addAll(lines);
             }
-        });
+        }
+    }
+
+    /**
+     * Spills the lines evicted from the list view into the logger, the lines
+     * are logged on the spill thread so that the FX thread is never blocked
+     * by the log handlers, e.g. by a full asynchronous file handler queue
+     *
+     * @param lines the lines to spill, are copied
+     */
+    private static void spill(final List<String> lines) {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            final List<String> copy = new ArrayList<>(lines);
+            SPILL_EXECUTOR.execute(() -> {
+                copy.forEach((text) -> {
+                    LOGGER.log(Level.INFO, text);
+                });
+            });
+        }
     }
 
     /**
@@ -21,6 +21,8 @@
  */
 package nl.tudelft.dcsc.scots2sr.ui;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.animation.AnimationTimer;
@@ -31,7 +33,10 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.layout.AnchorPane;
 
 /**
- * The population fitness chart diagram
+ * The population fitness chart diagram. The entire fitness history is kept in
+ * a primitive series store. A coarser tier of it, a few times the chart width,
+ * is maintained along and each series is downsampled from the tier to the chart
+ * width, so an update does not depend on the history length.
  *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
@@ -40,8 +45,19 @@ public class FitnessChart extends LineChart<Number, Number> {
     //Stores the reference to the logger
     private static final Logger LOGGER = Logger.getLogger(FitnessChart.class.getName());
 
-    private static final int NODE_REMOVE_IDX = 0;
-    private static final int MAX_DATA_SIZE = 1000;
+    //The series indexes in the series store
+    private static final int MEAN_IDX = 0;
+    private static final int MDEV_IDX = 1;
+    private static final int PDEV_IDX = 2;
+    private static final int MAX_IDX = 3;
+    //The minimum number of displayed points per series
+    private static final int MIN_DISPLAY_SIZE = 3;
+    //The maximum number of history points per series
+    private static final int HISTORY_CAPACITY = 1 << 20;
+    //The minimum number of tier points per displayed point
+    private static final int TIER_FACTOR = 4;
+    //The per series flags indicating whether the merged points get the maximum
+    private static final boolean[] IS_MAX = new boolean[]{false, false, false, true};
     private static final String MEAN_STR = "Avg: ";
     private static final String MDEV_STR = "-Dev: ";
     private static final String PDEV_STR = "+Dev: ";
@@ -62,12 +78,15 @@ public class FitnessChart extends LineChart<Number, Number> {
             synchronized (FitnessChart.this) {
                 if ((m_prev != 0)) {
                     if (m_is_data && ((now - m_prev) >= MIN_UPD_INTERVAL)) {
-                        m_mean_ser.getData().add(new XYChart.Data<>(m_mut_num, m_mean));
                         final double req_mmd = m_mean - m_dev;
-                        m_mdev_ser.getData().add(new XYChart.Data<>(m_mut_num, req_mmd));
                         final double req_mpd = m_mean + m_dev;
-                        m_pdev_ser.getData().add(new XYChart.Data<>(m_mut_num, req_mpd));
-                        m_max_ser.getData().add(new XYChart.Data<>(m_mut_num, m_max));
+                        m_values[MEAN_IDX] = m_mean;
+                        m_values[MDEV_IDX] = req_mmd;
+                        m_values[PDEV_IDX] = req_mpd;
+                        m_values[MAX_IDX] = m_max;
+                        m_store.add(m_mut_num, m_values);
+                        m_tier.add(m_mut_num, m_values);
+                        m_is_store_upd = true;
 
                         Platform.runLater(() -> {
                             m_mean_ser.setName(MEAN_STR + Double.toString(m_mean));
@@ -83,12 +102,20 @@ public class FitnessChart extends LineChart<Number, Number> {
                     m_prev = now;
                 }
 
-                //Trancate the data if there is too much
-                if (m_mean_ser.getData().size() > MAX_DATA_SIZE) {
-                    m_mean_ser.getData().remove(NODE_REMOVE_IDX);
-                    m_mdev_ser.getData().remove(NODE_REMOVE_IDX);
-                    m_pdev_ser.getData().remove(NODE_REMOVE_IDX);
-                    m_max_ser.getData().remove(NODE_REMOVE_IDX);
+                //Re-sample the series if there is new data or the width changed
+                final int display_size = Math.max(MIN_DISPLAY_SIZE,
+                        (int) FitnessChart.this.getWidth());
+                if (m_is_store_upd || (display_size != m_display_size)) {
+                    m_display_size = display_size;
+                    update_tier();
+                    if (m_indexes.length < display_size) {
+                        m_indexes = new int[display_size];
+                    }
+                    set_series_data(m_mean_ser, MEAN_IDX);
+                    set_series_data(m_mdev_ser, MDEV_IDX);
+                    set_series_data(m_pdev_ser, PDEV_IDX);
+                    set_series_data(m_max_ser, MAX_IDX);
+                    m_is_store_upd = false;
                 }
 
                 //PopulationChart.this.updateBounds();
@@ -103,6 +130,18 @@ public class FitnessChart extends LineChart<Number, Number> {
     private final XYChart.Series<Number, Number> m_pdev_ser;
     private final XYChart.Series<Number, Number> m_max_ser;
     private final ChartAnimation m_animation;
+    //Stores the entire fitness history
+    private final SeriesStore m_store;
+    //Stores the fitness history tier to be downsampled for display
+    private SeriesStore m_tier;
+    //Stores the new point values buffer
+    private final double[] m_values;
+    //Stores the displayed point indexes buffer
+    private int[] m_indexes;
+    //Stores the number of displayed points per series
+    private int m_display_size;
+    //Stores the flag indicating whether the store has new points
+    private boolean m_is_store_upd;
 
     private boolean m_is_data;
     private double m_mean;
@@ -126,6 +165,12 @@ public class FitnessChart extends LineChart<Number, Number> {
 
         this.m_anchor_pane = anchor_pane;
         this.m_animation = new ChartAnimation();
+        this.m_store = new SeriesStore(IS_MAX, HISTORY_CAPACITY);
+        this.m_tier = new SeriesStore(IS_MAX, get_tier_capacity(MIN_DISPLAY_SIZE));
+        this.m_values = new double[MAX_IDX + 1];
+        this.m_indexes = new int[MIN_DISPLAY_SIZE];
+        this.m_display_size = 0;
+        this.m_is_store_upd = false;
 
         if ((name!= null) && !name.trim().isEmpty()) {
             this.setTitle(name);
@@ -156,6 +201,48 @@ public class FitnessChart extends LineChart<Number, Number> {
         ((NumberAxis) this.getYAxis()).forceZeroInRangeProperty().set(false);
     }
 
+    /**
+     * Allows to get the tier capacity for the display size, is a power of two
+     * so that resizing the chart rarely changes it
+     *
+     * @param display_size the number of displayed points per series
+     * @return the tier capacity
+     */
+    private static int get_tier_capacity(final int display_size) {
+        return Math.min(HISTORY_CAPACITY,
+                Integer.highestOneBit(TIER_FACTOR * display_size - 1) << 1);
+    }
+
+    /**
+     * Re-builds the tier from the history if the display size needs another
+     * tier capacity
+     */
+    private void update_tier() {
+        final int capacity = get_tier_capacity(m_display_size);
+        if (capacity != m_tier.get_max_capacity()) {
+            m_tier = new SeriesStore(IS_MAX, capacity);
+            m_tier.add_all(m_store);
+        }
+    }
+
+    /**
+     * Sets the downsampled tier series into the chart series in one go
+     *
+     * @param series the chart series
+     * @param ser_idx the store series index
+     */
+    private void set_series_data(final XYChart.Series<Number, Number> series,
+            final int ser_idx) {
+        final int num_sel = m_tier.downsample(ser_idx, m_display_size, m_indexes);
+        final List<XYChart.Data<Number, Number>> data = new ArrayList<>(num_sel);
+        for (int idx = 0; idx < num_sel; ++idx) {
+            final int pnt_idx = m_indexes[idx];
+            data.add(new XYChart.Data<>(m_tier.get_x(pnt_idx),
+                    m_tier.get_y(ser_idx, pnt_idx)));
+        }
+        series.getData().setAll(data);
+    }
+
     /**
      * Allows to schedule the population chart update
      *
@@ -21,14 +21,24 @@
  */
 package nl.tudelft.dcsc.scots2sr.ui;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.IntStream;
+import javafx.geometry.Bounds;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.animation.AnimationTimer;
 
 /**
- * This class represents the population grid on which the population is growing
+ * This class represents the population grid on which the population is growing.
+ * The visible part of the grid is rendered into an ARGB pixel buffer, the
+ * changed part of which is blitted onto the canvas once per frame. The pixel
+ * buffer and its image are sized to the visible part of the canvas, not to
+ * the entire grid.
  *
  * @author Dr. Ivan S. Zapreev
  */
@@ -36,7 +46,12 @@ public class GridView extends Canvas {
 
     /**
      * The graphics animation that allows to update the canvas with the new
-     * elements from the fitness update queue
+     * elements from the fitness update queue. Only the dirty cells are
+     * repainted, the visible cells are repainted once the fitness range, used
+     * to rescale the colors, shifts by more than RESCALE_THRESHOLD, or once
+     * the visible part of the grid changes. The fitness range is only widened
+     * by the dirty cells, it is re-computed from the visible cells when the
+     * visible part changes, so the frames never scan the entire grid.
      *
      * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
      */
@@ -46,63 +61,213 @@ public class GridView extends Canvas {
         private static final double TARGET_RANGE = 0.9;
         private static final double TARGET_RANGE_LFT = (1.0 - TARGET_RANGE) / 2;
         private static final double TARGET_RANGE_RGT = 1 - TARGET_RANGE_LFT;
+        //The fitness range shift triggering the full repaint
+        private static final double RESCALE_THRESHOLD = 0.01;
 
         private long m_prev = 0;
         private final GraphicsContext m_2d_graph;
+        //The fitness range the colors are currently scaled to
         private double m_min_ftn = Double.MAX_VALUE;
         private double m_max_ftn = 0.0;
+        //The canvas area changed since the last blit
+        private int m_min_px_x = Integer.MAX_VALUE;
+        private int m_min_px_y = Integer.MAX_VALUE;
+        private int m_max_px_x = -1;
+        private int m_max_px_y = -1;
 
         public GridAnimation() {
             m_2d_graph = GridView.this.getGraphicsContext2D();
         }
 
         /**
-         * Fills the given cell with the given fitness color
+         * Fills the visible part of the given cell of the pixel buffer with
+         * the given fitness color
          *
          * @param pos_x x position
          * @param pos_y y position
          * @param fitness the fitness color
          */
         private void fill_with_color(final int pos_x, final int pos_y, final double fitness) {
-            m_2d_graph.setFill(get_color(fitness));
-            m_2d_graph.fillRect(pos_x * MIN_SIZE + (pos_x + 1) * SPACING,
-                    pos_y * MIN_SIZE + (pos_y + 1) * SPACING,
-                    MIN_SIZE, MIN_SIZE);
+            final int min_x = Math.max(m_view_x, pos_x * CELL_STEP + SPACING);
+            final int min_y = Math.max(m_view_y, pos_y * CELL_STEP + SPACING);
+            final int max_x = Math.min(m_view_x + m_view_w, pos_x * CELL_STEP + CELL_STEP);
+            final int max_y = Math.min(m_view_y + m_view_h, pos_y * CELL_STEP + CELL_STEP);
+            if ((min_x < max_x) && (min_y < max_y)) {
+                final int argb = get_argb(fitness);
+                for (int row = min_y; row < max_y; ++row) {
+                    final int offset = (row - m_view_y) * m_view_w - m_view_x;
+                    Arrays.fill(m_pixels, offset + min_x, offset + max_x, argb);
+                }
+                mark_changed(min_x, min_y, max_x, max_y);
+            }
+        }
+
+        /**
+         * Extends the changed canvas area
+         *
+         * @param min_x the first x pixel, inclusive
+         * @param min_y the first y pixel, inclusive
+         * @param max_x the last x pixel, exclusive
+         * @param max_y the last y pixel, exclusive
+         */
+        private void mark_changed(final int min_x, final int min_y,
+                final int max_x, final int max_y) {
+            m_min_px_x = Math.min(m_min_px_x, min_x);
+            m_min_px_y = Math.min(m_min_px_y, min_y);
+            m_max_px_x = Math.max(m_max_px_x, max_x - 1);
+            m_max_px_y = Math.max(m_max_px_y, max_y - 1);
+        }
+
+        /**
+         * Copies the changed pixel buffer area into the image and draws it
+         */
+        private void blit() {
+            if (m_max_px_x >= 0) {
+                final int width = m_max_px_x - m_min_px_x + 1;
+                final int height = m_max_px_y - m_min_px_y + 1;
+                final int img_x = m_min_px_x - m_view_x;
+                final int img_y = m_min_px_y - m_view_y;
+                m_image.getPixelWriter().setPixels(img_x, img_y,
+                        width, height, PixelFormat.getIntArgbInstance(), m_pixels,
+                        img_y * m_view_w + img_x, m_view_w);
+                m_2d_graph.drawImage(m_image, img_x, img_y, width, height,
+                        m_min_px_x, m_min_px_y, width, height);
+                m_min_px_x = Integer.MAX_VALUE;
+                m_min_px_y = Integer.MAX_VALUE;
+                m_max_px_x = -1;
+                m_max_px_y = -1;
+            }
+        }
+
+        /**
+         * Paints the given cell relative to the current fitness range
+         *
+         * @param pos_x x position
+         * @param pos_y y position
+         */
+        private void paint_cell(final int pos_x, final int pos_y) {
+            final double fitness = get_fitness_update(pos_x * m_size_y + pos_y);
+            if (fitness != UNDEF_VALUE_FTN) {
+                if (fitness != EMPTY_CELL_FTN) {
+                    //Draw relative to the minimum fitness value
+                    //so that we always have a vivid picture
+                    if (fitness < 1.0) {
+                        final double mm_delta = Math.abs(m_max_ftn - m_min_ftn);
+                        final double adj_ftn;
+                        if (mm_delta > 0.0) {
+                            final double scale = TARGET_RANGE / mm_delta;
+                            final double mm_mid = (m_max_ftn + m_min_ftn) / 2.0;
+                            adj_ftn = fitness * scale + 0.5 - scale * mm_mid;
+                        } else {
+                            adj_ftn = 0.5;
+                        }
+                        fill_with_color(pos_x, pos_y, Math.min(TARGET_RANGE_RGT,
+                                Math.max(TARGET_RANGE_LFT, adj_ftn)));
+                    } else {
+                        fill_with_color(pos_x, pos_y, fitness);
+                    }
+                } else {
+                    fill_with_color(pos_x, pos_y, EMPTY_CELL_FTN);
+                }
+            }
+        }
+
+        /**
+         * Paints all the visible cells, the visible canvas area is cleared
+         * first if it has changed
+         */
+        private void paint_visible() {
+            if (m_is_view_changed) {
+                m_is_view_changed = false;
+                Arrays.fill(m_pixels, 0, m_view_w * m_view_h, BACKGROUND_ARGB);
+                mark_changed(m_view_x, m_view_y, m_view_x + m_view_w, m_view_y + m_view_h);
+            }
+            final int last_x = get_last_pos(m_view_x + m_view_w, m_size_x);
+            final int last_y = get_last_pos(m_view_y + m_view_h, m_size_y);
+            for (int pos_x = get_first_pos(m_view_x); pos_x <= last_x; ++pos_x) {
+                for (int pos_y = get_first_pos(m_view_y); pos_y <= last_y; ++pos_y) {
+                    paint_cell(pos_x, pos_y);
+                }
+            }
+        }
+
+        /**
+         * Re-computes the fitness range from the visible cells
+         */
+        private void scan_visible() {
+            double min_ftn = Double.MAX_VALUE;
+            double max_ftn = 0.0;
+            final int last_x = get_last_pos(m_view_x + m_view_w, m_size_x);
+            final int last_y = get_last_pos(m_view_y + m_view_h, m_size_y);
+            for (int pos_x = get_first_pos(m_view_x); pos_x <= last_x; ++pos_x) {
+                for (int pos_y = get_first_pos(m_view_y); pos_y <= last_y; ++pos_y) {
+                    final double fitness = get_fitness_update(pos_x * m_size_y + pos_y);
+                    if (fitness >= 0.0) {
+                        min_ftn = Math.min(min_ftn, fitness);
+                        max_ftn = Math.max(max_ftn, fitness);
+                    }
+                }
+            }
+            if (min_ftn <= max_ftn) {
+                m_min_ftn = min_ftn;
+                m_max_ftn = max_ftn;
+            }
+        }
+
+        /**
+         * Checks if the fitness range has shifted enough to rescale
+         *
+         * @param min_ftn the new minimum fitness
+         * @param max_ftn the new maximum fitness
+         * @return true if the colors are to be rescaled
+         */
+        private boolean is_rescale(final double min_ftn, final double max_ftn) {
+            return (min_ftn <= max_ftn)
+                    && ((Math.abs(min_ftn - m_min_ftn) > RESCALE_THRESHOLD)
+                    || (Math.abs(max_ftn - m_max_ftn) > RESCALE_THRESHOLD));
         }
 
         @Override
         public void handle(long now) {
             if (m_prev != 0) {
                 if ((now - m_prev) >= MIN_UPD_INTERVAL) {
-                    final double mm_delta = Math.abs(m_max_ftn - m_min_ftn);
-                    final double scale = TARGET_RANGE / mm_delta;
-                    final double mm_mid = (m_max_ftn + m_min_ftn) / 2.0;
-                    final double shift = 0.5 - scale * mm_mid;
-                    m_min_ftn = Double.MAX_VALUE;
-                    m_max_ftn = 0.0;
-                    IntStream.range(0, m_size_x).forEach(pos_x -> {
-                        IntStream.range(0, m_size_y).forEach(pos_y -> {
-                            double fitness = get_fitness_update(pos_x, pos_y);
-                            if (fitness != UNDEF_VALUE_FTN) {
-                                if (fitness != EMPTY_CELL_FTN) {
-                                    //Draw relative to the minimum fitness value
-                                    //so that we always have a vivid picture
-                                    if (fitness < 1.0) {
-                                        final double adj_ftn = fitness * scale + shift;
-                                        if (adj_ftn >= TARGET_RANGE_LFT && adj_ftn <= TARGET_RANGE_RGT) {
-                                            fill_with_color(pos_x, pos_y, adj_ftn);
-                                        }
-                                    } else {
-                                        fill_with_color(pos_x, pos_y, fitness);
-                                    }
-                                    m_min_ftn = Math.min(m_min_ftn, fitness);
-                                    m_max_ftn = Math.max(m_max_ftn, fitness);
-                                } else {
-                                    fill_with_color(pos_x, pos_y, EMPTY_CELL_FTN);
+                    //Get the dirty cells, check if they extend the range
+                    double min_ftn = m_min_ftn;
+                    double max_ftn = (m_min_ftn <= m_max_ftn) ? m_max_ftn : 0.0;
+                    int num_dirty = 0;
+                    for (int word = 0; word < m_dirty.length(); ++word) {
+                        if (m_dirty.get(word) != 0) {
+                            long bits = m_dirty.getAndSet(word, 0L);
+                            while (bits != 0) {
+                                final int cell = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                                bits &= bits - 1;
+                                m_dirty_cells[num_dirty++] = cell;
+                                final double fitness = get_fitness_update(cell);
+                                if (fitness >= 0.0) {
+                                    min_ftn = Math.min(min_ftn, fitness);
+                                    max_ftn = Math.max(max_ftn, fitness);
                                 }
                             }
-                        });
-                    });
+                        }
+                    }
+
+                    //Repaint the visible or just the dirty cells
+                    if (m_is_view_changed) {
+                        scan_visible();
+                        paint_visible();
+                    } else if (is_rescale(min_ftn, max_ftn) || (now == Long.MAX_VALUE)) {
+                        if (min_ftn <= max_ftn) {
+                            m_min_ftn = min_ftn;
+                            m_max_ftn = max_ftn;
+                        }
+                        paint_visible();
+                    } else {
+                        for (int idx = 0; idx < num_dirty; ++idx) {
+                            final int cell = m_dirty_cells[idx];
+                            paint_cell(cell / m_size_y, cell % m_size_y);
+                        }
+                    }
+                    blit();
                     m_prev = now;
                 }
             } else {
@@ -113,13 +278,53 @@ public class GridView extends Canvas {
 
     private static final int SPACING = 1;
     private static final int MIN_SIZE = 4;
+    //The distance between the cells in pixels
+    private static final int CELL_STEP = MIN_SIZE + SPACING;
+    //The visible size used until the view port is known
+    private static final int DEF_VIEW_WIDTH = 1024;
+    private static final int DEF_VIEW_HEIGHT = 768;
     private static final double UNDEF_VALUE_FTN = -1.0;
     private static final double EMPTY_CELL_FTN = -2.0;
+    //The number of fitness colors in the color lookup table
+    private static final int LUT_SIZE = 1024;
+    //The fitness color lookup table, for the fitness in [0,1)
+    private static final int[] COLOR_LUT = new int[LUT_SIZE];
+    //The empty cell and the fully fit cell colors
+    private static final int EMPTY_CELL_ARGB = to_argb(Color.gray(0.99, 1.0));
+    private static final int FULL_FIT_ARGB = to_argb(Color.color(0.0, 0.0, 1.0));
+    //The background color
+    private static final int BACKGROUND_ARGB = to_argb(Color.gray(0.0));
+
+    static {
+        for (int idx = 0; idx < LUT_SIZE; ++idx) {
+            final double fitness = ((double) idx) / LUT_SIZE;
+            COLOR_LUT[idx] = to_argb(Color.color((1 - fitness), fitness, 0.0));
+        }
+    }
 
     private final int m_size_x;
     private final int m_size_y;
-    private final double[][] m_fit_grid;
+    //Stores the fitness values as raw double bits: cell = pos_x * size_y + pos_y
+    private final AtomicLongArray m_fit_grid;
+    //Stores the bit set of cells updated since the last repaint
+    private final AtomicLongArray m_dirty;
+    //Stores the dirty cell indexes buffer, used by the animation only
+    private final int[] m_dirty_cells;
     private final GridAnimation m_animation;
+    //Stores the grid image size in pixels
+    private final int m_img_width;
+    private final int m_img_height;
+    //Stores the visible canvas area in pixels, only used on the FX thread
+    private int m_view_x;
+    private int m_view_y;
+    private int m_view_w;
+    private int m_view_h;
+    //Stores the flag indicating the visible area has changed
+    private boolean m_is_view_changed;
+    //Stores the ARGB pixel buffer of the visible area, row length is m_view_w
+    private int[] m_pixels;
+    //Stores the image the pixel buffer is copied into, at least the visible size
+    private WritableImage m_image;
 
     /**
      * The basic constructor
@@ -130,40 +335,124 @@ public class GridView extends Canvas {
         super();
         this.m_size_x = size_x;
         this.m_size_y = size_y;
+        this.m_img_width = size_x * MIN_SIZE + (size_x + 1) * SPACING;
+        this.m_img_height = size_y * MIN_SIZE + (size_y + 1) * SPACING;
+        this.m_pixels = new int[0];
+        this.m_image = null;
+        set_viewport(0, 0, DEF_VIEW_WIDTH, DEF_VIEW_HEIGHT);
         this.m_animation = new GridAnimation();
-        m_fit_grid = new double[size_x][];
-        IntStream.range(0, size_x).forEach(pos_x -> {
-            m_fit_grid[pos_x] = new double[size_y];
-            IntStream.range(0, size_y).forEach(pos_y -> {
-                m_fit_grid[pos_x][pos_y] = UNDEF_VALUE_FTN;
-            });
+        m_fit_grid = new AtomicLongArray(size_x * size_y);
+        m_dirty = new AtomicLongArray((size_x * size_y + Long.SIZE - 1) / Long.SIZE);
+        m_dirty_cells = new int[size_x * size_y];
+        IntStream.range(0, size_x * size_y).forEach(cell -> {
+            m_fit_grid.set(cell, Double.doubleToRawLongBits(UNDEF_VALUE_FTN));
         });
         draw_initial(size_x, size_y);
     }
 
+    /**
+     * Allows to get the first cell position visible from the given pixel on
+     *
+     * @param px the first visible pixel
+     * @return the first visible cell position
+     */
+    private static int get_first_pos(final int px) {
+        return Math.max(0, (px - SPACING) / CELL_STEP);
+    }
+
+    /**
+     * Allows to get the last cell position visible before the given pixel
+     *
+     * @param px the first not visible pixel
+     * @param size the number of cells
+     * @return the last visible cell position
+     */
+    private static int get_last_pos(final int px, final int size) {
+        return Math.min(size - 1, (px - 1 - SPACING) / CELL_STEP);
+    }
+
+    /**
+     * Allows to set the visible canvas area, the pixel buffer and the image
+     * are only re-allocated if the area gets larger. Must be called on the FX
+     * thread.
+     *
+     * @param x the left visible pixel
+     * @param y the top visible pixel
+     * @param width the visible width in pixels
+     * @param height the visible height in pixels
+     */
+    public void set_viewport(final double x, final double y,
+            final double width, final double height) {
+        final int view_x = Math.max(0, Math.min(m_img_width - 1, (int) Math.floor(x)));
+        final int view_y = Math.max(0, Math.min(m_img_height - 1, (int) Math.floor(y)));
+        final int view_w = Math.max(1, Math.min(m_img_width - view_x, (int) Math.ceil(x + width) - view_x));
+        final int view_h = Math.max(1, Math.min(m_img_height - view_y, (int) Math.ceil(y + height) - view_y));
+        if ((view_x != m_view_x) || (view_y != m_view_y)
+                || (view_w != m_view_w) || (view_h != m_view_h) || (m_image == null)) {
+            m_view_x = view_x;
+            m_view_y = view_y;
+            m_view_w = view_w;
+            m_view_h = view_h;
+            if (m_pixels.length < view_w * view_h) {
+                m_pixels = new int[view_w * view_h];
+            }
+            if ((m_image == null) || (m_image.getWidth() < view_w)
+                    || (m_image.getHeight() < view_h)) {
+                m_image = new WritableImage(view_w, view_h);
+            }
+            m_is_view_changed = true;
+        }
+    }
+
+    /**
+     * Makes the grid follow the visible area of the scroll pane it is the
+     * content of. Must be called on the FX thread.
+     *
+     * @param pane the scroll pane
+     */
+    public void follow_viewport(final ScrollPane pane) {
+        final Runnable update = () -> {
+            final Bounds bounds = pane.getViewportBounds();
+            final double h_range = pane.getHmax() - pane.getHmin();
+            final double v_range = pane.getVmax() - pane.getVmin();
+            final double free_w = Math.max(0.0, getWidth() - bounds.getWidth());
+            final double free_h = Math.max(0.0, getHeight() - bounds.getHeight());
+            set_viewport(
+                    (h_range > 0.0) ? (pane.getHvalue() - pane.getHmin()) / h_range * free_w : 0.0,
+                    (v_range > 0.0) ? (pane.getVvalue() - pane.getVmin()) / v_range * free_h : 0.0,
+                    bounds.getWidth(), bounds.getHeight());
+        };
+        pane.viewportBoundsProperty().addListener((obs) -> update.run());
+        pane.hvalueProperty().addListener((obs) -> update.run());
+        pane.vvalueProperty().addListener((obs) -> update.run());
+        update.run();
+    }
     /**
      * Allows to pick up a fitness update
      *
-     * @param pos_x the x position
-     * @param pos_y the y position
+     * @param cell the grid cell index: pos_x * size_y + pos_y
      * @return the stored fitness update value or UNDEF_FITNESS if none
      */
-    private double get_fitness_update(final int pos_x, final int pos_y) {
-        synchronized (m_fit_grid[pos_x]) {
-            return m_fit_grid[pos_x][pos_y];
-        }
+    private double get_fitness_update(final int cell) {
+        return Double.longBitsToDouble(m_fit_grid.get(cell));
     }
 
     /**
-     * Allows to set a new fitness update value
+     * Allows to set a new fitness update value, is lock free
      *
      * @param pos_x the x position
      * @param pos_y the y position
      * @param fitness the new fitness value
      */
     public void schedule_update(final int pos_x, final int pos_y, final double fitness) {
-        synchronized (m_fit_grid[pos_x]) {
-            m_fit_grid[pos_x][pos_y] = fitness;
+        final int cell = pos_x * m_size_y + pos_y;
+        m_fit_grid.set(cell, Double.doubleToRawLongBits(fitness));
+        //Mark the cell dirty, after the value is set
+        final int word = cell / Long.SIZE;
+        final long bit = 1L << (cell % Long.SIZE);
+        long value = m_dirty.get(word);
+        while (((value & bit) == 0) && !m_dirty.compareAndSet(word, value, value | bit)) {
+            value = m_dirty.get(word);
         }
     }
 
@@ -184,20 +473,33 @@ public class GridView extends Canvas {
         m_animation.handle(Long.MAX_VALUE);
     }
 
+    /**
+     * Converts the color into the ARGB value
+     *
+     * @param color the color
+     * @return the ARGB value
+     */
+    private static int to_argb(final Color color) {
+        return ((int) Math.round(color.getOpacity() * 255) << 24)
+                | ((int) Math.round(color.getRed() * 255) << 16)
+                | ((int) Math.round(color.getGreen() * 255) << 8)
+                | ((int) Math.round(color.getBlue() * 255));
+    }
+
     /**
      * Allows to get cell color based on its fitness value.
      *
      * @param fitness the fitness [0,1] or negative if no element
-     * @return the color
+     * @return the ARGB color value
      */
-    private Color get_color(final double fitness) {
+    private static int get_argb(final double fitness) {
         if (fitness < 0.0) {
-            return Color.gray(0.99, 1.0);
+            return EMPTY_CELL_ARGB;
         } else {
             if (fitness >= 1.0) {
-                return Color.color(0.0, 0.0, 1.0);
+                return FULL_FIT_ARGB;
             } else {
-                return Color.color((1 - fitness), fitness, 0.0);
+                return COLOR_LUT[Math.min(LUT_SIZE - 1, (int) (fitness * LUT_SIZE))];
             }
         }
     }
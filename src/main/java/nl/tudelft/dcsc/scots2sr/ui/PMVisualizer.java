@@ -78,7 +78,7 @@ public class PMVisualizer extends FitnessTracker {
     };
 
     final boolean m_is_extend;
-    private boolean m_is_update;
+    private volatile boolean m_is_update;
     private final ChartUpdater m_chart_upd;
     private final ProgressBar m_prog_ind;
     private final GridView m_ex_grid_view;
@@ -91,8 +91,9 @@ public class PMVisualizer extends FitnessTracker {
      * The basic constructor
      *
      * @param is_extend true if the extended fitness is requested
-     * @param size_x the number of x elements in the grid
-     * @param size_y the number of y elements in the grid
+     * @param size_x the number of x elements in the island grid
+     * @param size_y the number of y elements in the island grid
+     * @param num_islands the number of islands, shown side by side along x
      * @param prog_ind the progress indicator to be used
      * @param act_grid_pane the pane to store the actual fitness grid
      * @param ext_grid_pane the pane to store the extended fitness grid, may be
@@ -103,13 +104,13 @@ public class PMVisualizer extends FitnessTracker {
      */
     public PMVisualizer(
             final boolean is_extend,
-            final int size_x, final int size_y,
+            final int size_x, final int size_y, final int num_islands,
             final ProgressBar prog_ind,
             final ScrollPane act_grid_pane,
             final ScrollPane ext_grid_pane,
             final AnchorPane act_ftn_pane,
             final AnchorPane ext_ftn_pane) {
-        super(size_x, size_y);
+        super(size_x, size_y, num_islands);
 
         m_is_extend = is_extend;
         m_is_update = false;
@@ -117,15 +118,17 @@ public class PMVisualizer extends FitnessTracker {
         m_prog_ind = prog_ind;
         m_prog_ind.setProgress(-1.0);
 
-        m_ex_grid_view = new GridView(size_x, size_y);
+        m_ex_grid_view = new GridView(num_islands * size_x, size_y);
         act_grid_pane.setContent(m_ex_grid_view);
+        m_ex_grid_view.follow_viewport(act_grid_pane);
         m_ex_chart = new FitnessChart(act_ftn_pane, null);
         m_ex_chart.set_active();
         m_ftn_change = null;
 
         if (m_is_extend) {
-            m_ext_grid_view = new GridView(size_x, size_y);
+            m_ext_grid_view = new GridView(num_islands * size_x, size_y);
             ext_grid_pane.setContent(m_ext_grid_view);
+            m_ext_grid_view.follow_viewport(ext_grid_pane);
             m_ext_chart = new FitnessChart(ext_ftn_pane, null);
             m_ext_chart.set_active();
         } else {
@@ -150,7 +153,7 @@ public class PMVisualizer extends FitnessTracker {
     }
 
     @Override
-    public synchronized void set(final Individual ind) {
+    public void set(final Individual ind) {
         //Mark the change in the fitness tracker
         super.set(ind);
 
@@ -163,12 +166,13 @@ public class PMVisualizer extends FitnessTracker {
             act_ftn = 0.0;
         }
         //Visualize the actual fitness
-        m_ex_grid_view.set_fitness(ind.get_pos_x(), ind.get_pos_y(), act_ftn);
+        final int grid_x = get_grid_x(ind);
+        m_ex_grid_view.set_fitness(grid_x, ind.get_pos_y(), act_ftn);
 
         //Visualize the normalized complex fitness
         if (m_is_extend) {
             final double ext_ftn = ftn.get_fitness();
-            m_ext_grid_view.set_fitness(ind.get_pos_x(), ind.get_pos_y(), ext_ftn);
+            m_ext_grid_view.set_fitness(grid_x, ind.get_pos_y(), ext_ftn);
         }
 
         //Mart that we need an update
@@ -176,18 +180,19 @@ public class PMVisualizer extends FitnessTracker {
     }
 
     @Override
-    public synchronized void remove(final Individual ind) {
-        //Mark the change in the fitness tracker
-        super.remove(ind);
+    public void remove(final Individual ind) {
+        //Mark the change in the fitness tracker, the Grid is only updated
+        //if the cell has not been taken by another individual already
+        if (remove_ind(ind)) {
+            final int grid_x = get_grid_x(ind);
+            m_ex_grid_view.clear_fitness(grid_x, ind.get_pos_y());
+            if (m_is_extend) {
+                m_ext_grid_view.clear_fitness(grid_x, ind.get_pos_y());
+            }
 
-        //Update the Grid
-        m_ex_grid_view.clear_fitness(ind.get_pos_x(), ind.get_pos_y());
-        if (m_is_extend) {
-            m_ext_grid_view.clear_fitness(ind.get_pos_x(), ind.get_pos_y());
+            //Mart that we need an update
+            m_is_update = true;
         }
-
-        //Mart that we need an update
-        m_is_update = true;
     }
 
     /**
@@ -207,24 +212,25 @@ public class PMVisualizer extends FitnessTracker {
      */
     private synchronized void update_fitness() {
         //Re-compute fitness and plot data
-        if (m_is_update && re_compute_fitness()) {
-            //Get the fitness values
-            final double[] req_ftn = get_req_fitness();
-            final double[] ex_ftn = get_ex_fitness();
-
-            //Fitness update
-            if (m_ftn_change != null) {
-                m_ftn_change.change(req_ftn, ex_ftn);
-            }
+        if (m_is_update) {
+            //Reset the flag first not to miss the concurrent changes
+            m_is_update = false;
+            if (re_compute_fitness()) {
+                //Get the fitness values
+                final double[] req_ftn = get_req_fitness();
+                final double[] ex_ftn = get_ex_fitness();
+
+                //Fitness update
+                if (m_ftn_change != null) {
+                    m_ftn_change.change(req_ftn, ex_ftn);
+                }
 
-            //Schedule the chart updates
-            m_ex_chart.schedule_update(ex_ftn);
-            if (m_is_extend) {
-                m_ext_chart.schedule_update(req_ftn);
+                //Schedule the chart updates
+                m_ex_chart.schedule_update(ex_ftn);
+                if (m_is_extend) {
+                    m_ext_chart.schedule_update(req_ftn);
+                }
             }
-
-            //Mark the update as done
-            m_is_update = false;
         }
     }
 
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.ui;
+
+import java.util.Arrays;
+
+/**
+ * Stores the entire history of several time series sharing the same x values
+ * in primitive arrays. Allows to downsample a series to the required number of
+ * points with the Largest-Triangle-Three-Buckets (LTTB) algorithm. Once the
+ * maximum capacity is exhausted the history is compacted by merging the
+ * neighboring points, so the memory stays bounded but the entire run is still
+ * covered. With a small maximum capacity the store is a coarser tier of the
+ * history, maintained in amortized constant time per point. Is not thread
+ * safe.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class SeriesStore {
+
+    //Stores the initial capacity
+    private static final int INIT_CAPACITY = 1024;
+
+    //Stores the maximum capacity, is even
+    private final int m_max_capacity;
+    //Stores the x values
+    private double[] m_xs;
+    //Stores the y values, per series
+    private final double[][] m_ys;
+    //Stores the per series flags indicating whether the merged points get the
+    //maximum or the average value
+    private final boolean[] m_is_max;
+    //Stores the number of points
+    private int m_size;
+
+    /**
+     * The basic constructor
+     *
+     * @param is_max the per series flags indicating whether the merged points
+     * get the maximum, or the average, value
+     * @param max_capacity the maximum number of points, must be even and at
+     * least 2
+     */
+    SeriesStore(final boolean[] is_max, final int max_capacity) {
+        if ((max_capacity < 2) || (max_capacity % 2 != 0)) {
+            throw new IllegalArgumentException("Invalid maximum capacity: " + max_capacity);
+        }
+        final int capacity = Math.min(INIT_CAPACITY, max_capacity);
+        m_max_capacity = max_capacity;
+        m_is_max = is_max.clone();
+        m_xs = new double[capacity];
+        m_ys = new double[is_max.length][capacity];
+        m_size = 0;
+    }
+
+    /**
+     * Allows to get the maximum number of stored points per series
+     *
+     * @return the maximum capacity
+     */
+    int get_max_capacity() {
+        return m_max_capacity;
+    }
+
+    /**
+     * Allows to get the number of stored points per series
+     *
+     * @return the number of points
+     */
+    int get_size() {
+        return m_size;
+    }
+
+    /**
+     * Allows to get the x value
+     *
+     * @param idx the point index
+     * @return the x value
+     */
+    double get_x(final int idx) {
+        return m_xs[idx];
+    }
+
+    /**
+     * Allows to get the y value
+     *
+     * @param ser_idx the series index
+     * @param idx the point index
+     * @return the y value
+     */
+    double get_y(final int ser_idx, final int idx) {
+        return m_ys[ser_idx][idx];
+    }
+
+    /**
+     * Adds the new point to all the series
+     *
+     * @param x the x value
+     * @param ys the y values, one per series
+     */
+    void add(final double x, final double[] ys) {
+        if (m_size == m_xs.length) {
+            if (m_size < m_max_capacity) {
+                grow();
+            } else {
+                compact();
+            }
+        }
+        m_xs[m_size] = x;
+        for (int ser_idx = 0; ser_idx < m_ys.length; ++ser_idx) {
+            m_ys[ser_idx][m_size] = ys[ser_idx];
+        }
+        m_size++;
+    }
+
+    /**
+     * Adds all the points of the other store, with the same series, to all
+     * the series
+     *
+     * @param src the store to add the points from
+     */
+    void add_all(final SeriesStore src) {
+        final double[] ys = new double[m_ys.length];
+        for (int idx = 0; idx < src.m_size; ++idx) {
+            for (int ser_idx = 0; ser_idx < m_ys.length; ++ser_idx) {
+                ys[ser_idx] = src.m_ys[ser_idx][idx];
+            }
+            add(src.m_xs[idx], ys);
+        }
+    }
+
+    /**
+     * Removes all the points
+     */
+    void clear() {
+        m_size = 0;
+    }
+
+    /**
+     * Doubles the capacity
+     */
+    private void grow() {
+        final int capacity = Math.min(m_max_capacity, 2 * m_xs.length);
+        m_xs = Arrays.copyOf(m_xs, capacity);
+        for (int ser_idx = 0; ser_idx < m_ys.length; ++ser_idx) {
+            m_ys[ser_idx] = Arrays.copyOf(m_ys[ser_idx], capacity);
+        }
+    }
+
+    /**
+     * Halves the number of points by merging the neighboring pairs, the
+     * merged point gets the latter x value
+     */
+    private void compact() {
+        final int half = m_size / 2;
+        for (int idx = 0; idx < half; ++idx) {
+            m_xs[idx] = m_xs[2 * idx + 1];
+            for (int ser_idx = 0; ser_idx < m_ys.length; ++ser_idx) {
+                final double[] ys = m_ys[ser_idx];
+                final double first = ys[2 * idx];
+                final double second = ys[2 * idx + 1];
+                if (m_is_max[ser_idx]) {
+                    ys[idx] = Math.max(first, second);
+                } else {
+                    ys[idx] = (first + second) / 2.0;
+                }
+            }
+        }
+        m_size = half;
+    }
+
+    /**
+     * Selects the points of the series to be displayed, using the
+     * Largest-Triangle-Three-Buckets algorithm. The first and the last points
+     * are always selected.
+     *
+     * @param ser_idx the series index
+     * @param threshold the maximum number of points to select, at least 3
+     * @param out the array to store the selected point indexes into, must have
+     * at least threshold elements
+     * @return the number of selected points
+     */
+    int downsample(final int ser_idx, final int threshold, final int[] out) {
+        if (m_size <= threshold) {
+            for (int idx = 0; idx < m_size; ++idx) {
+                out[idx] = idx;
+            }
+            return m_size;
+        } else {
+            final double[] ys = m_ys[ser_idx];
+            final double every = ((double) (m_size - 2)) / (threshold - 2);
+            int num_sel = 0;
+            int prev = 0;
+            out[num_sel++] = prev;
+            for (int bucket = 0; bucket < threshold - 2; ++bucket) {
+                //Compute the average point of the next bucket
+                final int avg_begin = (int) ((bucket + 1) * every) + 1;
+                final int avg_end = Math.min((int) ((bucket + 2) * every) + 1, m_size);
+                double avg_x = 0.0;
+                double avg_y = 0.0;
+                for (int idx = avg_begin; idx < avg_end; ++idx) {
+                    avg_x += m_xs[idx];
+                    avg_y += ys[idx];
+                }
+                final int avg_cnt = avg_end - avg_begin;
+                if (avg_cnt > 0) {
+                    avg_x /= avg_cnt;
+                    avg_y /= avg_cnt;
+                } else {
+                    avg_x = m_xs[m_size - 1];
+                    avg_y = ys[m_size - 1];
+                }
+
+                //Select the point of this bucket with the largest triangle
+                final int begin = (int) (bucket * every) + 1;
+                final int end = Math.min((int) ((bucket + 1) * every) + 1, m_size - 1);
+                final double prev_x = m_xs[prev];
+                final double prev_y = ys[prev];
+                double max_area = -1.0;
+                int max_idx = begin;
+                for (int idx = begin; idx < end; ++idx) {
+                    final double area = Math.abs((prev_x - avg_x) * (ys[idx] - prev_y)
+                            - (prev_x - m_xs[idx]) * (avg_y - prev_y));
+                    if (area > max_area) {
+                        max_area = area;
+                        max_idx = idx;
+                    }
+                }
+                prev = max_idx;
+                out[num_sel++] = prev;
+            }
+            out[num_sel++] = m_size - 1;
+            return num_sel;
+        }
+    }
+}
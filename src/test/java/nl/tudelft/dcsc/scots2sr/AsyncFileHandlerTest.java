@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the asynchronous file log handler
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class AsyncFileHandlerTest {
+
+    //Stores the time out of waiting for the written records in milliseconds
+    private static final long WAIT_TIME_OUT_MS = 10000;
+
+    /**
+     * The formatter writing the message with the given prefix
+     */
+    private static final class PrefixFormatter extends Formatter {
+
+        //Stores the prefix
+        private final String m_prefix;
+
+        PrefixFormatter(final String prefix) {
+            m_prefix = prefix;
+        }
+
+        @Override
+        public String format(final LogRecord record) {
+            return m_prefix + record.getMessage() + "\n";
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    /**
+     * Waits until the file has the given size
+     *
+     * @param file the file
+     * @param size the expected size in bytes
+     * @throws Exception if the waiting fails
+     */
+    private static void wait_for_size(final Path file, final long size) throws Exception {
+        final long end = System.currentTimeMillis() + WAIT_TIME_OUT_MS;
+        while ((Files.size(file) < size) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    public void test_formatter_and_encoding_change_apply() throws Exception {
+        final Path file = m_tmp.getRoot().toPath().resolve("test.log");
+        final AsyncFileHandler handler = new AsyncFileHandler(file.toString(), 16, true);
+        handler.setEncoding(StandardCharsets.UTF_8.name());
+        handler.setFormatter(new PrefixFormatter("A:"));
+        handler.publish(new LogRecord(Level.INFO, "first"));
+        wait_for_size(file, "A:first\n".length());
+
+        //The following batches use the new formatter and encoding
+        handler.setFormatter(new PrefixFormatter("B:"));
+        handler.setEncoding(StandardCharsets.UTF_16BE.name());
+        handler.publish(new LogRecord(Level.INFO, "second"));
+        handler.close();
+
+        final byte[] data = Files.readAllBytes(file);
+        final int head = "A:first\n".length();
+        assertEquals("A:first\n", new String(data, 0, head, StandardCharsets.UTF_8));
+        assertEquals("B:second\n", new String(data, head, data.length - head,
+                StandardCharsets.UTF_16BE));
+    }
+}
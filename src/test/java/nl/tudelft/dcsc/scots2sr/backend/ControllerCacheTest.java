@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the binary cache of the explicit controller
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ControllerCacheTest {
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    //Stores the controller file path
+    private Path m_src;
+    //Stores the controller parsed from the text
+    private ExplicitController m_ctrl;
+
+    @Before
+    public void set_up() throws IOException {
+        m_src = ExplicitControllerTest.copy_resource(m_tmp,
+                ExplicitControllerTest.CTRL_RESOURCE, ExplicitControllerTest.CTRL_RESOURCE);
+        m_ctrl = ExplicitController.load(m_src.toString());
+        ControllerCache.store(m_src, m_ctrl);
+        assertTrue(Files.isRegularFile(ControllerCache.get_cache_path(m_src)));
+    }
+
+    /**
+     * Checks that the grids are the same
+     *
+     * @param exp the expected grid
+     * @param act the actual grid
+     */
+    private static void assert_grid(final ExplicitController.Grid exp,
+            final ExplicitController.Grid act) {
+        assertArrayEquals(exp.m_eta, act.m_eta, 0.0);
+        assertArrayEquals(exp.m_ll, act.m_ll, 0.0);
+        assertArrayEquals(exp.m_ur, act.m_ur, 0.0);
+        assertArrayEquals(exp.m_sizes, act.m_sizes);
+    }
+
+    @Test
+    public void test_round_trip() {
+        final ExplicitController cached = ControllerCache.load(m_src);
+        assertNotNull(cached);
+        assert_grid(m_ctrl.get_ss_grid(), cached.get_ss_grid());
+        assert_grid(m_ctrl.get_is_grid(), cached.get_is_grid());
+        assertEquals(m_ctrl.get_domain_size(), cached.get_domain_size());
+        for (int dom_idx = 0; dom_idx < m_ctrl.get_domain_size(); ++dom_idx) {
+            assertEquals(m_ctrl.get_state(dom_idx), cached.get_state(dom_idx));
+            for (int input = 0; input < m_ctrl.get_is_grid().m_size; ++input) {
+                assertEquals(m_ctrl.is_allowed(dom_idx, input),
+                        cached.is_allowed(dom_idx, input));
+            }
+        }
+    }
+
+    @Test
+    public void test_stale_mtime() throws IOException {
+        final FileTime mtime = Files.getLastModifiedTime(m_src);
+        Files.setLastModifiedTime(m_src, FileTime.fromMillis(mtime.toMillis() + 2000));
+        assertNull(ControllerCache.load(m_src));
+    }
+
+    @Test
+    public void test_stale_size() throws IOException {
+        final FileTime mtime = Files.getLastModifiedTime(m_src);
+        Files.write(m_src, "\n".getBytes(), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(m_src, mtime);
+        assertNull(ControllerCache.load(m_src));
+    }
+
+    @Test
+    public void test_truncated_cache() throws IOException {
+        final Path path = ControllerCache.get_cache_path(m_src);
+        try (final FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - Long.BYTES);
+        }
+        assertNull(ControllerCache.load(m_src));
+    }
+
+    @Test
+    public void test_missing_cache() throws IOException {
+        Files.delete(ControllerCache.get_cache_path(m_src));
+        assertNull(ControllerCache.load(m_src));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.nio.file.Path;
+import nl.tudelft.dcsc.scots2sr.jni.ScotsFacade;
+import nl.tudelft.dcsc.scots2sr.sr.ExtendedFitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessType;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the explicit fitness backend on the small controller in
+ * controller.scs against a brute-force reference computed from the
+ * controller's allowed inputs. The parity with the native backend is only
+ * checked if the native library and the same controller in both formats are
+ * given by the system properties.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ExplicitBackendTest {
+
+    //Stores the system property with the native library file name
+    static final String NATIVE_LIB_PROP = "scots2sr.test.native.lib";
+    //Stores the system property with the BDD controller file name, without
+    //the extension, for the native backend
+    static final String NATIVE_CTRL_PROP = "scots2sr.test.native.ctrl";
+    //Stores the system property with the text controller file name, without
+    //the extension, for the explicit backend
+    static final String EXPLICIT_CTRL_PROP = "scots2sr.test.explicit.ctrl";
+
+    /**
+     * The individual producing the difference of the state coordinates
+     */
+    public static final class DiffInd {
+
+        public static double[] evaluate(final double[] x) {
+            return new double[]{x[0] - x[1]};
+        }
+    }
+
+    /**
+     * The individual producing a constant input
+     */
+    public static final class ConstInd {
+
+        public static double[] evaluate(final double[] x) {
+            return new double[]{2.0};
+        }
+    }
+
+    /**
+     * The individual producing a scaled and shifted input
+     */
+    public static final class AffineInd {
+
+        public static double[] evaluate(final double[] x) {
+            return new double[]{0.4 * x[0] + 0.7 * x[1] - 0.2};
+        }
+    }
+
+    /**
+     * The individual class with no evaluation method
+     */
+    public static final class NoEvalInd {
+
+        public static double compute(final double[] x) {
+            return x[0];
+        }
+    }
+
+    //Stores the individual classes to evaluate
+    private static final Class<?>[] INDS = {
+        DiffInd.class, ConstInd.class, AffineInd.class};
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    //Stores the backend loaded with the test controller
+    private ExplicitBackend m_backend;
+
+    @Before
+    public void set_up() throws Exception {
+        final Path path = ExplicitControllerTest.copy_resource(m_tmp,
+                ExplicitControllerTest.CTRL_RESOURCE, "ctrl" + ExplicitBackend.CTRL_FILE_EXT);
+        m_backend = new ExplicitBackend();
+        assertEquals(3, m_backend.load(path.toString().substring(0,
+                path.toString().length() - ExplicitBackend.CTRL_FILE_EXT.length())));
+    }
+
+    /**
+     * Creates the configuration
+     *
+     * @param is_scale true to fit the scaling
+     * @param is_extend true for the extended fitness
+     * @param is_mc true for the Monte Carlo fitness
+     * @return the configuration
+     */
+    static BackendConfig make_config(final boolean is_scale,
+            final boolean is_extend, final boolean is_mc) {
+        return new BackendConfig(2, FitnessType.ATANG, 0.5, 1.0, is_scale,
+                is_extend, false, is_mc, false, 4, 2, 2, 0.5);
+    }
+
+    /**
+     * Computes the actual fitness of the individual by brute force over the
+     * state grid of the test controller
+     *
+     * @param ind the individual class
+     * @return the actual fitness
+     * @throws Exception if the individual can not be evaluated
+     */
+    private static double get_ref_fitness(final Class<?> ind) throws Exception {
+        final int[] sizes = ExplicitControllerTest.SS_SIZES;
+        int num_dom = 0;
+        int num_fit = 0;
+        for (int state = 0; state < ExplicitControllerTest.ALLOWED.length; ++state) {
+            final int[] allowed = ExplicitControllerTest.ALLOWED[state];
+            if (allowed != null) {
+                ++num_dom;
+                final double[] u = (double[]) ind.getMethod("evaluate", double[].class)
+                        .invoke(null, (Object) new double[]{state % sizes[0], state / sizes[0]});
+                final long input = Math.round(Math.abs(u[0]));
+                for (int value : allowed) {
+                    if (value == input) {
+                        ++num_fit;
+                    }
+                }
+            }
+        }
+        return ((double) num_fit) / num_dom;
+    }
+
+    @Test
+    public void test_fitness_matches_reference() throws Exception {
+        m_backend.configure(make_config(false, false, false));
+        for (Class<?> ind : INDS) {
+            final ExtendedFitness ftn = (ExtendedFitness) m_backend.compute_fitness(0, ind.getName());
+            assertEquals(ind.getSimpleName(), get_ref_fitness(ind), ftn.get_act_ftn(), 0.0);
+            assertEquals(ftn.get_act_ftn(), ftn.get_ext_ftn(), 0.0);
+        }
+    }
+
+    @Test
+    public void test_extended_fitness_bounds() throws Exception {
+        m_backend.configure(make_config(false, true, false));
+        for (Class<?> ind : INDS) {
+            final ExtendedFitness ftn = (ExtendedFitness) m_backend.compute_fitness(0, ind.getName());
+            assertEquals(get_ref_fitness(ind), ftn.get_act_ftn(), 0.0);
+            assertTrue(ftn.get_ext_ftn() >= ftn.get_act_ftn());
+            assertTrue(ftn.get_ext_ftn() <= 1.0);
+        }
+    }
+
+    @Test
+    public void test_batch_matches_single() throws Exception {
+        final String[] names = new String[INDS.length];
+        for (int idx = 0; idx < INDS.length; ++idx) {
+            names[idx] = INDS[idx].getName();
+        }
+        for (int cfg_idx = 0; cfg_idx < 4; ++cfg_idx) {
+            m_backend.configure(make_config((cfg_idx & 1) != 0, (cfg_idx & 2) != 0, false));
+            final Fitness[] batch = m_backend.compute_fitness_batch(1, names);
+            for (int idx = 0; idx < names.length; ++idx) {
+                final Fitness single = m_backend.compute_fitness(1, names[idx]);
+                assertTrue(names[idx] + " " + single + " " + batch[idx],
+                        single.is_equal(batch[idx]));
+            }
+        }
+    }
+
+    @Test
+    public void test_batching_is_supported() {
+        assertTrue(m_backend.set_batching(4, 100));
+        assertFalse(m_backend.set_batching(1, 100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_class_without_evaluate_rejected() throws Exception {
+        m_backend.configure(make_config(false, false, false));
+        m_backend.compute_fitness(0, NoEvalInd.class.getName());
+    }
+
+    @Test
+    public void test_native_parity() throws Exception {
+        final String lib = System.getProperty(NATIVE_LIB_PROP);
+        final String native_ctrl = System.getProperty(NATIVE_CTRL_PROP);
+        final String explicit_ctrl = System.getProperty(EXPLICIT_CTRL_PROP);
+        Assume.assumeTrue("Set " + NATIVE_LIB_PROP + ", " + NATIVE_CTRL_PROP
+                + " and " + EXPLICIT_CTRL_PROP + " to check the native parity",
+                (lib != null) && (native_ctrl != null) && (explicit_ctrl != null));
+
+        final BackendConfig cfg = make_config(false, false, false);
+        assertFalse(ScotsFacade.INSTANCE.load_library(lib));
+        ScotsFacade.INSTANCE.load(native_ctrl);
+        ScotsFacade.INSTANCE.configure(cfg);
+        m_backend.load(explicit_ctrl);
+        m_backend.configure(cfg);
+        for (Class<?> ind : INDS) {
+            assertEquals(ind.getSimpleName(),
+                    ScotsFacade.INSTANCE.compute_fitness(0, ind.getName()).get_fitness(),
+                    m_backend.compute_fitness(0, ind.getName()).get_fitness(), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests loading the SCOTSv2.0 static controller text format into the
+ * explicit controller, against the small controller in controller.scs
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ExplicitControllerTest {
+
+    //Stores the test controller resource name
+    static final String CTRL_RESOURCE = "controller.scs";
+    //Stores the number of state grid points per dimension of the test controller
+    static final int[] SS_SIZES = {5, 3};
+    //Stores the number of input grid points of the test controller
+    static final int IS_SIZE = 4;
+    //Stores the allowed inputs of the test controller per state, null for
+    //the states outside of the domain
+    static final int[][] ALLOWED = {
+        {1}, {1, 2}, {2}, null, {0, 3},
+        {1}, null, {2, 3}, {3}, null,
+        {0, 1, 2, 3}, {1}, null, {2}, {3}};
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    /**
+     * Copies the test resource into the folder
+     *
+     * @param tmp the folder
+     * @param resource the resource name
+     * @param file_name the file name to copy to
+     * @return the file path
+     * @throws IOException if the resource can not be copied
+     */
+    static Path copy_resource(final TemporaryFolder tmp, final String resource,
+            final String file_name) throws IOException {
+        final Path path = tmp.getRoot().toPath().resolve(file_name);
+        try (final InputStream in = ExplicitControllerTest.class.getResourceAsStream(resource)) {
+            Files.copy(in, path);
+        }
+        return path;
+    }
+
+    /**
+     * Loads the test controller with the given replacement of its text
+     *
+     * @param from the text to replace
+     * @param to the replacement
+     * @return the controller
+     * @throws IOException if the controller is malformed
+     */
+    private ExplicitController load_modified(final String from, final String to)
+            throws IOException {
+        final Path path = copy_resource(m_tmp, CTRL_RESOURCE, "modified.scs");
+        final String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertTrue(text.contains(from));
+        Files.write(path, text.replace(from, to).getBytes(StandardCharsets.UTF_8));
+        return ExplicitController.load(path.toString());
+    }
+
+    @Test
+    public void test_load_grids() throws IOException {
+        final ExplicitController ctrl = ExplicitController.load(
+                copy_resource(m_tmp, CTRL_RESOURCE, CTRL_RESOURCE).toString());
+        assertEquals(2, ctrl.get_ss_dim());
+        assertEquals(1, ctrl.get_is_dim());
+        assertEquals(SS_SIZES[0] * SS_SIZES[1], ctrl.get_ss_size());
+        assertArrayEquals(SS_SIZES, ctrl.get_ss_grid().m_sizes);
+        assertEquals(IS_SIZE, ctrl.get_is_grid().m_size);
+    }
+
+    @Test
+    public void test_load_winning_domain() throws IOException {
+        final ExplicitController ctrl = ExplicitController.load(
+                copy_resource(m_tmp, CTRL_RESOURCE, CTRL_RESOURCE).toString());
+        final double[] x = new double[2];
+        int dom_idx = 0;
+        for (int state = 0; state < ALLOWED.length; ++state) {
+            if (ALLOWED[state] == null) {
+                continue;
+            }
+            assertEquals(state, ctrl.get_state(dom_idx));
+            ctrl.get_state_vector(dom_idx, x);
+            assertArrayEquals(new double[]{state % SS_SIZES[0], state / SS_SIZES[0]}, x, 0.0);
+            for (int input = 0; input < IS_SIZE; ++input) {
+                boolean is_allowed = false;
+                for (int allowed : ALLOWED[state]) {
+                    is_allowed |= (allowed == input);
+                }
+                assertEquals("state " + state + ", input " + input,
+                        is_allowed, ctrl.is_allowed(dom_idx, input));
+            }
+            assertFalse(ctrl.is_allowed(dom_idx, -1));
+            ++dom_idx;
+        }
+        assertEquals(dom_idx, ctrl.get_domain_size());
+    }
+
+    @Test
+    public void test_nearest_input() throws IOException {
+        final ExplicitController ctrl = ExplicitController.load(
+                copy_resource(m_tmp, CTRL_RESOURCE, CTRL_RESOURCE).toString());
+        //The domain index 3 is state 4 with the inputs 0 and 3
+        final double[] near = new double[1];
+        assertEquals(0.8, ctrl.get_nearest(3, new double[]{2.2}, near, new double[1]), 1e-12);
+        assertEquals(3.0, near[0], 0.0);
+        assertEquals(0.9, ctrl.get_nearest(3, new double[]{-0.9}, near, new double[1]), 1e-12);
+        assertEquals(0.0, near[0], 0.0);
+        assertEquals(-1, ctrl.get_input(new double[]{4.0}));
+        assertEquals(3, ctrl.get_input(new double[]{-2.6}));
+    }
+
+    @Test
+    public void test_bdd_meta_data_rejected() throws IOException {
+        try {
+            ExplicitController.load(copy_resource(
+                    m_tmp, "bdd_meta.scs", "bdd_meta.scs").toString());
+            fail("The BDD meta-data file must be rejected");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("BDD"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test_unordered_states_rejected() throws IOException {
+        load_modified("4 0 3 \n5 1 \n", "5 1 \n4 0 3 \n");
+    }
+
+    @Test(expected = IOException.class)
+    public void test_input_out_of_range_rejected() throws IOException {
+        load_modified("14 3 \n", "14 4 \n");
+    }
+
+    @Test(expected = IOException.class)
+    public void test_matrix_size_mismatch_rejected() throws IOException {
+        load_modified("#BEGIN:15 4", "#BEGIN:15 5");
+    }
+
+    @Test(expected = IOException.class)
+    public void test_dimension_mismatch_rejected() throws IOException {
+        load_modified("#MEMBER:DIM\n1\n", "#MEMBER:DIM\n2\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void test_truncated_matrix_rejected() throws IOException {
+        load_modified("14 3 \n#END", "14 3 \n");
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.backend;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the chunked unfit points export of the fitness backends, the chunked
+ * export of the synthetic controller spanning several chunks is checked
+ * against the single pass export and a brute-force scan of its domain.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class FitnessBackendTest {
+
+    //Stores the synthetic controller spanning several export chunks
+    static final String MULTI_CHUNK_SPEC = "ss_dim=2,is_dim=1,ss_extent=500,"
+            + "is_extent=8,density=0.6,non_det=2,seed=7";
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    @Test
+    public void test_chunks_cover_domain() throws Exception {
+        final long total = 3L * FitnessBackend.EXPORT_CHUNK_SIZE + 17;
+        final BitSet covered = new BitSet();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final AtomicLong last_done = new AtomicLong(-1);
+        FitnessBackend.export_chunks(total, (done_cnt, total_cnt) -> {
+            assertEquals(total, total_cnt);
+            last_done.accumulateAndGet(done_cnt, Math::max);
+        }, (chunk_idx, begin, end) -> {
+            assertEquals(((long) chunk_idx) * FitnessBackend.EXPORT_CHUNK_SIZE, begin);
+            threads.add(Thread.currentThread().getName());
+            synchronized (covered) {
+                assertTrue(covered.nextSetBit((int) begin) < 0
+                        || covered.nextSetBit((int) begin) >= end);
+                covered.set((int) begin, (int) end);
+            }
+        });
+        assertEquals(total, covered.cardinality());
+        assertEquals(total, last_done.get());
+        //The chunks must not run on the common fork join pool
+        assertFalse(threads.isEmpty());
+        for (String name : threads) {
+            assertEquals("unfit-export", name);
+        }
+    }
+
+    @Test
+    public void test_empty_domain() throws Exception {
+        final AtomicLong last_done = new AtomicLong(-1);
+        FitnessBackend.export_chunks(0, (done_cnt, total_cnt) -> {
+            last_done.set(done_cnt);
+        }, (chunk_idx, begin, end) -> {
+            fail("No chunk is expected");
+        });
+        assertEquals(0, last_done.get());
+    }
+
+    @Test
+    public void test_chunk_failure_is_reported() {
+        final IOException cause = new IOException("chunk failure");
+        try {
+            FitnessBackend.export_chunks(2L * FitnessBackend.EXPORT_CHUNK_SIZE,
+                    null, (chunk_idx, begin, end) -> {
+                        if (chunk_idx == 1) {
+                            throw new InvocationTargetException(cause);
+                        }
+                    });
+            fail("The chunk failure is expected");
+        } catch (InvocationTargetException ex) {
+            assertSame(cause, ex.getCause());
+        }
+    }
+
+    /**
+     * Counts the unfit states of the individual by brute force
+     *
+     * @param backend the backend with the loaded controller
+     * @param ind the individual class
+     * @return the number of unfit domain states
+     * @throws Throwable if the individual can not be evaluated
+     */
+    private static int get_ref_num_unfit(final ExplicitBackend backend,
+            final Class<?> ind) throws Throwable {
+        final ExplicitController ctrl = backend.get_ctrl();
+        final double[] x = new double[ctrl.get_ss_dim()];
+        int num_unfit = 0;
+        for (int dom_idx = 0; dom_idx < ctrl.get_domain_size(); ++dom_idx) {
+            ctrl.get_state_vector(dom_idx, x);
+            final double[] u = (double[]) ind.getMethod("evaluate", double[].class)
+                    .invoke(null, (Object) x.clone());
+            if (!ctrl.is_allowed(dom_idx, ctrl.get_input(u))) {
+                ++num_unfit;
+            }
+        }
+        return num_unfit;
+    }
+
+    @Test
+    public void test_chunked_export_matches_single_pass() throws Throwable {
+        final SyntheticBackend backend = new SyntheticBackend(MULTI_CHUNK_SPEC);
+        backend.load("synthetic");
+        final int dom_size = backend.get_ctrl().get_domain_size();
+        assertTrue(FitnessBackend.get_num_chunks(dom_size) > 1);
+
+        final Class<?> ind = ExplicitBackendTest.AffineInd.class;
+        final String chunked = m_tmp.getRoot().toPath().resolve("chunked").toString();
+        final AtomicLong last_done = new AtomicLong(-1);
+        final Fitness ftn = backend.store_unfit_points(chunked, ind.getName(),
+                (done_cnt, total_cnt) -> last_done.accumulateAndGet(done_cnt, Math::max));
+        assertEquals(dom_size, last_done.get());
+
+        //The single pass export of the entire domain as the reference
+        final String single = m_tmp.getRoot().toPath().resolve("single").toString();
+        backend.start_unfit_export();
+        final long num_fit = backend.export_unfit_points_range(ind.getName(), 0, dom_size);
+        backend.finish_unfit_export(single + FitnessBackend.UNFIT_FILE_SUFFIX);
+
+        final int num_unfit = get_ref_num_unfit(backend, ind);
+        assertTrue(num_unfit > 0);
+        assertEquals(dom_size - num_unfit, num_fit);
+        assertEquals(((double) num_fit) / dom_size, ftn.get_fitness(), 0.0);
+        assertArrayEquals(Files.readAllBytes(get_unfit_file(single)),
+                Files.readAllBytes(get_unfit_file(chunked)));
+    }
+
+    /**
+     * Allows to get the unfit points file
+     *
+     * @param file_name the file name without the extension
+     * @return the unfit points file
+     */
+    static Path get_unfit_file(final String file_name) {
+        final Path path = Paths.get(file_name
+                + FitnessBackend.UNFIT_FILE_SUFFIX + ExplicitBackend.CTRL_FILE_EXT);
+        assertTrue(Files.isRegularFile(path));
+        return path;
+    }
+}
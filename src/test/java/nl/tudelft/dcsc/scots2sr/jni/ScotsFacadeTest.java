@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.jni;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import nl.tudelft.dcsc.scots2jni.FConfig;
+import nl.tudelft.dcsc.scots2sr.backend.ExplicitBackend;
+import nl.tudelft.dcsc.scots2sr.backend.FitnessBackend;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the unfit points export of the facade on the synthetic stand-in,
+ * with and without the ranged export methods on the backend side.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ScotsFacadeTest {
+
+    //Stores the synthetic controller spanning several export chunks
+    private static final String MULTI_CHUNK_SPEC = "ss_dim=2,is_dim=1,ss_extent=500,"
+            + "is_extent=8,density=0.6,non_det=2,seed=7";
+
+    /**
+     * The individual producing a scaled and shifted input
+     */
+    public static final class AffineInd {
+
+        public static double[] evaluate(final double[] x) {
+            return new double[]{0.4 * x[0] + 0.7 * x[1] - 0.2};
+        }
+    }
+
+    /**
+     * The backend without the ranged export, as the older native builds
+     */
+    public static final class SinglePassJNI {
+
+        public static int load(final String file_name) {
+            return SyntheticScots2JNI.load(file_name);
+        }
+
+        public static int get_state_space_size(final int ss_dim)
+                throws IllegalAccessException, InvocationTargetException {
+            return SyntheticScots2JNI.get_state_space_size(ss_dim);
+        }
+
+        public static void configure(final FConfig cfg)
+                throws IllegalAccessException, InvocationTargetException {
+            SyntheticScots2JNI.configure(cfg);
+        }
+
+        public static Fitness compute_fitness(final String class_name)
+                throws ClassNotFoundException, IllegalAccessException,
+                InvocationTargetException {
+            return SyntheticScots2JNI.compute_fitness(class_name);
+        }
+
+        public static void start_unfit_export() {
+            SyntheticScots2JNI.start_unfit_export();
+        }
+
+        public static double export_unfit_points(final String class_name)
+                throws ClassNotFoundException, IllegalAccessException,
+                InvocationTargetException {
+            return SyntheticScots2JNI.export_unfit_points(class_name);
+        }
+
+        public static void finish_unfit_export(final String file_name) throws IOException {
+            SyntheticScots2JNI.finish_unfit_export(file_name);
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder m_tmp = new TemporaryFolder();
+
+    /**
+     * Exports the unfit points through the facade
+     *
+     * @param name the file name, without the path and extension
+     * @param progress the reported progress, as done and total pairs
+     * @return the fitness on the entire domain
+     * @throws Exception if the export fails
+     */
+    private Fitness export(final String name, final List<long[]> progress)
+            throws Exception {
+        final String file_name = m_tmp.getRoot().toPath().resolve(name).toString();
+        return ScotsFacade.INSTANCE.store_unfit_points(file_name,
+                AffineInd.class.getName(), (done_cnt, total_cnt) -> {
+                    synchronized (progress) {
+                        progress.add(new long[]{done_cnt, total_cnt});
+                    }
+                });
+    }
+
+    /**
+     * Allows to read the unfit points file
+     *
+     * @param name the file name, without the path and extension
+     * @return the file content
+     * @throws IOException if the file can not be read
+     */
+    private byte[] read_unfit(final String name) throws IOException {
+        final Path path = Paths.get(m_tmp.getRoot().toString(),
+                name + FitnessBackend.UNFIT_FILE_SUFFIX + ExplicitBackend.CTRL_FILE_EXT);
+        assertTrue(Files.isRegularFile(path));
+        return Files.readAllBytes(path);
+    }
+
+    @Test
+    public void test_chunked_matches_single_pass() throws Exception {
+        assertFalse(ScotsFacade.INSTANCE.load_library(
+                ScotsFacade.SYNTHETIC_LIB_PREF + MULTI_CHUNK_SPEC));
+        ScotsFacade.INSTANCE.load("synthetic");
+        final long dom_size = SyntheticScots2JNI.get_domain_size();
+
+        //The chunked export reports the progress with the known total
+        final List<long[]> chunked = new ArrayList<>();
+        final Fitness chunked_ftn = export("chunked", chunked);
+        assertTrue(chunked.size() > 2);
+        long max_done = 0;
+        for (long[] done_total : chunked) {
+            assertEquals(dom_size, done_total[1]);
+            max_done = Math.max(max_done, done_total[0]);
+        }
+        assertEquals(dom_size, max_done);
+
+        //The single pass export reports the indeterminate progress only
+        ScotsFacade.INSTANCE.bind(SinglePassJNI.class);
+        final List<long[]> single = new ArrayList<>();
+        final Fitness single_ftn = export("single", single);
+        assertEquals(1, single.size());
+        assertTrue(single.get(0)[1] <= 0);
+
+        assertTrue(chunked_ftn.get_fitness() < 1.0);
+        assertEquals(single_ftn.get_fitness(), chunked_ftn.get_fitness(), 1e-12);
+        assertArrayEquals(read_unfit("single"), read_unfit("chunked"));
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the fitness index of the grid against the brute-force scan of the
+ * grid cells, after random updates
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class FitnessIndexTest {
+
+    //Stores the number of cells
+    private static final int NUM_CELLS = 64;
+    //Stores the number of random updates
+    private static final int NUM_UPDATES = 5000;
+
+    /**
+     * The grid item, is compared by identity
+     */
+    private static final class Item {
+
+        //Stores the actual fitness
+        final double m_ftn;
+
+        Item(final double ftn) {
+            m_ftn = ftn;
+        }
+
+        @Override
+        public String toString() {
+            return "Item(" + m_ftn + ")@" + Integer.toHexString(hashCode());
+        }
+    }
+
+    /**
+     * Allows to get the fitness as ordered by the index
+     *
+     * @param item the item
+     * @return the item's fitness, negative infinity if not finite
+     */
+    private static double get_ftn(final Item item) {
+        return (Double.isNaN(item.m_ftn) || Double.isInfinite(item.m_ftn))
+                ? Double.NEGATIVE_INFINITY : item.m_ftn;
+    }
+
+    /**
+     * Gets the top fit items of the grid by brute force
+     *
+     * @param grid the grid cells
+     * @param max_num the maximum number of items
+     * @return the top fit items ordered by the descending fitness and the cell
+     */
+    private static List<Item> get_top(final Item[] grid, final int max_num) {
+        final List<Integer> cells = new ArrayList<>();
+        for (int cell = 0; cell < grid.length; ++cell) {
+            if (grid[cell] != null) {
+                cells.add(cell);
+            }
+        }
+        cells.sort((c1, c2) -> {
+            final int result = Double.compare(get_ftn(grid[c2]), get_ftn(grid[c1]));
+            return (result != 0) ? result : Integer.compare(c1, c2);
+        });
+        final List<Item> top = new ArrayList<>();
+        for (int idx = 0; idx < Math.min(max_num, cells.size()); ++idx) {
+            top.add(grid[cells.get(idx)]);
+        }
+        return top;
+    }
+
+    /**
+     * Gets the equally best fit items of the grid by brute force
+     *
+     * @param grid the grid cells
+     * @return the best fit items ordered by the cell
+     */
+    private static List<Item> get_best(final Item[] grid) {
+        final List<Item> best = new ArrayList<>();
+        for (Item item : get_top(grid, grid.length)) {
+            if (best.isEmpty() || (get_ftn(best.get(0)) == get_ftn(item))) {
+                best.add(item);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks the index against the brute force results, by identity
+     *
+     * @param index the index
+     * @param grid the grid cells
+     * @param msg the message for error reporting
+     */
+    private static void check(final FitnessIndex<Item> index, final Item[] grid,
+            final String msg) {
+        for (int cell = 0; cell < grid.length; ++cell) {
+            assertSame(msg, grid[cell], index.get(cell));
+        }
+        assert_same(msg, get_best(grid), index.get_best());
+        assert_same(msg, get_top(grid, 5), index.get_top(5, (item) -> true));
+        assert_same(msg, get_top(grid, grid.length), index.get_top(grid.length, (item) -> true));
+    }
+
+    /**
+     * Checks that the lists have the same items
+     *
+     * @param msg the message for error reporting
+     * @param exp the expected list
+     * @param act the actual list
+     */
+    private static void assert_same(final String msg, final List<Item> exp,
+            final List<Item> act) {
+        assertEquals(msg + ": " + exp + " vs " + act, exp.size(), act.size());
+        for (int idx = 0; idx < exp.size(); ++idx) {
+            assertSame(msg + ": " + exp + " vs " + act, exp.get(idx), act.get(idx));
+        }
+    }
+
+    /**
+     * Creates a random item, with ties and non-finite fitness values
+     *
+     * @param rnd the random generator
+     * @return the item
+     */
+    private static Item make_item(final Random rnd) {
+        switch (rnd.nextInt(10)) {
+            case 0:
+                return new Item(Double.NaN);
+            case 1:
+                return new Item(Double.POSITIVE_INFINITY);
+            case 2:
+            case 3:
+                return new Item(rnd.nextInt(4) / 4.0);
+            default:
+                return new Item(rnd.nextDouble());
+        }
+    }
+
+    @Test
+    public void test_random_updates() {
+        final Random rnd = new Random(1);
+        final FitnessIndex<Item> index = new FitnessIndex<>(NUM_CELLS);
+        final Item[] grid = new Item[NUM_CELLS];
+        final List<Item> removed = new ArrayList<>();
+        for (int step = 0; step < NUM_UPDATES; ++step) {
+            final int cell = rnd.nextInt(NUM_CELLS);
+            final int action = rnd.nextInt(4);
+            if (action == 0) {
+                //Remove the current item
+                assertEquals(grid[cell] != null, index.remove(cell, grid[cell]));
+                if (grid[cell] != null) {
+                    removed.add(grid[cell]);
+                }
+                grid[cell] = null;
+            } else if ((action == 1) && !removed.isEmpty()) {
+                //Removing a replaced item must not change the cell
+                assertFalse(index.remove(cell, removed.get(rnd.nextInt(removed.size()))));
+            } else {
+                final Item item = make_item(rnd);
+                assertSame(grid[cell], index.set(cell, item, item.m_ftn));
+                if (grid[cell] != null) {
+                    removed.add(grid[cell]);
+                }
+                grid[cell] = item;
+            }
+            check(index, grid, "step " + step);
+        }
+    }
+
+    @Test
+    public void test_filtered_top() {
+        final FitnessIndex<Item> index = new FitnessIndex<>(4);
+        final Item[] items = {new Item(0.1), new Item(0.9), new Item(0.5), new Item(0.9)};
+        for (int cell = 0; cell < items.length; ++cell) {
+            index.set(cell, items[cell], items[cell].m_ftn);
+        }
+        final List<Item> top = index.get_top(2, (item) -> item != items[1]);
+        assertEquals(2, top.size());
+        assertSame(items[3], top.get(0));
+        assertSame(items[2], top.get(1));
+    }
+
+    @Test
+    public void test_non_finite_is_worst() {
+        final FitnessIndex<Item> index = new FitnessIndex<>(3);
+        final Item nan = new Item(Double.NaN);
+        final Item inf = new Item(Double.POSITIVE_INFINITY);
+        final Item zero = new Item(0.0);
+        index.set(0, nan, nan.m_ftn);
+        index.set(1, inf, inf.m_ftn);
+        assertEquals(2, index.get_best().size());
+        index.set(2, zero, zero.m_ftn);
+        assertEquals(1, index.get_best().size());
+        assertSame(zero, index.get_best().get(0));
+    }
+
+    @Test
+    public void test_concurrent_updates() throws Exception {
+        final FitnessIndex<Item> index = new FitnessIndex<>(NUM_CELLS);
+        final ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; ++thread) {
+                final long seed = thread;
+                futures.add(exec.submit(() -> {
+                    final Random rnd = new Random(seed);
+                    for (int step = 0; step < NUM_UPDATES; ++step) {
+                        final int cell = rnd.nextInt(NUM_CELLS);
+                        final Item item = index.get(cell);
+                        if ((item != null) && rnd.nextBoolean()) {
+                            index.remove(cell, item);
+                        } else {
+                            final Item new_item = make_item(rnd);
+                            index.set(cell, new_item, new_item.m_ftn);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            exec.shutdown();
+        }
+        //Once quiescent the index must match the grid exactly
+        final Item[] grid = new Item[NUM_CELLS];
+        for (int cell = 0; cell < NUM_CELLS; ++cell) {
+            grid[cell] = index.get(cell);
+        }
+        check(index, grid, "quiescent");
+        assertTrue(index.get_top(NUM_CELLS, (item) -> true).size() <= NUM_CELLS);
+        assertNull(new FitnessIndex<Item>(1).get(0));
+    }
+}
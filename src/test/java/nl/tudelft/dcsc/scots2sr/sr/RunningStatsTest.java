@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.scots2sr.sr;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the running statistics against the brute-force re-computation over
+ * the cell values, after every random update
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class RunningStatsTest {
+
+    //Stores the number of cells
+    private static final int NUM_CELLS = 97;
+    //Stores the number of random updates per run
+    private static final int NUM_UPDATES = 20000;
+    //Stores the relative tolerance of the sums
+    private static final double REL_EPS = 1e-12;
+
+    /**
+     * Checks the running statistics against the brute-force ones
+     *
+     * @param stats the running statistics
+     * @param values the cell values, null for the empty cells
+     * @param step the update step for error reporting
+     */
+    private static void check(final RunningStats stats, final Double[] values,
+            final int step) {
+        int count = 0;
+        double sum = 0.0;
+        double sum_sq = 0.0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Double value : values) {
+            if (value != null) {
+                ++count;
+                sum += value;
+                sum_sq += value * value;
+                max = Math.max(max, value);
+            }
+        }
+        final String msg = "step " + step;
+        assertEquals(msg, count, stats.get_count());
+        assertEquals(msg, max, stats.get_max(), 0.0);
+        assertEquals(msg, sum, stats.get_sum(), REL_EPS * Math.max(1.0, sum_sq));
+        assertEquals(msg, sum_sq, stats.get_sum_sq(), REL_EPS * Math.max(1.0, sum_sq));
+    }
+
+    /**
+     * Runs the random updates and checks the statistics after each of them
+     *
+     * @param seed the random seed
+     * @param scale the value scale
+     */
+    private static void run_random(final long seed, final double scale) {
+        final Random rnd = new Random(seed);
+        final RunningStats stats = new RunningStats(NUM_CELLS);
+        final Double[] values = new Double[NUM_CELLS];
+        for (int step = 0; step < NUM_UPDATES; ++step) {
+            final int cell = rnd.nextInt(NUM_CELLS);
+            if (rnd.nextInt(4) == 0) {
+                stats.clear(cell);
+                values[cell] = null;
+            } else {
+                //Repeat some values to get ties in the heap
+                final double value = (rnd.nextInt(8) == 0)
+                        ? scale : scale * (2.0 * rnd.nextDouble() - 1.0);
+                stats.set(cell, value);
+                values[cell] = value;
+            }
+            check(stats, values, step);
+        }
+    }
+
+    @Test
+    public void test_random_unit_values() {
+        run_random(1, 1.0);
+    }
+
+    @Test
+    public void test_random_large_values() {
+        run_random(2, 1e6);
+    }
+
+    @Test
+    public void test_clear_all() {
+        final RunningStats stats = new RunningStats(3);
+        stats.set(0, 0.1);
+        stats.set(1, 0.7);
+        stats.set(2, 0.3);
+        stats.clear(1);
+        assertEquals(0.3, stats.get_max(), 0.0);
+        stats.clear(0);
+        stats.clear(2);
+        stats.clear(2);
+        assertEquals(0, stats.get_count());
+        assertEquals(0.0, stats.get_sum(), 0.0);
+        assertEquals(0.0, stats.get_sum_sq(), 0.0);
+        assertEquals(Double.NEGATIVE_INFINITY, stats.get_max(), 0.0);
+    }
+
+    @Test
+    public void test_non_finite_rejected() {
+        final RunningStats stats = new RunningStats(2);
+        stats.set(0, 0.5);
+        for (double value : new double[]{Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                stats.set(1, value);
+                fail("The value " + value + " must be rejected");
+            } catch (IllegalArgumentException ex) {
+                //Expected
+            }
+        }
+        assertEquals(1, stats.get_count());
+        assertEquals(0.5, stats.get_sum(), 0.0);
+        assertEquals(0.25, stats.get_sum_sq(), 0.0);
+        assertEquals(0.5, stats.get_max(), 0.0);
+    }
+}